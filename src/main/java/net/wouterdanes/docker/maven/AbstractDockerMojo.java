@@ -17,12 +17,15 @@
 
 package net.wouterdanes.docker.maven;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
@@ -41,6 +44,7 @@ import net.wouterdanes.docker.provider.model.PushableImage;
 import net.wouterdanes.docker.remoteapi.exception.DockerException;
 import net.wouterdanes.docker.remoteapi.model.ContainerInspectionResult;
 import net.wouterdanes.docker.remoteapi.model.Credentials;
+import net.wouterdanes.docker.remoteapi.model.ImageSummary;
 
 /**
  * Base class for all Mojos with shared functionality
@@ -51,6 +55,12 @@ public abstract class AbstractDockerMojo extends AbstractMojo {
     private static final String BUILT_IMAGES_KEY = "builtImages";
     private static final String PUSHABLE_IMAGES_KEY = "pushableImages";
     private static final String ERRORS_KEY = "errors";
+    private static final String BUILD_SESSION_KEY = "buildSession";
+    private static final String BACKGROUND_TASKS_KEY = "backgroundTasks";
+    private static final String PENDING_CONTAINER_STARTS_KEY = "pendingContainerStarts";
+    private static final String PENDING_IMAGES_KEY = "pendingImages";
+    private static final String PUSH_QUEUE_KEY = "pushQueue";
+    private static final String NO_TAG = "<none>:<none>";
 
     @Parameter(defaultValue = "remote", property = "docker.provider", required = true)
     private String providerName;
@@ -67,6 +77,22 @@ public abstract class AbstractDockerMojo extends AbstractMojo {
     @Parameter(defaultValue = "", property = "docker.password", required = false)
     private String password;
 
+    /**
+     * Start pushing images as soon as they are enqueued for pushing, instead of in the "push-images" goal. That goal
+     * still waits for the pushes to finish.
+     */
+    @Parameter(defaultValue = "false", property = "docker.asyncPush", required = false)
+    private boolean asyncPush;
+
+    /**
+     * The number of times a failing push is retried.
+     */
+    @Parameter(defaultValue = "2", property = "docker.pushRetries", required = false)
+    private int pushRetries;
+
+    @Parameter(defaultValue = "${project.build.directory}", readonly = true)
+    private File buildDirectory;
+
     public void setProviderName(final String providerName) {
         this.providerName = providerName;
     }
@@ -75,6 +101,18 @@ public abstract class AbstractDockerMojo extends AbstractMojo {
         this.skip = skip;
     }
 
+    public void setAsyncPush(final boolean asyncPush) {
+        this.asyncPush = asyncPush;
+    }
+
+    public void setBuildDirectory(final File buildDirectory) {
+        this.buildDirectory = buildDirectory;
+    }
+
+    protected File getBuildDirectory() {
+        return buildDirectory;
+    }
+
     @Override
     public final void execute() throws MojoExecutionException, MojoFailureException {
         if (skip) {
@@ -90,34 +128,55 @@ public abstract class AbstractDockerMojo extends AbstractMojo {
 
     protected void registerStartedContainer(String containerId, ContainerInspectionResult container) {
         StartedContainerInfo info = new StartedContainerInfo(containerId, container);
-        Map<String, StartedContainerInfo> startedContainers = obtainMapFromPluginContext(STARTED_CONTAINERS_KEY);
-        startedContainers.put(containerId, info);
+        KeyedRegistry<StartedContainerInfo> startedContainers = obtainKeyedRegistry(STARTED_CONTAINERS_KEY);
+        startedContainers.register(containerId, info);
     }
 
     protected Collection<StartedContainerInfo> getStartedContainers() {
-        Map<String, StartedContainerInfo> map = obtainMapFromPluginContext(STARTED_CONTAINERS_KEY);
-        return map.values();
+        KeyedRegistry<StartedContainerInfo> startedContainers = obtainKeyedRegistry(STARTED_CONTAINERS_KEY);
+        return startedContainers.values();
     }
 
     protected Optional<StartedContainerInfo> getInfoForContainerStartId(String startId) {
-        Map<String, StartedContainerInfo> map = obtainMapFromPluginContext(STARTED_CONTAINERS_KEY);
-        return Optional.fromNullable(map.get(startId));
+        KeyedRegistry<StartedContainerInfo> startedContainers = obtainKeyedRegistry(STARTED_CONTAINERS_KEY);
+        return startedContainers.get(startId);
     }
 
     protected void registerBuiltImage(String imageId, ImageBuildConfiguration imageConfig) throws MojoFailureException {
         BuiltImageInfo info = new BuiltImageInfo(imageId, imageConfig);
 
-        Map<String, BuiltImageInfo> builtImages = obtainMapFromPluginContext(BUILT_IMAGES_KEY);
-        builtImages.put(info.getStartId(), info);
+        KeyedRegistry<BuiltImageInfo> builtImages = obtainKeyedRegistry(BUILT_IMAGES_KEY);
+        builtImages.register(info.getStartId(), info);
 
         if (imageConfig.isPush()) {
             enqueueForPushing(imageId, imageConfig);
         }
     }
 
+    /**
+     * Registers an image that is being built in the background. Goals that need the image wait for it when they ask
+     * for built images.
+     *
+     * @param startId the id of the image configuration
+     * @param image   the build, its result is <code>null</code> when the build failed
+     */
+    protected void registerPendingImage(String startId, Future<BuiltImageInfo> image) {
+        KeyedRegistry<Future<BuiltImageInfo>> pendingImages = obtainKeyedRegistry(PENDING_IMAGES_KEY);
+        pendingImages.register(startId, image);
+    }
+
+    /**
+     * Returns all images that were built, waiting for images that are still being built in the background.
+     *
+     * @return the built images
+     */
     protected Collection<BuiltImageInfo> getBuiltImages() {
-        Map<String, BuiltImageInfo> builtImagesMap = obtainMapFromPluginContext(BUILT_IMAGES_KEY);
-        return Collections.unmodifiableCollection(builtImagesMap.values());
+        KeyedRegistry<Future<BuiltImageInfo>> pendingImages = obtainKeyedRegistry(PENDING_IMAGES_KEY);
+        for (Future<BuiltImageInfo> pendingImage : pendingImages.values()) {
+            awaitPendingImage(pendingImage);
+        }
+        KeyedRegistry<BuiltImageInfo> builtImages = obtainKeyedRegistry(BUILT_IMAGES_KEY);
+        return builtImages.values();
     }
 
     protected DockerProvider getDockerProvider() {
@@ -127,6 +186,83 @@ public abstract class AbstractDockerMojo extends AbstractMojo {
         return provider;
     }
 
+    /**
+     * @return the session of the current build, shared by all executions of the plugin in the project
+     */
+    protected BuildSession getBuildSession() {
+        return obtainFromPluginContext(BUILD_SESSION_KEY, BuildSession.class);
+    }
+
+    /**
+     * Adds the labels that identify the current build session to the user defined labels of a container or image.
+     *
+     * @param labels the user defined labels
+     * @return all labels to put on the container or image
+     */
+    protected Map<String, String> withSessionLabels(Map<String, String> labels) {
+        Map<String, String> allLabels = new LinkedHashMap<>(labels);
+        allLabels.putAll(getBuildSession().getLabels());
+        return allLabels;
+    }
+
+    /**
+     * Adds the labels of the current build session to the user defined labels of an image. Images that are kept or
+     * pushed outlive the build, so like snapshots they get the labels that release them from the session instead, and
+     * neither <code>remove-orphans</code> nor the retention policy of <code>stop-containers</code> removes them.
+     *
+     * @param labels the user defined labels
+     * @param kept   whether the image is kept or pushed
+     * @return all labels to put on the image
+     */
+    protected Map<String, String> withImageLabels(Map<String, String> labels, boolean kept) {
+        if (!kept) {
+            return withSessionLabels(labels);
+        }
+        Map<String, String> allLabels = new LinkedHashMap<>(labels);
+        allLabels.putAll(BuildSession.getReleasedLabels());
+        return allLabels;
+    }
+
+    /**
+     * @return the executor for work that runs in the background, shared by all executions of the plugin in the project
+     */
+    protected BackgroundTasks getBackgroundTasks() {
+        return obtainFromPluginContext(BACKGROUND_TASKS_KEY, BackgroundTasks.class);
+    }
+
+    /**
+     * Registers containers that are being started in the background.
+     *
+     * @param start the start, its result are the properties to expose to the project once the containers are ready
+     */
+    protected void registerPendingContainerStart(Future<Properties> start) {
+        OrderedSetRegistry<Future<Properties>> starts = obtainOrderedSetRegistry(PENDING_CONTAINER_STARTS_KEY);
+        starts.register(start);
+    }
+
+    /**
+     * Waits until all containers that are started in the background are ready, failures are registered as plugin
+     * errors by the background start itself.
+     *
+     * @return the properties to expose to the project
+     * @throws MojoExecutionException when waiting got interrupted
+     */
+    protected Properties awaitPendingContainerStarts() throws MojoExecutionException {
+        OrderedSetRegistry<Future<Properties>> starts = obtainOrderedSetRegistry(PENDING_CONTAINER_STARTS_KEY);
+        Properties properties = new Properties();
+        for (Future<Properties> start : starts.values()) {
+            try {
+                properties.putAll(start.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new MojoExecutionException("Interrupted while waiting for containers to start", e);
+            } catch (ExecutionException e) {
+                throw new MojoExecutionException("Starting containers in the background failed", e.getCause());
+            }
+        }
+        return properties;
+    }
+
     protected Credentials getCredentials() {
         if (Strings.isNullOrEmpty(userName)) {
             getLog().debug("No user name provided");
@@ -137,19 +273,50 @@ public abstract class AbstractDockerMojo extends AbstractMojo {
         return new Credentials(userName, password, email, null);
     }
 
+    /**
+     * Returns the image that was built for a configuration, waiting for it when it's still being built in the
+     * background.
+     *
+     * @param imageId the id of the image configuration
+     * @return the built image, absent when no image was built for it or the build failed
+     */
     protected Optional<BuiltImageInfo> getBuiltImageForStartId(final String imageId) {
-        Map<String, BuiltImageInfo> builtImages = obtainMapFromPluginContext(BUILT_IMAGES_KEY);
-        return Optional.fromNullable(builtImages.get(imageId));
+        KeyedRegistry<BuiltImageInfo> builtImages = obtainKeyedRegistry(BUILT_IMAGES_KEY);
+        Optional<BuiltImageInfo> builtImage = builtImages.get(imageId);
+        if (builtImage.isPresent()) {
+            return builtImage;
+        }
+        KeyedRegistry<Future<BuiltImageInfo>> pendingImages = obtainKeyedRegistry(PENDING_IMAGES_KEY);
+        Optional<Future<BuiltImageInfo>> pendingImage = pendingImages.get(imageId);
+        if (!pendingImage.isPresent()) {
+            return Optional.absent();
+        }
+        if (!pendingImage.get().isDone()) {
+            getLog().info(String.format("Waiting for image '%s' that is built in the background..", imageId));
+        }
+        return Optional.fromNullable(awaitPendingImage(pendingImage.get()));
+    }
+
+    private BuiltImageInfo awaitPendingImage(Future<BuiltImageInfo> pendingImage) {
+        try {
+            return pendingImage.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            // the background build registers its own errors
+            return null;
+        }
     }
 
     protected void registerPluginError(DockerPluginError error) {
-        List<DockerPluginError> errors = obtainListFromPluginContext(ERRORS_KEY);
-        errors.add(error);
+        OrderedSetRegistry<DockerPluginError> errors = obtainOrderedSetRegistry(ERRORS_KEY);
+        errors.register(error);
     }
 
     protected List<DockerPluginError> getPluginErrors() {
-        List<DockerPluginError> list = obtainListFromPluginContext(ERRORS_KEY);
-        return Collections.unmodifiableList(list);
+        OrderedSetRegistry<DockerPluginError> errors = obtainOrderedSetRegistry(ERRORS_KEY);
+        return errors.values();
     }
 
     protected void enqueueForPushing(final String imageId, final ImageBuildConfiguration imageConfig) throws MojoFailureException {
@@ -183,16 +350,63 @@ public abstract class AbstractDockerMojo extends AbstractMojo {
     protected void enqueueForPushing(final String imageId, final Optional<String> nameAndTag) {
         getLog().info(String.format("Enqueuing image '%s' to be pushed with tag '%s'..", imageId, nameAndTag.or("<none>")));
 
-        List<PushableImage> images = obtainListFromPluginContext(PUSHABLE_IMAGES_KEY);
-        PushableImage newImage = new PushableImage(imageId, nameAndTag);
-        if (!images.contains(newImage)) {
-            images.add(newImage);
+        OrderedSetRegistry<PushableImage> images = obtainOrderedSetRegistry(PUSHABLE_IMAGES_KEY);
+        images.register(new PushableImage(imageId, nameAndTag));
+
+        if (asyncPush && nameAndTag.isPresent()) {
+            submitPush(nameAndTag.get());
         }
     }
 
+    /**
+     * Starts pushing an image in the background, unless it's already being pushed.
+     *
+     * @param nameAndTag the name and tag of the image to push
+     */
+    protected void submitPush(String nameAndTag) {
+        getPushQueue().submit(nameAndTag, getDockerProvider(), pushRetries, getLog(), getBackgroundTasks());
+    }
+
+    /**
+     * @return the queue of images that are pushed in the background, its state is kept in the build directory
+     */
+    protected PushQueue getPushQueue() {
+        PushQueue queue = obtainFromPluginContext(PUSH_QUEUE_KEY, PushQueue.class);
+        if (buildDirectory != null) {
+            queue.useStateFile(new File(buildDirectory, PushQueue.STATE_FILE_NAME));
+        }
+        return queue;
+    }
+
     protected List<PushableImage> getImagesToPush() {
-        List<PushableImage> list = obtainListFromPluginContext(PUSHABLE_IMAGES_KEY);
-        return Collections.unmodifiableList(list);
+        OrderedSetRegistry<PushableImage> images = obtainOrderedSetRegistry(PUSHABLE_IMAGES_KEY);
+        return images.values();
+    }
+
+    /**
+     * Removes an image that the plugin listed on the docker host. The daemon refuses to remove an image with more than
+     * one tag by its id, so an image with tags is removed by removing each of its tags; removing the last one removes
+     * the image itself.
+     *
+     * @param provider the provider of the docker host of the image
+     * @param image    the image to remove
+     */
+    protected static void removeImageAndTags(DockerProvider provider, ImageSummary image) {
+        List<String> tags = new ArrayList<>();
+        if (image.getRepoTags() != null) {
+            for (String repoTag : image.getRepoTags()) {
+                if (!NO_TAG.equals(repoTag)) {
+                    tags.add(repoTag);
+                }
+            }
+        }
+        if (tags.isEmpty()) {
+            provider.removeImage(image.getId());
+            return;
+        }
+        for (String tag : tags) {
+            provider.removeImage(tag);
+        }
     }
 
     protected void attachTag(String imageId, String nameAndTag) throws MojoFailureException {
@@ -223,26 +437,38 @@ public abstract class AbstractDockerMojo extends AbstractMojo {
     }
 
     @SuppressWarnings("unchecked")
-    private <T> List<T> obtainListFromPluginContext(String name) {
-        Object obj = getPluginContext().get(name);
-        if (obj == null) {
-            ArrayList<T> list = new ArrayList<>();
-            getPluginContext().put(name, list);
-            return list;
-        } else {
-            return (List<T>) obj;
-        }
+    private <T> KeyedRegistry<T> obtainKeyedRegistry(String name) {
+        return obtainFromPluginContext(name, KeyedRegistry.class);
     }
 
     @SuppressWarnings("unchecked")
-    private <T> Map<String, T> obtainMapFromPluginContext(String name) {
-        Object obj = getPluginContext().get(name);
-        if (obj == null) {
-            Map<String, T> map = new HashMap<>();
-            getPluginContext().put(name, map);
-            return map;
-        } else {
-            return (Map<String, T>) obj;
+    private <T> OrderedSetRegistry<T> obtainOrderedSetRegistry(String name) {
+        return obtainFromPluginContext(name, OrderedSetRegistry.class);
+    }
+
+    /**
+     * Returns the object stored in the plugin context under the passed name, creating it when it's not there yet. The
+     * plugin context is shared by all executions of the plugin in a project, which can run in parallel.
+     *
+     * @param name the key in the plugin context
+     * @param type the type of the object, needs a public no-arg constructor
+     * @param <T>  the type of the object
+     * @return the object in the plugin context
+     */
+    @SuppressWarnings("unchecked")
+    protected <T> T obtainFromPluginContext(String name, Class<T> type) {
+        Map<String, Object> pluginContext = getPluginContext();
+        synchronized (pluginContext) {
+            Object obj = pluginContext.get(name);
+            if (obj == null) {
+                try {
+                    obj = type.getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException e) {
+                    throw new IllegalStateException("Can't create plugin context object " + name, e);
+                }
+                pluginContext.put(name, obj);
+            }
+            return type.cast(obj);
         }
     }
 }
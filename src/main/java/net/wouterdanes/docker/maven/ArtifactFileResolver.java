@@ -0,0 +1,79 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.maven;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.artifact.DefaultArtifact;
+import org.eclipse.aether.repository.RemoteRepository;
+import org.eclipse.aether.resolution.ArtifactRequest;
+import org.eclipse.aether.resolution.ArtifactResolutionException;
+
+import net.wouterdanes.docker.provider.model.ContextArtifactConfiguration;
+import net.wouterdanes.docker.provider.model.ImageArchiveConfiguration;
+
+/**
+ * This class is responsible for finding the files of artifacts that the plugin reads, like image archives and the
+ * artifacts in build contexts. Artifacts are resolved from the local repository or the remote repositories of the
+ * project.
+ */
+class ArtifactFileResolver {
+
+    private final RepositorySystem repositorySystem;
+    private final RepositorySystemSession repositorySession;
+    private final List<RemoteRepository> remoteRepositories;
+
+    ArtifactFileResolver(final RepositorySystem repositorySystem, final RepositorySystemSession repositorySession,
+                         final List<RemoteRepository> remoteRepositories) {
+        this.repositorySystem = repositorySystem;
+        this.repositorySession = repositorySession;
+        this.remoteRepositories = remoteRepositories;
+    }
+
+    File resolve(ImageArchiveConfiguration archive) throws MojoExecutionException {
+        if (!archive.isArtifact()) {
+            return archive.getFile();
+        }
+        try {
+            return resolve(archive.getGroupId(), archive.getArtifactId(), archive.getClassifier(), archive.getType(),
+                    archive.getVersion());
+        } catch (ArtifactResolutionException e) {
+            throw new MojoExecutionException(String.format("Can't resolve image archive '%s'", archive), e);
+        }
+    }
+
+    File resolve(ContextArtifactConfiguration artifact) throws MojoExecutionException {
+        try {
+            return resolve(artifact.getGroupId(), artifact.getArtifactId(), artifact.getClassifier(),
+                    artifact.getType(), artifact.getVersion());
+        } catch (ArtifactResolutionException e) {
+            throw new MojoExecutionException(String.format("Can't resolve context artifact '%s'", artifact), e);
+        }
+    }
+
+    private File resolve(String groupId, String artifactId, String classifier, String type, String version)
+            throws ArtifactResolutionException {
+        DefaultArtifact artifact = new DefaultArtifact(groupId, artifactId, classifier, type, version);
+        ArtifactRequest request = new ArtifactRequest(artifact, remoteRepositories, null);
+        return repositorySystem.resolveArtifact(repositorySession, request).getArtifact().getFile();
+    }
+}
@@ -0,0 +1,217 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.InstantiationStrategy;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+
+import net.wouterdanes.docker.provider.DockerProvider;
+import net.wouterdanes.docker.provider.model.ImageAssemblyConfiguration;
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
+import net.wouterdanes.docker.remoteapi.exception.ImageNotFoundException;
+import net.wouterdanes.docker.remoteapi.model.ImageInspectionResult;
+
+/**
+ * This class is responsible for assembling Java images on top of a base image without a Dockerfile. The runtime
+ * dependencies, the resources and the classes of the project each get their own reproducible layer, so only the
+ * layers that changed are new to the daemon and the registry. The image is written as an archive and streamed to the
+ * daemon. The goal is called "assemble-images" and runs by default during the package phase.
+ */
+@Mojo(name = "assemble-images", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true,
+        instantiationStrategy = InstantiationStrategy.PER_LOOKUP,
+        requiresDependencyResolution = ResolutionScope.RUNTIME)
+public class AssembleImageMojo extends AbstractPreVerifyDockerMojo {
+
+    /**
+     * The directory in the build directory that images are assembled in.
+     */
+    public static final String ASSEMBLY_DIRECTORY = "docker-assembly";
+
+    @Parameter(required = true)
+    private List<ImageAssemblyConfiguration> images;
+
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+
+    @Parameter(defaultValue = "${project.build.outputDirectory}", readonly = true)
+    private File classesDirectory;
+
+    public void setImages(final List<ImageAssemblyConfiguration> images) {
+        this.images = images;
+    }
+
+    public void setProject(final MavenProject project) {
+        this.project = project;
+    }
+
+    public void setClassesDirectory(final File classesDirectory) {
+        this.classesDirectory = classesDirectory;
+    }
+
+    @Override
+    protected void doExecute() throws MojoExecutionException, MojoFailureException {
+        Set<String> ids = new HashSet<>(images.size());
+        for (ImageAssemblyConfiguration image : images) {
+            if (!image.isValid()) {
+                throw new MojoExecutionException(String.format("Image '%s' not valid, it needs an id, a nameAndTag "
+                        + "and a baseImage", image.getId()));
+            }
+            if (!ids.add(image.getId())) {
+                throw new MojoExecutionException(String.format("Image ID '%s' used twice, Image IDs must be unique!",
+                        image.getId()));
+            }
+        }
+        for (ImageAssemblyConfiguration image : images) {
+            try {
+                assembleImage(image);
+            } catch (DockerException e) {
+                handleDockerException(String.format("Cannot assemble image '%s'", image.getId()), e);
+            }
+        }
+    }
+
+    private void assembleImage(final ImageAssemblyConfiguration image) throws MojoExecutionException,
+            MojoFailureException {
+        getLog().info(String.format("Assembling image '%s' on top of '%s'..", image.getId(), image.getBaseImage()));
+        DockerProvider provider = getDockerProvider();
+        ImageInspectionResult baseImage = inspectOrPull(provider, image.getBaseImage());
+        if (baseImage.getRootFs() == null || baseImage.getRootFs().getLayers() == null) {
+            throw new DockerException(String.format("The daemon doesn't report the layers of base image '%s', API "
+                    + "v1.23 is needed to assemble images", image.getBaseImage()));
+        }
+
+        File workDirectory = new File(new File(getBuildDirectory(), ASSEMBLY_DIRECTORY), image.getId());
+        String appRoot = image.getAppRoot();
+        File archive = new File(workDirectory, "image.tar");
+        String imageId;
+        try {
+            ImageAssembler assembler = new ImageAssembler(workDirectory, baseImage);
+            // ordered from least to most likely to change, so a change only invalidates the layers above it
+            assembler.addLayer("dependencies", getDependencies(appRoot + "/libs", false));
+            assembler.addLayer("snapshot-dependencies", getDependencies(appRoot + "/libs", true));
+            assembler.addLayer("resources", getOutputFiles(appRoot + "/classes", false));
+            assembler.addLayer("classes", getOutputFiles(appRoot + "/classes", true));
+            imageId = assembler.writeArchive(archive, image.getNameAndTag(), getConfigChanges(image, baseImage));
+        } catch (IOException e) {
+            throw new MojoExecutionException(String.format("Can't write the archive of image '%s'", image.getId()),
+                    e);
+        }
+
+        provider.loadImage(archive);
+        getLog().info(String.format("Image '%s' has Id '%s'", image.getId(), imageId));
+        registerBuiltImage(imageId, image.toBuildConfiguration());
+    }
+
+    private ImageInspectionResult inspectOrPull(final DockerProvider provider, final String image) {
+        try {
+            return provider.inspectImage(image);
+        } catch (ImageNotFoundException e) {
+            getLog().info(String.format("Pulling image %s...", image));
+            provider.pullImage(image);
+            return provider.inspectImage(image);
+        }
+    }
+
+    private Map<String, Object> getConfigChanges(final ImageAssemblyConfiguration image,
+                                                 final ImageInspectionResult baseImage) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        changes.put("WorkingDir", image.getAppRoot());
+
+        List<String> entrypoint = image.getEntrypoint();
+        if (entrypoint == null && image.getMainClass() != null) {
+            String classpath = image.getAppRoot() + "/classes:" + image.getAppRoot() + "/libs/*";
+            entrypoint = Arrays.asList("java", "-cp", classpath, image.getMainClass());
+        }
+        if (entrypoint != null) {
+            changes.put("Entrypoint", entrypoint);
+            // like an ENTRYPOINT instruction in a Dockerfile, a new entrypoint resets the command of the base image
+            changes.put("Cmd", null);
+        }
+
+        Map<String, Object> labels = new TreeMap<>();
+        Object baseLabels = baseImage.getConfig() != null ? baseImage.getConfig().get("Labels") : null;
+        if (baseLabels instanceof Map) {
+            for (Map.Entry<?, ?> label : ((Map<?, ?>) baseLabels).entrySet()) {
+                labels.put(String.valueOf(label.getKey()), label.getValue());
+            }
+        }
+        labels.putAll(withImageLabels(image.getLabels(), image.isKeep() || image.isPush()));
+        changes.put("Labels", labels);
+        return changes;
+    }
+
+    private Map<String, File> getDependencies(final String directory, final boolean snapshots) {
+        Map<String, File> files = new TreeMap<>();
+        if (project == null) {
+            return files;
+        }
+        for (Artifact artifact : project.getArtifacts()) {
+            File file = artifact.getFile();
+            if (artifact.isSnapshot() == snapshots && file != null && file.isFile()) {
+                files.put(directory + "/" + artifact.getGroupId() + "-" + file.getName(), file);
+            }
+        }
+        return files;
+    }
+
+    private Map<String, File> getOutputFiles(final String directory, final boolean classes) throws IOException {
+        final Map<String, File> files = new TreeMap<>();
+        if (classesDirectory == null || !classesDirectory.isDirectory()) {
+            return files;
+        }
+        final Path root = classesDirectory.toPath();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) {
+                if (file.getFileName().toString().endsWith(".class") == classes) {
+                    String relativePath = root.relativize(file).toString().replace(File.separatorChar, '/');
+                    files.put(directory + "/" + relativePath, file.toFile());
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return files;
+    }
+
+    @Override
+    protected String getMojoGoalName() {
+        return "assemble-images";
+    }
+}
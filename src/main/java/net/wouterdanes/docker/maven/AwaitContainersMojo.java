@@ -0,0 +1,61 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.maven;
+
+import java.util.Map;
+import java.util.Properties;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.InstantiationStrategy;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+
+/**
+ * This class is responsible for waiting for containers that are started in the background by the "start-containers"
+ * goal with <code>async</code> set. Once they're ready, their ports are exposed to the project as properties. The goal
+ * is called "await-containers" and it runs in the pre-integration-test phase by default.
+ */
+@Mojo(defaultPhase = LifecyclePhase.PRE_INTEGRATION_TEST, name = "await-containers",
+        threadSafe = true, instantiationStrategy = InstantiationStrategy.PER_LOOKUP)
+public class AwaitContainersMojo extends AbstractPreVerifyDockerMojo {
+
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+
+    public void setProject(final MavenProject project) {
+        this.project = project;
+    }
+
+    @Override
+    protected void doExecute() throws MojoExecutionException, MojoFailureException {
+        getLog().info("Waiting for containers that are started in the background..");
+        Properties properties = awaitPendingContainerStarts();
+        for (Map.Entry<Object, Object> property : properties.entrySet()) {
+            getLog().info(String.format("Setting property '%s' to '%s'", property.getKey(), property.getValue()));
+            project.getProperties().put(property.getKey(), property.getValue());
+        }
+    }
+
+    @Override
+    protected String getMojoGoalName() {
+        return "await-containers";
+    }
+}
@@ -0,0 +1,121 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.maven;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import com.google.common.io.BaseEncoding;
+
+import net.wouterdanes.docker.provider.BuildContextArchive;
+import net.wouterdanes.docker.provider.model.ImageBuildConfiguration;
+
+/**
+ * This class is responsible for spooling build contexts to disk, so a context is archived once and sent from the file
+ * for every build attempt and every daemon. Spools are named after the digest of their archive, a reproducible context
+ * that didn't change reuses the spool of an earlier build. Only the most recently used spools are kept.
+ */
+class BuildContextSpool {
+
+    /**
+     * The directory in the build directory that contexts are spooled to.
+     */
+    static final String SPOOL_DIRECTORY = "docker-contexts";
+
+    private static final String SPOOL_EXTENSION = ".tar.gz";
+
+    private final File directory;
+    private final int maxSpools;
+
+    BuildContextSpool(final File directory, final int maxSpools) {
+        this.directory = directory;
+        this.maxSpools = maxSpools;
+    }
+
+    /**
+     * Writes the build context of an image to the spool directory.
+     *
+     * @param image the image to spool the context of
+     * @return the spooled archive
+     * @throws IOException when the context can't be written
+     */
+    File spool(ImageBuildConfiguration image) throws IOException {
+        Files.createDirectories(directory.toPath());
+        File tempFile = File.createTempFile("context-", ".tmp", directory);
+        MessageDigest digest = newDigest();
+        try {
+            try (OutputStream output = new DigestOutputStream(Files.newOutputStream(tempFile.toPath()), digest)) {
+                BuildContextArchive.write(image, output);
+            }
+            File spool = new File(directory, BaseEncoding.base16().lowerCase().encode(digest.digest())
+                    + SPOOL_EXTENSION);
+            if (spool.isFile()) {
+                // mark the existing spool as recently used
+                if (!spool.setLastModified(System.currentTimeMillis())) {
+                    throw new IOException("Can't mark spooled context " + spool + " as used");
+                }
+            } else {
+                Files.move(tempFile.toPath(), spool.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+            removeLeastRecentlyUsed(spool);
+            return spool;
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    private void removeLeastRecentlyUsed(File justUsed) throws IOException {
+        File[] spools = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(final File file) {
+                return file.isFile() && file.getName().endsWith(SPOOL_EXTENSION);
+            }
+        });
+        if (spools == null || spools.length <= maxSpools) {
+            return;
+        }
+        Arrays.sort(spools, new Comparator<File>() {
+            @Override
+            public int compare(final File first, final File second) {
+                return Long.compare(second.lastModified(), first.lastModified());
+            }
+        });
+        for (int i = maxSpools; i < spools.length; i++) {
+            if (!spools[i].equals(justUsed)) {
+                Files.deleteIfExists(spools[i].toPath());
+            }
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
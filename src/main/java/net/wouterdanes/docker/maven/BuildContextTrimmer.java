@@ -0,0 +1,164 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import com.google.common.base.Optional;
+
+/**
+ * This class is responsible for trimming the files of a build context to the ones the Dockerfile uses. It reads the
+ * sources of the ADD and COPY instructions, wildcards included, and keeps the Dockerfile and the files that match
+ * them. A source that matches none of the files or other context entries is reported before anything is sent to the
+ * daemon. Sources with variables, like <code>${JAR_FILE}</code>, are only known to the daemon, so a Dockerfile that
+ * uses them keeps its whole context.
+ */
+final class BuildContextTrimmer {
+
+    private BuildContextTrimmer() {
+    }
+
+    /**
+     * Trims the files of a build context.
+     *
+     * @param files       the files of the context, one of them is the Dockerfile
+     * @param entryPaths  the paths of the other entries of the context, like artifacts, these are always kept
+     * @return the files the Dockerfile uses, in their original order
+     * @throws IOException              when the Dockerfile can't be read
+     * @throws IllegalArgumentException when a source of an ADD or COPY instruction doesn't match any of the files or
+     *                                  entries, or when the JSON form of an instruction can't be parsed
+     */
+    static List<File> trim(List<File> files, Collection<String> entryPaths) throws IOException {
+        Optional<File> dockerfile = Dockerfile.find(files);
+        if (!dockerfile.isPresent()) {
+            return files;
+        }
+
+        Map<String, Pattern> sources = new LinkedHashMap<>();
+        for (String source : Dockerfile.read(dockerfile.get()).getSources()) {
+            String name = normalize(source);
+            if (name.isEmpty() || name.equals(".") || name.contains("$")) {
+                // the whole context is used, or the files it uses depend on build arguments
+                return files;
+            }
+            sources.put(source, toPattern(name));
+        }
+
+        List<File> trimmed = new ArrayList<>(files.size());
+        List<String> unmatched = new ArrayList<>(sources.keySet());
+        for (String entryPath : entryPaths) {
+            for (Map.Entry<String, Pattern> source : sources.entrySet()) {
+                if (source.getValue().matcher(entryPath).matches()) {
+                    unmatched.remove(source.getKey());
+                }
+            }
+        }
+        for (File file : files) {
+            boolean used = file.equals(dockerfile.get());
+            for (Map.Entry<String, Pattern> source : sources.entrySet()) {
+                if (source.getValue().matcher(file.getName()).matches()) {
+                    used = true;
+                    unmatched.remove(source.getKey());
+                }
+            }
+            if (used) {
+                trimmed.add(file);
+            }
+        }
+        if (!unmatched.isEmpty()) {
+            throw new IllegalArgumentException(String.format("ADD or COPY sources %s don't match any of the files %s",
+                    unmatched, files));
+        }
+        return trimmed;
+    }
+
+    private static String normalize(String source) {
+        String name = source;
+        while (name.startsWith("./")) {
+            name = name.substring(2);
+        }
+        while (name.startsWith("/")) {
+            name = name.substring(1);
+        }
+        while (name.endsWith("/") && name.length() > 1) {
+            name = name.substring(0, name.length() - 1);
+        }
+        return name;
+    }
+
+    /**
+     * Converts a source to a regular expression, following the wildcards of Go's <code>filepath.Match</code> that
+     * docker uses: <code>*</code>, <code>?</code> and character classes like <code>[a-z]</code> and
+     * <code>[^0-9]</code>.
+     */
+    private static Pattern toPattern(String source) {
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < source.length(); i++) {
+            char c = source.charAt(i);
+            switch (c) {
+                case '*':
+                    regex.append("[^/]*");
+                    break;
+                case '?':
+                    regex.append("[^/]");
+                    break;
+                case '[':
+                    int end = source.indexOf(']', i + 1);
+                    if (end < 0) {
+                        regex.append("\\[");
+                        break;
+                    }
+                    String characters = source.substring(i + 1, end);
+                    if (characters.startsWith("!")) {
+                        characters = "^" + characters.substring(1);
+                    }
+                    regex.append('[').append(characters).append(']');
+                    i = end;
+                    break;
+                case '\\':
+                    if (i + 1 < source.length()) {
+                        regex.append(Pattern.quote(String.valueOf(source.charAt(++i))));
+                    }
+                    break;
+                default:
+                    regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        // a source that names a directory matches everything in it
+        return Pattern.compile(regex.append("(/.*)?").toString());
+    }
+
+    /**
+     * @param files the files
+     * @return the total size of the files in bytes
+     */
+    static long sizeOf(List<File> files) {
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        return size;
+    }
+}
@@ -17,35 +17,148 @@
 
 package net.wouterdanes.docker.maven;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
+import com.google.common.base.Optional;
+import com.google.common.base.Throwables;
+import com.google.common.util.concurrent.SettableFuture;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.resolver.filter.ScopeArtifactFilter;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.InstantiationStrategy;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
 
+import net.wouterdanes.docker.provider.DockerProvider;
+import net.wouterdanes.docker.provider.model.BuiltImageInfo;
+import net.wouterdanes.docker.provider.model.ContextArtifactConfiguration;
+import net.wouterdanes.docker.provider.model.DependencySetConfiguration;
+import net.wouterdanes.docker.provider.model.ImageArchiveConfiguration;
 import net.wouterdanes.docker.provider.model.ImageBuildConfiguration;
+import net.wouterdanes.docker.provider.model.ImageVariantConfiguration;
 import net.wouterdanes.docker.remoteapi.exception.DockerException;
+import net.wouterdanes.docker.remoteapi.exception.ImageNotFoundException;
+import net.wouterdanes.docker.remoteapi.model.ImageHistoryEntry;
 
 /**
  * This class is responsible for building docker images specified in the POM file. It runs by default during the
  * package phase of a maven project.
  */
 @Mojo(name = "build-images", defaultPhase = LifecyclePhase.PACKAGE, threadSafe = true,
-        instantiationStrategy = InstantiationStrategy.PER_LOOKUP)
+        instantiationStrategy = InstantiationStrategy.PER_LOOKUP,
+        requiresDependencyResolution = ResolutionScope.TEST)
 public class BuildImageMojo extends AbstractPreVerifyDockerMojo {
 
+    private static final long RETRY_DELAY_MILLIS = 2000;
+
     @Parameter(required = true)
     private List<ImageBuildConfiguration> images;
 
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+
+    /**
+     * Build the images in the background and return immediately. Goals that need one of the images, like
+     * "start-containers" and "tag-images", wait for it.
+     */
+    @Parameter(defaultValue = "false", property = "docker.buildImages.async")
+    private boolean async;
+
+    /**
+     * Write the build context of every image to <code>target/docker-contexts</code> once and send it from there for
+     * every build attempt and every daemon, instead of archiving it in memory each time.
+     */
+    @Parameter(defaultValue = "false", property = "docker.buildImages.spoolContext")
+    private boolean spoolContext;
+
+    /**
+     * The number of spooled build contexts to keep, the least recently used ones are removed.
+     */
+    @Parameter(defaultValue = "10", property = "docker.buildImages.maxSpooledContexts")
+    private int maxSpooledContexts;
+
+    /**
+     * The number of times a failing build is retried.
+     */
+    @Parameter(defaultValue = "0", property = "docker.buildImages.retries")
+    private int buildRetries;
+
+    /**
+     * Pull the base images of the Dockerfiles that aren't present yet before building, several at the same time.
+     */
+    @Parameter(defaultValue = "true", property = "docker.buildImages.prePull")
+    private boolean prePull;
+
+    /**
+     * The number of base images to pull at the same time.
+     */
+    @Parameter(defaultValue = "4", property = "docker.buildImages.pullParallelism")
+    private int pullParallelism;
+
+    @Component
+    private RepositorySystem repositorySystem;
+
+    private BuildReport buildReport;
+
+    @Parameter(defaultValue = "${repositorySystemSession}", readonly = true)
+    private RepositorySystemSession repositorySession;
+
+    @Parameter(defaultValue = "${project.remoteProjectRepositories}", readonly = true)
+    private List<RemoteRepository> remoteRepositories;
+
     public void setImages(final List<ImageBuildConfiguration> images) {
         this.images = images;
     }
 
+    public void setProject(final MavenProject project) {
+        this.project = project;
+    }
+
+    public void setAsync(final boolean async) {
+        this.async = async;
+    }
+
+    public void setSpoolContext(final boolean spoolContext) {
+        this.spoolContext = spoolContext;
+    }
+
+    public void setMaxSpooledContexts(final int maxSpooledContexts) {
+        this.maxSpooledContexts = maxSpooledContexts;
+    }
+
+    public void setBuildRetries(final int buildRetries) {
+        this.buildRetries = buildRetries;
+    }
+
+    public void setPrePull(final boolean prePull) {
+        this.prePull = prePull;
+    }
+
+    public void setPullParallelism(final int pullParallelism) {
+        this.pullParallelism = pullParallelism;
+    }
+
     @Override
     protected void doExecute() throws MojoExecutionException, MojoFailureException {
         if (images == null || images.isEmpty()) {
@@ -54,20 +167,329 @@ public class BuildImageMojo extends AbstractPreVerifyDockerMojo {
         }
 
         validateAllImages();
+        final Set<String> baseImages = prePull ? getBaseImages() : new HashSet<String>();
 
+        final Map<ImageBuildConfiguration, List<ImageBuildConfiguration>> builds = new LinkedHashMap<>();
         for (ImageBuildConfiguration image : images) {
+            builds.put(image, getVariants(image));
+        }
+        buildReport = new BuildReport(getBuildDirectory());
+        try {
+            buildReport.readPreviousReport();
+        } catch (IOException e) {
+            getLog().warn(String.format("Can't read the build report of the previous build: %s", e.getMessage()));
+        }
+
+        if (!async) {
+            pullBaseImages(baseImages);
+            for (Map.Entry<ImageBuildConfiguration, List<ImageBuildConfiguration>> build : builds.entrySet()) {
+                buildVariants(build.getKey(), build.getValue(), new ConcurrentTasks.Task<ImageBuildConfiguration>() {
+                    @Override
+                    public void run(final ImageBuildConfiguration image) throws MojoFailureException {
+                        buildImage(image);
+                    }
+                });
+            }
+            writeBuildReport();
+            return;
+        }
+
+        // images are built one after the other, so an image can be based on an image that was configured before it
+        final Map<ImageBuildConfiguration, SettableFuture<BuiltImageInfo>> pendingImages = new LinkedHashMap<>();
+        for (List<ImageBuildConfiguration> variants : builds.values()) {
+            for (ImageBuildConfiguration image : variants) {
+                SettableFuture<BuiltImageInfo> pendingImage = SettableFuture.create();
+                pendingImages.put(image, pendingImage);
+                registerPendingImage(image.getId(), pendingImage);
+            }
+        }
+        getLog().info("Building images in the background..");
+        getBackgroundTasks().submit(new Callable<Void>() {
+            @Override
+            public Void call() throws MojoFailureException {
+                Throwable failure = null;
+                try {
+                    pullBaseImages(baseImages);
+                    ConcurrentTasks.Task<ImageBuildConfiguration> task;
+                    task = new ConcurrentTasks.Task<ImageBuildConfiguration>() {
+                        @Override
+                        public void run(final ImageBuildConfiguration image) {
+                            pendingImages.get(image).set(buildImageInBackground(image));
+                        }
+                    };
+                    for (Map.Entry<ImageBuildConfiguration, List<ImageBuildConfiguration>> build
+                            : builds.entrySet()) {
+                        buildVariants(build.getKey(), build.getValue(), task);
+                    }
+                    writeBuildReport();
+                    return null;
+                } catch (MojoFailureException | RuntimeException | Error e) {
+                    failure = e;
+                    String message = "Failed to build images in the background: " + e.getMessage();
+                    getLog().error(message, e);
+                    registerPluginError(new DockerPluginError(getMojoGoalName(), message));
+                    throw e;
+                } finally {
+                    // goals that wait for the images would wait forever for images that are never built
+                    for (SettableFuture<BuiltImageInfo> pendingImage : pendingImages.values()) {
+                        if (!pendingImage.isDone()) {
+                            pendingImage.setException(failure != null ? failure : new IllegalStateException(
+                                    "The background build stopped before building the image"));
+                        }
+                    }
+                }
+            }
+        });
+    }
+
+    private static List<ImageBuildConfiguration> getVariants(final ImageBuildConfiguration image) {
+        if (image.getVariants().isEmpty()) {
+            return Collections.singletonList(image);
+        }
+        List<ImageBuildConfiguration> variants = new ArrayList<>(image.getVariants().size());
+        for (ImageVariantConfiguration variant : image.getVariants()) {
+            variants.add(image.toVariant(variant));
+        }
+        return variants;
+    }
+
+    /**
+     * Builds the variants of an image at the same time, from a single build context. An image without variants is
+     * built on its own.
+     */
+    private void buildVariants(final ImageBuildConfiguration image, final List<ImageBuildConfiguration> variants,
+                               final ConcurrentTasks.Task<ImageBuildConfiguration> task) throws MojoFailureException {
+        if (!image.getVariants().isEmpty()) {
+            shareContext(image, variants);
+        }
+        Map<ImageBuildConfiguration, Throwable> failures = ConcurrentTasks.forEach(variants, variants.size(), task);
+        for (Throwable failure : failures.values()) {
+            Throwables.propagateIfInstanceOf(failure, MojoFailureException.class);
+            throw Throwables.propagate(failure);
+        }
+    }
+
+    /**
+     * Loads the layer cache of an image once and spools its build context once for all of its variants.
+     */
+    private void shareContext(final ImageBuildConfiguration image, final List<ImageBuildConfiguration> variants) {
+        seedLayerCache(image);
+        if (image.getContextArchive() == null) {
+            spool(image);
+        }
+        for (ImageBuildConfiguration variant : variants) {
+            variant.setContextArchive(image.getContextArchive());
+        }
+    }
+
+    private Optional<BuiltImageInfo> buildImage(final ImageBuildConfiguration image) throws MojoFailureException {
+        try {
+            logImageConfig(image);
+            image.setLabels(withImageLabels(image.getLabels(), image.isKeep() || image.isPush()));
+            seedLayerCache(image);
+            spoolContext(image);
+            String imageId = createImage(image);
+            getLog().info(String.format("Image '%s' has Id '%s'", image.getId(), imageId));
+            registerBuiltImage(imageId, image);
+            reportImage(image, imageId);
+            refreshLayerCache(image, imageId);
+            return Optional.of(new BuiltImageInfo(imageId, image));
+        } catch (DockerException e) {
+            String errorMessage = String.format("Cannot build image '%s'", image.getId());
+            handleDockerException(errorMessage, e);
+            return Optional.absent();
+        }
+    }
+
+    private String createImage(final ImageBuildConfiguration image) {
+        for (int attempt = 0; ; attempt++) {
             try {
-                logImageConfig(image);
-                String imageId = getDockerProvider().buildImage(image);
-                getLog().info(String.format("Image '%s' has Id '%s'", image.getId(), imageId));
-                registerBuiltImage(imageId, image);
+                return image.getRootfs() != null
+                        ? getDockerProvider().importImage(image)
+                        : getDockerProvider().buildImage(image);
             } catch (DockerException e) {
-                String errorMessage = String.format("Cannot build image '%s'", image.getId());
-                handleDockerException(errorMessage, e);
+                if (attempt >= buildRetries) {
+                    throw e;
+                }
+                getLog().warn(String.format("Building image '%s' failed, retrying (%s/%s): %s", image.getId(),
+                        attempt + 1, buildRetries, e.getMessage()));
+            }
+            try {
+                Thread.sleep(RETRY_DELAY_MILLIS * (attempt + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DockerException("Interrupted while building image " + image.getId(), e);
             }
         }
     }
 
+    private void spoolContext(final ImageBuildConfiguration image) {
+        if (spoolContext && image.getRootfs() == null && image.getContextArchive() == null) {
+            spool(image);
+        }
+    }
+
+    private void spool(final ImageBuildConfiguration image) {
+        File directory = new File(getBuildDirectory(), BuildContextSpool.SPOOL_DIRECTORY);
+        try {
+            image.setContextArchive(new BuildContextSpool(directory, maxSpooledContexts).spool(image));
+            getLog().debug(String.format("Spooled build context of image '%s' to %s", image.getId(),
+                    image.getContextArchive()));
+        } catch (IOException e) {
+            getLog().warn(String.format("Can't spool build context of image '%s', sending it from memory: %s",
+                    image.getId(), e.getMessage()));
+        }
+    }
+
+    /**
+     * Loads the cache archive of an image, so the daemon can reuse the layers of unchanged build steps. A missing or
+     * broken cache only makes the build slower, so failures are logged and ignored.
+     */
+    private void seedLayerCache(final ImageBuildConfiguration image) {
+        ImageArchiveConfiguration cache = image.getCache();
+        if (cache == null) {
+            return;
+        }
+        try {
+            File archive = new ArtifactFileResolver(repositorySystem, repositorySession, remoteRepositories)
+                    .resolve(cache);
+            if (archive == null || !archive.isFile()) {
+                getLog().info(String.format("No layer cache for image '%s' yet", image.getId()));
+                return;
+            }
+            getLog().info(String.format("Seeding layer cache of image '%s' from %s", image.getId(), archive));
+            getDockerProvider().loadImage(archive);
+        } catch (MojoExecutionException | DockerException e) {
+            getLog().warn(String.format("Can't seed layer cache of image '%s', building without it: %s",
+                    image.getId(), e.getMessage()));
+        }
+    }
+
+    /**
+     * Saves a freshly built image over its cache file, through a temporary file so a failed save leaves the previous
+     * cache intact. Cache artifacts are refreshed by the "save-images" goal when the project is installed or deployed.
+     */
+    private void refreshLayerCache(final ImageBuildConfiguration image, final String imageId) {
+        ImageArchiveConfiguration cache = image.getCache();
+        if (cache == null || cache.getFile() == null) {
+            return;
+        }
+        File archive = cache.getFile().getAbsoluteFile();
+        File tempFile = new File(archive.getParentFile(), archive.getName() + ".tmp");
+        try {
+            Files.createDirectories(archive.getParentFile().toPath());
+            // save it by name, the daemon only uses loaded layers for builds that name the image as a cache source
+            getDockerProvider().saveImage(Optional.fromNullable(image.getNameAndTag()).or(imageId), tempFile);
+            Files.move(tempFile.toPath(), archive.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            getLog().info(String.format("Refreshed layer cache of image '%s' in %s", image.getId(), archive));
+        } catch (IOException | DockerException e) {
+            getLog().warn(String.format("Can't refresh layer cache of image '%s': %s", image.getId(),
+                    e.getMessage()));
+        }
+    }
+
+    private BuiltImageInfo buildImageInBackground(final ImageBuildConfiguration image) {
+        try {
+            return buildImage(image).orNull();
+        } catch (MojoFailureException | RuntimeException e) {
+            String message = String.format("Cannot build image '%s' in the background: %s", image.getId(),
+                    e.getMessage());
+            getLog().error(message, e);
+            registerPluginError(new DockerPluginError(getMojoGoalName(), message));
+            return null;
+        }
+    }
+
+    private Set<String> getBaseImages() {
+        Set<String> builtImages = new HashSet<>();
+        Set<String> baseImages = new LinkedHashSet<>();
+        for (ImageBuildConfiguration image : images) {
+            if (image.getNameAndTag() != null) {
+                builtImages.add(image.getNameAndTag());
+            }
+            for (ImageVariantConfiguration variant : image.getVariants()) {
+                builtImages.add(image.toVariant(variant).getNameAndTag());
+            }
+            Optional<File> dockerfile = Dockerfile.find(image.getFiles());
+            if (image.getRootfs() != null || !dockerfile.isPresent()) {
+                continue;
+            }
+            try {
+                baseImages.addAll(Dockerfile.read(dockerfile.get()).getBaseImages());
+            } catch (IOException | IllegalArgumentException e) {
+                // pulling ahead is an optimisation, the daemon reports a Dockerfile it can't build
+                getLog().warn(String.format("Can't read the base images of image '%s', they're pulled by the build: %s",
+                        image.getId(), e.getMessage()));
+            }
+        }
+        // images configured in this build are built, not pulled
+        baseImages.removeAll(builtImages);
+        return baseImages;
+    }
+
+    private void pullBaseImages(final Set<String> baseImages) {
+        if (baseImages.isEmpty()) {
+            return;
+        }
+        final DockerProvider provider = getDockerProvider();
+        Map<String, Throwable> failures = ConcurrentTasks.forEach(baseImages, pullParallelism,
+                new ConcurrentTasks.Task<String>() {
+                    @Override
+                    public void run(final String baseImage) {
+                        try {
+                            provider.inspectImage(baseImage);
+                        } catch (ImageNotFoundException e) {
+                            getLog().info(String.format("Pulling base image '%s'..", baseImage));
+                            provider.pullImage(baseImage);
+                        }
+                    }
+                });
+        // the build pulls the image itself when pulling it here failed
+        for (Map.Entry<String, Throwable> failure : failures.entrySet()) {
+            getLog().warn(String.format("Cannot pull base image '%s': %s", failure.getKey(),
+                    failure.getValue().getMessage()));
+        }
+    }
+
+    private void reportImage(final ImageBuildConfiguration image, final String imageId) {
+        List<ImageHistoryEntry> history;
+        try {
+            history = getDockerProvider().getImageHistory(imageId);
+        } catch (DockerException e) {
+            getLog().warn(String.format("Can't get the layers of image '%s': %s", image.getId(), e.getMessage()));
+            history = Collections.emptyList();
+        }
+        buildReport.add(image, imageId, history);
+
+        if (image.getMaxSizeMb() == null || history.isEmpty()) {
+            return;
+        }
+        long size = 0;
+        for (ImageHistoryEntry layer : history) {
+            size += layer.getSize();
+        }
+        long maxSize = image.getMaxSizeMb() * 1024 * 1024;
+        if (size > maxSize) {
+            String message = String.format("Image '%s' is %s, more than its budget of %s MB", image.getId(),
+                    BuildReport.toMegabytes(size), image.getMaxSizeMb());
+            getLog().error(message);
+            registerPluginError(new DockerPluginError(getMojoGoalName(), message));
+        }
+    }
+
+    private void writeBuildReport() {
+        if (buildReport.isEmpty()) {
+            return;
+        }
+        try {
+            buildReport.write();
+            buildReport.logSummary(getLog());
+        } catch (IOException e) {
+            getLog().warn(String.format("Can't write the build report: %s", e.getMessage()));
+        }
+    }
+
     private void logImageConfig(final ImageBuildConfiguration image) {
         StringBuilder builder = new StringBuilder(String.format("Building image '%s'", image.getId()));
         if (image.getNameAndTag() != null) {
@@ -80,18 +502,75 @@ public class BuildImageMojo extends AbstractPreVerifyDockerMojo {
     private void validateAllImages() throws MojoExecutionException {
         Set<String> ids = new HashSet<>(images.size());
         for (ImageBuildConfiguration image : images) {
-            if (ids.contains(image.getId())) {
-                throw new MojoExecutionException(String.format("Image ID '%s' used twice, Image IDs must be unique!",
-                        image.getId()));
+            addUniqueId(ids, image.getId());
+            for (ImageVariantConfiguration variant : image.getVariants()) {
+                if (variant.getId() == null) {
+                    throw new MojoExecutionException(String.format("A variant of image '%s' has no id",
+                            image.getId()));
+                }
+                addUniqueId(ids, image.getVariantId(variant));
             }
-            ids.add(image.getId());
             if (!image.isValid()) {
-                throw new MojoExecutionException(String.format("Image '%s' not valid, did you specify a Dockerfile?",
-                        image.getId()));
+                throw new MojoExecutionException(String.format("Image '%s' not valid, did you specify a Dockerfile "
+                        + "or a rootfs directory?", image.getId()));
+            }
+            if (image.getRootfs() == null) {
+                resolveContextEntries(image);
+            }
+            if (image.isTrimContext() && image.getRootfs() == null) {
+                trimContext(image);
             }
         }
     }
 
+    private static void addUniqueId(final Set<String> ids, final String id) throws MojoExecutionException {
+        if (!ids.add(id)) {
+            throw new MojoExecutionException(String.format("Image ID '%s' used twice, Image IDs must be unique!", id));
+        }
+    }
+
+    private void resolveContextEntries(final ImageBuildConfiguration image) throws MojoExecutionException {
+        if (image.getArtifacts().isEmpty() && image.getDependencySets().isEmpty()) {
+            return;
+        }
+        Map<String, File> entries = new LinkedHashMap<>();
+        for (DependencySetConfiguration dependencySet : image.getDependencySets()) {
+            ScopeArtifactFilter filter = new ScopeArtifactFilter(dependencySet.getScope());
+            for (Artifact artifact : project.getArtifacts()) {
+                if (filter.include(artifact) && artifact.getFile() != null) {
+                    entries.put(dependencySet.getDirectory() + "/" + artifact.getFile().getName(), artifact.getFile());
+                }
+            }
+        }
+        ArtifactFileResolver resolver = new ArtifactFileResolver(repositorySystem, repositorySession,
+                remoteRepositories);
+        for (ContextArtifactConfiguration artifact : image.getArtifacts()) {
+            File file = resolver.resolve(artifact);
+            entries.put(artifact.getPath() != null ? artifact.getPath() : file.getName(), file);
+        }
+        getLog().debug(String.format("Adding %s artifacts to the build context of image '%s'", entries.size(),
+                image.getId()));
+        image.setContextEntries(entries);
+    }
+
+    private void trimContext(final ImageBuildConfiguration image) throws MojoExecutionException {
+        List<File> files = image.getFiles();
+        List<File> trimmed;
+        try {
+            trimmed = BuildContextTrimmer.trim(files, image.getContextEntries().keySet());
+        } catch (IOException e) {
+            throw new MojoExecutionException(String.format("Can't read the Dockerfile of image '%s'", image.getId()), e);
+        } catch (IllegalArgumentException e) {
+            throw new MojoExecutionException(String.format("Image '%s' not valid: %s", image.getId(), e.getMessage()));
+        }
+        if (trimmed.size() < files.size()) {
+            getLog().info(String.format("Trimmed build context of image '%s' to %s of %s files, saving %s bytes",
+                    image.getId(), trimmed.size(), files.size(),
+                    BuildContextTrimmer.sizeOf(files) - BuildContextTrimmer.sizeOf(trimmed)));
+            image.setFiles(trimmed);
+        }
+    }
+
     @Override
     protected String getMojoGoalName() {
         return "build-images";
@@ -0,0 +1,303 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.maven.plugin.logging.Log;
+import org.codehaus.jackson.JsonNode;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import net.wouterdanes.docker.provider.model.ImageBuildConfiguration;
+import net.wouterdanes.docker.remoteapi.model.BuildStep;
+import net.wouterdanes.docker.remoteapi.model.ImageHistoryEntry;
+
+/**
+ * This class is responsible for reporting on the images that were built: how long every step took, whether it was
+ * taken from the layer cache, and how large every layer is. The report is written to
+ * <code>target/docker-build-report.json</code> and summarized in the log. The size of every image is compared to the
+ * size in the report of the previous build. Images can be built at the same time, so adding to the report is
+ * synchronized.
+ */
+final class BuildReport {
+
+    static final String REPORT_FILE = "docker-build-report.json";
+
+    private static final int SLOWEST_STEPS = 5;
+    private static final int LARGEST_LAYERS = 3;
+    private static final double MEGABYTE = 1024 * 1024;
+
+    private final File file;
+    private final Map<String, Long> previousSizes = new HashMap<>();
+    private final Map<String, ImageReport> images = new LinkedHashMap<>();
+
+    BuildReport(final File buildDirectory) {
+        this.file = new File(buildDirectory, REPORT_FILE);
+    }
+
+    /**
+     * Reads the sizes of the images from the report of the previous build, if there is one.
+     *
+     * @throws IOException when the previous report can't be read
+     */
+    synchronized void readPreviousReport() throws IOException {
+        if (!file.isFile()) {
+            return;
+        }
+        for (JsonNode image : new ObjectMapper().readTree(file).path("images")) {
+            if (image.path("size").isNumber()) {
+                previousSizes.put(image.path("id").getTextValue(), image.path("size").getLongValue());
+            }
+        }
+    }
+
+    synchronized void add(final ImageBuildConfiguration image, final String imageId,
+                          final List<ImageHistoryEntry> history) {
+        if (!image.getBuildSteps().isEmpty() || !history.isEmpty()) {
+            images.put(image.getId(), new ImageReport(image, imageId, history, previousSizes.get(image.getId())));
+        }
+    }
+
+    synchronized boolean isEmpty() {
+        return images.isEmpty();
+    }
+
+    synchronized void write() throws IOException {
+        File directory = file.getParentFile();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Can't create directory " + directory);
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("images", new ArrayList<>(images.values()));
+        new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(file, report);
+    }
+
+    /**
+     * Logs the slowest steps of all images and the first step of every image that missed the layer cache, every
+     * step after it misses the cache too. Then logs the size of every image, its growth since the previous build and
+     * its largest layers.
+     */
+    synchronized void logSummary(final Log log) {
+        List<Map.Entry<String, BuildStep>> steps = new ArrayList<>();
+        for (ImageReport image : images.values()) {
+            for (BuildStep step : image.getSteps()) {
+                steps.add(new AbstractMap.SimpleImmutableEntry<>(image.getId(), step));
+            }
+        }
+        Collections.sort(steps, new Comparator<Map.Entry<String, BuildStep>>() {
+            @Override
+            public int compare(final Map.Entry<String, BuildStep> first, final Map.Entry<String, BuildStep> second) {
+                return Long.compare(second.getValue().getDurationMillis(), first.getValue().getDurationMillis());
+            }
+        });
+        log.info(String.format("Build report written to %s", file));
+        if (!steps.isEmpty()) {
+            log.info("Slowest build steps:");
+        }
+        for (Map.Entry<String, BuildStep> step : steps.subList(0, Math.min(SLOWEST_STEPS, steps.size()))) {
+            log.info(String.format("  %6.1fs  %s  %s%s", step.getValue().getDurationMillis() / 1000.0, step.getKey(),
+                    step.getValue(), step.getValue().isCached() ? " (cached)" : ""));
+        }
+        for (ImageReport image : images.values()) {
+            BuildStep firstMiss = image.getFirstCacheMiss();
+            if (firstMiss != null) {
+                log.info(String.format("Image '%s' missed the layer cache from %s, %s of %s steps weren't cached",
+                        image.getId(), firstMiss, image.getUncachedSteps(), image.getSteps().size()));
+            }
+        }
+        for (ImageReport image : images.values()) {
+            if (image.getLayers().isEmpty()) {
+                continue;
+            }
+            StringBuilder message = new StringBuilder(String.format("Image '%s' is %s", image.getId(),
+                    toMegabytes(image.getSize())));
+            if (image.getSizeDelta() != null) {
+                message.append(String.format(", %s%s since the previous build", image.getSizeDelta() >= 0 ? "+" : "",
+                        toMegabytes(image.getSizeDelta())));
+            }
+            log.info(message.append(", largest layers:").toString());
+            for (LayerReport layer : image.getLargestLayers(LARGEST_LAYERS)) {
+                log.info(String.format("  %10s  %s", toMegabytes(layer.getSize()), layer.getInstruction()));
+            }
+        }
+    }
+
+    static String toMegabytes(final long bytes) {
+        return String.format(Locale.ENGLISH, "%.1f MB", bytes / MEGABYTE);
+    }
+
+    static final class ImageReport {
+
+        private final String id;
+        private final String imageId;
+        private final String nameAndTag;
+        private final List<BuildStep> steps;
+        private final List<LayerReport> layers;
+        private final Long previousSize;
+
+        ImageReport(final ImageBuildConfiguration image, final String imageId, final List<ImageHistoryEntry> history,
+                    final Long previousSize) {
+            this.id = image.getId();
+            this.imageId = imageId;
+            this.nameAndTag = image.getNameAndTag();
+            this.steps = image.getBuildSteps();
+            this.layers = new ArrayList<>(history.size());
+            for (ImageHistoryEntry entry : history) {
+                layers.add(new LayerReport(entry));
+            }
+            this.previousSize = previousSize;
+        }
+
+        public String getId() {
+            return id;
+        }
+
+        public String getImageId() {
+            return imageId;
+        }
+
+        public String getNameAndTag() {
+            return nameAndTag;
+        }
+
+        public long getDurationMillis() {
+            long duration = 0;
+            for (BuildStep step : steps) {
+                duration += step.getDurationMillis();
+            }
+            return duration;
+        }
+
+        public int getUncachedSteps() {
+            int uncached = 0;
+            for (BuildStep step : steps) {
+                if (!step.isCached() && !isFrom(step)) {
+                    uncached++;
+                }
+            }
+            return uncached;
+        }
+
+        public List<BuildStep> getSteps() {
+            return steps;
+        }
+
+        /**
+         * @return the size of the image in bytes, the layers of its base image included
+         */
+        public Long getSize() {
+            if (layers.isEmpty()) {
+                return null;
+            }
+            long size = 0;
+            for (LayerReport layer : layers) {
+                size += layer.getSize();
+            }
+            return size;
+        }
+
+        public Long getPreviousSize() {
+            return previousSize;
+        }
+
+        public Long getSizeDelta() {
+            return previousSize != null && !layers.isEmpty() ? getSize() - previousSize : null;
+        }
+
+        /**
+         * @return the layers of the image, newest first
+         */
+        public List<LayerReport> getLayers() {
+            return layers;
+        }
+
+        List<LayerReport> getLargestLayers(final int count) {
+            List<LayerReport> largest = new ArrayList<>(layers);
+            Collections.sort(largest, new Comparator<LayerReport>() {
+                @Override
+                public int compare(final LayerReport first, final LayerReport second) {
+                    return Long.compare(second.getSize(), first.getSize());
+                }
+            });
+            return largest.subList(0, Math.min(count, largest.size()));
+        }
+
+        BuildStep getFirstCacheMiss() {
+            for (BuildStep step : steps) {
+                if (!step.isCached() && !isFrom(step)) {
+                    return step;
+                }
+            }
+            return null;
+        }
+
+        // FROM steps pull the base image, they're never taken from the cache
+        private static boolean isFrom(final BuildStep step) {
+            return step.getInstruction().toUpperCase(Locale.ENGLISH).startsWith("FROM ");
+        }
+    }
+
+    static final class LayerReport {
+
+        private static final String SHELL = "/bin/sh -c ";
+        private static final String NO_OPERATION = "#(nop) ";
+
+        private final String instruction;
+        private final long size;
+
+        LayerReport(final ImageHistoryEntry entry) {
+            this.instruction = toInstruction(entry.getCreatedBy());
+            this.size = entry.getSize();
+        }
+
+        /**
+         * @return the Dockerfile instruction that created the layer, as far as the daemon recorded it
+         */
+        public String getInstruction() {
+            return instruction;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        private static String toInstruction(final String createdBy) {
+            if (createdBy == null) {
+                return "";
+            }
+            String instruction = createdBy.trim();
+            if (!instruction.startsWith(SHELL)) {
+                return instruction;
+            }
+            instruction = instruction.substring(SHELL.length()).trim();
+            return instruction.startsWith(NO_OPERATION)
+                    ? instruction.substring(NO_OPERATION.length()).trim()
+                    : "RUN " + instruction;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.maven;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * This class is responsible for identifying the build the plugin is running in. Every container and image the plugin
+ * creates is labelled with it, so resources that are left behind by a build that got killed can be found and removed
+ * later, without touching the ones of builds that are still running.
+ */
+public class BuildSession {
+
+    /**
+     * Label that marks a container or image as created by this plugin
+     */
+    public static final String MANAGED_LABEL = "net.wouterdanes.docker.managed";
+    /**
+     * Label that holds the id of the build session that created a container or image
+     */
+    public static final String SESSION_LABEL = "net.wouterdanes.docker.session";
+    /**
+     * Label filter that matches the containers and images created by this plugin, but not the images it committed for
+     * later builds, like snapshots
+     */
+    public static final String MANAGED_FILTER = MANAGED_LABEL + "=true";
+
+    private final String id = UUID.randomUUID().toString();
+    private final long created = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the time the session started, in seconds since the epoch like the creation times of docker
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * @return the labels to put on every container and image created during this session
+     */
+    public Map<String, String> getLabels() {
+        Map<String, String> labels = new LinkedHashMap<>(2);
+        labels.put(MANAGED_LABEL, "true");
+        labels.put(SESSION_LABEL, id);
+        return Collections.unmodifiableMap(labels);
+    }
+
+    /**
+     * @param labels the labels of a container or image
+     * @return <code>true</code> when the container or image was created by the plugin and not released from its
+     * session, daemons without list filters return the others too
+     */
+    public static boolean isManaged(Map<String, String> labels) {
+        return "true".equals(labels.get(MANAGED_LABEL));
+    }
+
+    /**
+     * @return the labels that release an image committed from a container of this session from the session, so it
+     * isn't removed as an orphan or by the retention policy
+     */
+    public static Map<String, String> getReleasedLabels() {
+        Map<String, String> labels = new LinkedHashMap<>(2);
+        labels.put(MANAGED_LABEL, "false");
+        labels.put(SESSION_LABEL, "");
+        return Collections.unmodifiableMap(labels);
+    }
+}
@@ -0,0 +1,95 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.maven;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * This class is responsible for running a task for each item of a collection on a bounded number of threads. A failing
+ * item doesn't stop the others, the failures are collected and returned instead.
+ */
+public final class ConcurrentTasks {
+
+    /**
+     * A task to run for a single item
+     * @param <T> the type of the items
+     */
+    public interface Task<T> {
+        void run(T item) throws Exception;
+    }
+
+    private ConcurrentTasks() {
+    }
+
+    /**
+     * Runs the task for every item and waits for all of them to finish.
+     *
+     * @param items       the items to run the task for
+     * @param parallelism the maximum number of items to handle at the same time
+     * @param task        the task to run
+     * @param <T>         the type of the items
+     * @return the failures per item, in the order of the items, empty if all tasks succeeded
+     */
+    public static <T> Map<T, Throwable> forEach(final Collection<T> items, final int parallelism,
+                                                final Task<T> task) {
+        Preconditions.checkArgument(parallelism > 0, "Parallelism should be at least 1");
+        Map<T, Throwable> failures = new LinkedHashMap<>();
+        if (items.isEmpty()) {
+            return failures;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, items.size()));
+        try {
+            List<Future<Void>> futures = new ArrayList<>(items.size());
+            for (final T item : items) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        task.run(item);
+                        return null;
+                    }
+                }));
+            }
+            int index = 0;
+            for (T item : items) {
+                try {
+                    futures.get(index++).get();
+                } catch (ExecutionException e) {
+                    failures.put(item, e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failures.put(item, e);
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return failures;
+    }
+}
@@ -0,0 +1,136 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.maven;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.google.common.base.Optional;
+
+import net.wouterdanes.docker.provider.model.ContainerStartConfiguration;
+import net.wouterdanes.docker.remoteapi.model.ContainerLink;
+
+/**
+ * This class is responsible for deciding in what order containers are started. Containers are started one by one and
+ * a container can only be started after the containers it links to, but they finish starting up in parallel. So the
+ * stack is ready soonest when the containers that take longest, including the containers that have to wait for them,
+ * are started first. Containers without known timings keep their configured order.
+ */
+class CriticalPathScheduler {
+
+    private final Map<String, ContainerStartConfiguration> containers = new LinkedHashMap<>();
+    private final Map<String, StartupTimings.Timing> timings;
+    private final Map<String, Long> criticalPaths = new HashMap<>();
+
+    /**
+     * @param containers the containers in their configured order, containers only link to containers before them
+     * @param timings    the known timings by container id
+     */
+    CriticalPathScheduler(final List<ContainerStartConfiguration> containers,
+                          final Map<String, StartupTimings.Timing> timings) {
+        for (ContainerStartConfiguration container : containers) {
+            this.containers.put(container.getId(), container);
+        }
+        this.timings = timings;
+    }
+
+    /**
+     * @return the containers in the order they should be started
+     */
+    List<ContainerStartConfiguration> getStartOrder() {
+        List<ContainerStartConfiguration> order = new ArrayList<>(containers.size());
+        List<String> started = new ArrayList<>(containers.size());
+        while (order.size() < containers.size()) {
+            ContainerStartConfiguration next = null;
+            for (ContainerStartConfiguration candidate : containers.values()) {
+                if (started.contains(candidate.getId()) || !allLinksStarted(candidate, started)) {
+                    continue;
+                }
+                // strictly longer, so equal paths keep the configured order
+                if (next == null || getCriticalPath(candidate.getId()) > getCriticalPath(next.getId())) {
+                    next = candidate;
+                }
+            }
+            order.add(next);
+            started.add(next.getId());
+        }
+        return order;
+    }
+
+    /**
+     * Predicts how long it takes until all containers are ready when they're started in the passed order.
+     *
+     * @param order the order the containers are started in
+     * @return the predicted time in milliseconds, absent when not all containers have known timings
+     */
+    Optional<Long> predictStartupMillis(final List<ContainerStartConfiguration> order) {
+        long startedAt = 0;
+        long allReadyAt = 0;
+        for (ContainerStartConfiguration container : order) {
+            StartupTimings.Timing timing = timings.get(container.getId());
+            if (timing == null) {
+                return Optional.absent();
+            }
+            allReadyAt = Math.max(allReadyAt, startedAt + timing.getReadyMillis());
+            startedAt += timing.getStartMillis();
+        }
+        return Optional.of(allReadyAt);
+    }
+
+    /**
+     * The critical path of a container is the time from starting it until it and all containers that link to it,
+     * directly or indirectly, are ready.
+     */
+    private long getCriticalPath(final String id) {
+        Long cached = criticalPaths.get(id);
+        if (cached != null) {
+            return cached;
+        }
+        StartupTimings.Timing timing = timings.get(id);
+        long start = timing != null ? timing.getStartMillis() : 0;
+        long path = timing != null ? timing.getReadyMillis() : 0;
+        for (ContainerStartConfiguration dependent : containers.values()) {
+            if (linksTo(dependent, id)) {
+                path = Math.max(path, start + getCriticalPath(dependent.getId()));
+            }
+        }
+        criticalPaths.put(id, path);
+        return path;
+    }
+
+    private static boolean allLinksStarted(final ContainerStartConfiguration container, final List<String> started) {
+        for (ContainerLink link : container.getLinks()) {
+            if (!started.contains(link.getContainerId())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean linksTo(final ContainerStartConfiguration container, final String id) {
+        for (ContainerLink link : container.getLinks()) {
+            if (link.getContainerId().equals(id)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import com.google.common.base.Optional;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.codehaus.jackson.type.TypeReference;
+
+/**
+ * This class is responsible for reading the parts of a Dockerfile the plugin needs before the daemon builds it: the
+ * base images of the FROM instructions and the sources of the ADD and COPY instructions.
+ */
+final class Dockerfile {
+
+    static final String FILE_NAME = "Dockerfile";
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final List<String> instructions;
+
+    private Dockerfile(final List<String> instructions) {
+        this.instructions = instructions;
+    }
+
+    /**
+     * @param files the files of a build context
+     * @return the Dockerfile among the files
+     */
+    static Optional<File> find(List<File> files) {
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().equals(FILE_NAME)) {
+                    return Optional.of(file);
+                }
+            }
+        }
+        return Optional.absent();
+    }
+
+    static Dockerfile read(File file) throws IOException {
+        return parse(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8));
+    }
+
+    static Dockerfile parse(List<String> lines) {
+        List<String> instructions = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String line : lines) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("#")) {
+                continue;
+            }
+            if (trimmed.endsWith("\\")) {
+                current.append(trimmed, 0, trimmed.length() - 1).append(' ');
+                continue;
+            }
+            current.append(trimmed);
+            addInstruction(instructions, current);
+        }
+        addInstruction(instructions, current);
+        return new Dockerfile(instructions);
+    }
+
+    /**
+     * Returns the images that the stages of the Dockerfile start from. Stages that start from an earlier stage,
+     * <code>scratch</code> and images with build arguments in their name are skipped.
+     *
+     * @return the distinct base images, in the order of the Dockerfile
+     * @throws IllegalArgumentException when the JSON form of an instruction can't be parsed
+     */
+    List<String> getBaseImages() {
+        Set<String> baseImages = new LinkedHashSet<>();
+        Set<String> stages = new HashSet<>();
+        for (String instruction : instructions) {
+            List<String> arguments = getArguments(instruction, "FROM");
+            while (!arguments.isEmpty() && arguments.get(0).startsWith("--")) {
+                arguments.remove(0);
+            }
+            if (arguments.isEmpty()) {
+                continue;
+            }
+            String image = arguments.get(0);
+            if (arguments.size() >= 3 && arguments.get(1).equalsIgnoreCase("AS")) {
+                stages.add(arguments.get(2).toLowerCase(Locale.ENGLISH));
+            }
+            if (!image.equals("scratch") && !image.contains("$") && !stages.contains(image.toLowerCase(Locale.ENGLISH))) {
+                baseImages.add(image);
+            }
+        }
+        return new ArrayList<>(baseImages);
+    }
+
+    /**
+     * Returns the local sources of the ADD and COPY instructions, URLs and sources in other build stages are skipped.
+     *
+     * @return the sources, as they're written in the Dockerfile
+     * @throws IllegalArgumentException when the JSON form of an instruction can't be parsed
+     */
+    List<String> getSources() {
+        List<String> sources = new ArrayList<>();
+        for (String instruction : instructions) {
+            List<String> arguments = getArguments(instruction, "ADD");
+            if (arguments.isEmpty()) {
+                arguments = getArguments(instruction, "COPY");
+            }
+            boolean fromOtherStage = false;
+            while (!arguments.isEmpty() && arguments.get(0).startsWith("--")) {
+                fromOtherStage |= arguments.remove(0).startsWith("--from=");
+            }
+            if (fromOtherStage || arguments.size() < 2) {
+                continue;
+            }
+            for (String source : arguments.subList(0, arguments.size() - 1)) {
+                if (!source.contains("://")) {
+                    sources.add(source);
+                }
+            }
+        }
+        return sources;
+    }
+
+    private static void addInstruction(List<String> instructions, StringBuilder current) {
+        String instruction = current.toString().trim();
+        if (!instruction.isEmpty()) {
+            instructions.add(instruction);
+        }
+        current.setLength(0);
+    }
+
+    private static List<String> getArguments(String instruction, String keyword) {
+        String[] parts = instruction.split("\\s+", 2);
+        if (parts.length < 2 || !parts[0].equalsIgnoreCase(keyword)) {
+            return new ArrayList<>();
+        }
+        String arguments = parts[1].trim();
+        if (arguments.startsWith("[")) {
+            try {
+                return new ArrayList<>(new ObjectMapper().<List<String>>readValue(arguments,
+                        new TypeReference<List<String>>() { }));
+            } catch (IOException e) {
+                throw new IllegalArgumentException(String.format("Can't parse instruction '%s'", instruction), e);
+            }
+        }
+        return new ArrayList<>(Arrays.asList(WHITESPACE.split(arguments)));
+    }
+}
@@ -0,0 +1,237 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.maven;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.google.common.hash.Hashing;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import net.wouterdanes.docker.remoteapi.model.ImageInspectionResult;
+
+/**
+ * This class is responsible for assembling an image on top of a base image without running a build on the daemon. It
+ * writes every layer as a tar with sorted entries, fixed timestamps and root ownership, so a layer with the same files
+ * is bit-identical across builds and the daemon and registries reuse it. The layers and the image configuration are
+ * written to an archive in the format of <code>docker save</code>. The archive only holds the new layers, the daemon
+ * that loads it must already have the base image.
+ */
+class ImageAssembler {
+
+    /**
+     * The timestamp of all files in the layers and of the image itself, so they don't change between builds.
+     */
+    static final String REPRODUCIBLE_TIMESTAMP = "1970-01-01T00:00:00Z";
+
+    private static final Date REPRODUCIBLE_DATE = new Date(0);
+    private static final String LAYER_FILE_NAME = "layer.tar";
+    private static final int FILE_MODE = 0100644;
+    private static final int DIRECTORY_MODE = 040755;
+
+    private final File workDirectory;
+    private final ImageInspectionResult baseImage;
+    private final List<Layer> layers = new ArrayList<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    ImageAssembler(final File workDirectory, final ImageInspectionResult baseImage) {
+        this.workDirectory = workDirectory;
+        this.baseImage = baseImage;
+    }
+
+    /**
+     * Adds a layer on top of the layers added before it. Empty layers are skipped.
+     *
+     * @param name  the name of the layer, used for its file in the work directory
+     * @param files the files of the layer by their absolute path in the image
+     * @throws IOException when the layer can't be written
+     */
+    void addLayer(String name, Map<String, File> files) throws IOException {
+        if (files.isEmpty()) {
+            return;
+        }
+        SortedMap<String, File> entries = new TreeMap<>();
+        for (Map.Entry<String, File> file : files.entrySet()) {
+            String path = trimSlashes(file.getKey());
+            entries.put(path, file.getValue());
+            for (int slash = path.indexOf('/'); slash > 0; slash = path.indexOf('/', slash + 1)) {
+                entries.put(path.substring(0, slash + 1), null);
+            }
+        }
+        Files.createDirectories(workDirectory.toPath());
+        File layerFile = new File(workDirectory, name + ".tar");
+        try (TarArchiveOutputStream tar = newTarStream(layerFile)) {
+            for (Map.Entry<String, File> entry : entries.entrySet()) {
+                if (entry.getValue() == null) {
+                    putDirectory(tar, entry.getKey());
+                } else {
+                    putFile(tar, entry.getKey(), entry.getValue());
+                }
+            }
+        }
+        String diffId = com.google.common.io.Files.hash(layerFile, Hashing.sha256()).toString();
+        layers.add(new Layer(layerFile, diffId));
+    }
+
+    /**
+     * Writes the archive of the image, with the configuration of the base image changed by the passed values.
+     *
+     * @param archive       the file to write the archive to
+     * @param nameAndTag    the name the image is loaded with
+     * @param configChanges the changes to the configuration of the base image, a <code>null</code> value removes the
+     *                      setting
+     * @return the id of the image
+     * @throws IOException when the archive can't be written
+     */
+    String writeArchive(File archive, String nameAndTag, Map<String, Object> configChanges) throws IOException {
+        Map<String, Object> config = baseImage.getConfig() != null
+                ? new LinkedHashMap<>(baseImage.getConfig())
+                : new LinkedHashMap<String, Object>();
+        for (Map.Entry<String, Object> change : configChanges.entrySet()) {
+            if (change.getValue() == null) {
+                config.remove(change.getKey());
+            } else {
+                config.put(change.getKey(), change.getValue());
+            }
+        }
+
+        List<String> diffIds = new ArrayList<>(baseImage.getRootFs().getLayers());
+        List<String> layerPaths = new ArrayList<>();
+        for (String baseLayer : baseImage.getRootFs().getLayers()) {
+            // the daemon finds the layers of the base image by their diff id, their files are never read
+            layerPaths.add(stripAlgorithm(baseLayer) + "/" + LAYER_FILE_NAME);
+        }
+        for (Layer layer : layers) {
+            diffIds.add("sha256:" + layer.diffId);
+            layerPaths.add(layer.diffId + "/" + LAYER_FILE_NAME);
+        }
+
+        Map<String, Object> rootFs = new LinkedHashMap<>();
+        rootFs.put("type", "layers");
+        rootFs.put("diff_ids", diffIds);
+        Map<String, Object> image = new LinkedHashMap<>();
+        image.put("architecture", baseImage.getArchitecture() != null ? baseImage.getArchitecture() : "amd64");
+        image.put("os", baseImage.getOs() != null ? baseImage.getOs() : "linux");
+        image.put("created", REPRODUCIBLE_TIMESTAMP);
+        image.put("config", config);
+        image.put("rootfs", rootFs);
+        byte[] imageJson = objectMapper.writeValueAsBytes(image);
+        String imageDigest = Hashing.sha256().hashBytes(imageJson).toString();
+
+        Map<String, Object> manifest = new LinkedHashMap<>();
+        manifest.put("Config", imageDigest + ".json");
+        manifest.put("RepoTags", Collections.singletonList(withTag(nameAndTag)));
+        manifest.put("Layers", layerPaths);
+        byte[] manifestJson = objectMapper.writeValueAsBytes(Collections.singletonList(manifest));
+
+        try (TarArchiveOutputStream tar = newTarStream(archive)) {
+            for (Layer layer : layers) {
+                putDirectory(tar, layer.diffId + "/");
+                putFile(tar, layer.diffId + "/" + LAYER_FILE_NAME, layer.file);
+            }
+            putBytes(tar, imageDigest + ".json", imageJson);
+            putBytes(tar, "manifest.json", manifestJson);
+        }
+        return "sha256:" + imageDigest;
+    }
+
+    private static TarArchiveOutputStream newTarStream(File file) throws IOException {
+        OutputStream out = new BufferedOutputStream(Files.newOutputStream(file.toPath()));
+        TarArchiveOutputStream tar = new TarArchiveOutputStream(out);
+        tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+        tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+        return tar;
+    }
+
+    private static void putDirectory(TarArchiveOutputStream tar, String path) throws IOException {
+        tar.putArchiveEntry(newEntry(path, DIRECTORY_MODE));
+        tar.closeArchiveEntry();
+    }
+
+    private static void putFile(TarArchiveOutputStream tar, String path, File file) throws IOException {
+        TarArchiveEntry entry = newEntry(path, FILE_MODE);
+        entry.setSize(file.length());
+        tar.putArchiveEntry(entry);
+        Files.copy(file.toPath(), tar);
+        tar.closeArchiveEntry();
+    }
+
+    private static void putBytes(TarArchiveOutputStream tar, String path, byte[] contents) throws IOException {
+        TarArchiveEntry entry = newEntry(path, FILE_MODE);
+        entry.setSize(contents.length);
+        tar.putArchiveEntry(entry);
+        tar.write(contents);
+        tar.closeArchiveEntry();
+    }
+
+    private static TarArchiveEntry newEntry(String path, int mode) {
+        TarArchiveEntry entry = new TarArchiveEntry(path);
+        entry.setMode(mode);
+        entry.setModTime(REPRODUCIBLE_DATE);
+        entry.setUserId(0);
+        entry.setGroupId(0);
+        entry.setUserName("root");
+        entry.setGroupName("root");
+        return entry;
+    }
+
+    private static String trimSlashes(String path) {
+        int start = 0;
+        while (start < path.length() && path.charAt(start) == '/') {
+            start++;
+        }
+        int end = path.length();
+        while (end > start && path.charAt(end - 1) == '/') {
+            end--;
+        }
+        return path.substring(start, end);
+    }
+
+    private static String stripAlgorithm(String digest) {
+        return digest.substring(digest.indexOf(':') + 1);
+    }
+
+    private static String withTag(String nameAndTag) {
+        return nameAndTag.lastIndexOf(':') > nameAndTag.lastIndexOf('/') ? nameAndTag : nameAndTag + ":latest";
+    }
+
+    private static final class Layer {
+
+        private final File file;
+        private final String diffId;
+
+        private Layer(final File file, final String diffId) {
+            this.file = file;
+            this.diffId = diffId;
+        }
+    }
+}
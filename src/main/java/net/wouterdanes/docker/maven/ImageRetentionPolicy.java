@@ -0,0 +1,204 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.maven;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.hash.Hashing;
+
+import net.wouterdanes.docker.remoteapi.model.ImageHistoryEntry;
+import net.wouterdanes.docker.remoteapi.model.ImageSummary;
+
+/**
+ * This class is responsible for picking the images the plugin built that can be removed from a docker host: the least
+ * recently used images beyond the number to keep per name, then the least recently used images until the rest fits
+ * in the maximum number of bytes. The daemon doesn't record when an image was last used, so the creation time of an
+ * image stands in for it and the images of the current build count as the most recently used ones. Layers that images
+ * share, like the ones of their base image, count once towards the maximum number of bytes.
+ */
+final class ImageRetentionPolicy {
+
+    private static final String NO_TAG = "<none>:<none>";
+    private static final String SHA256 = "sha256:";
+
+    private final Integer imagesPerName;
+    private final Long maxBytes;
+
+    /**
+     * @param imagesPerName the number of images to keep per name, or <code>null</code> to keep all of them
+     * @param maxBytes      the number of bytes all images may take, or <code>null</code> for no limit
+     */
+    ImageRetentionPolicy(final Integer imagesPerName, final Long maxBytes) {
+        this.imagesPerName = imagesPerName;
+        this.maxBytes = maxBytes;
+    }
+
+    boolean isEnabled() {
+        return imagesPerName != null || maxBytes != null;
+    }
+
+    /**
+     * Selects the images to remove, counting each image with its full size.
+     *
+     * @param images   the images built by the plugin
+     * @param retained the full or short ids of the images that are always kept, like the images of the current build
+     * @return the images to remove, least recently used first
+     */
+    List<ImageSummary> selectEvictions(final List<ImageSummary> images, final Set<String> retained) {
+        return selectEvictions(images, retained, Collections.<String, List<ImageHistoryEntry>>emptyMap());
+    }
+
+    /**
+     * Selects the images to remove.
+     *
+     * @param images    the images built by the plugin
+     * @param retained  the full or short ids of the images that are always kept, like the images of the current build
+     * @param histories the histories of the images by their id, an image without a history counts with its full size
+     * @return the images to remove, least recently used first
+     */
+    List<ImageSummary> selectEvictions(final List<ImageSummary> images, final Set<String> retained,
+                                       final Map<String, List<ImageHistoryEntry>> histories) {
+        List<ImageSummary> mostRecentFirst = new ArrayList<>(images);
+        Collections.sort(mostRecentFirst, new Comparator<ImageSummary>() {
+            @Override
+            public int compare(final ImageSummary first, final ImageSummary second) {
+                boolean firstRetained = isRetained(first, retained);
+                if (firstRetained != isRetained(second, retained)) {
+                    return firstRetained ? -1 : 1;
+                }
+                return Long.compare(second.getCreated(), first.getCreated());
+            }
+        });
+
+        List<ImageSummary> kept = new ArrayList<>();
+        List<ImageSummary> evicted = new ArrayList<>();
+        Map<String, Integer> imagesByName = new HashMap<>();
+        for (ImageSummary image : mostRecentFirst) {
+            boolean keep = imagesPerName == null || isRetained(image, retained);
+            for (String name : getNames(image)) {
+                int count = imagesByName.containsKey(name) ? imagesByName.get(name) + 1 : 1;
+                imagesByName.put(name, count);
+                keep |= imagesPerName != null && count <= imagesPerName;
+            }
+            (keep ? kept : evicted).add(image);
+        }
+
+        if (maxBytes != null) {
+            long bytes = 0;
+            Map<ImageSummary, Map<String, Long>> layersByImage = new HashMap<>();
+            Map<String, Integer> imagesByLayer = new HashMap<>();
+            for (ImageSummary image : kept) {
+                Map<String, Long> layers = getLayers(image, histories);
+                layersByImage.put(image, layers);
+                for (Map.Entry<String, Long> layer : layers.entrySet()) {
+                    Integer count = imagesByLayer.get(layer.getKey());
+                    if (count == null) {
+                        bytes += layer.getValue();
+                        count = 0;
+                    }
+                    imagesByLayer.put(layer.getKey(), count + 1);
+                }
+            }
+            for (int i = kept.size() - 1; i >= 0 && bytes > maxBytes; i--) {
+                ImageSummary image = kept.get(i);
+                if (isRetained(image, retained)) {
+                    continue;
+                }
+                for (Map.Entry<String, Long> layer : layersByImage.get(image).entrySet()) {
+                    int count = imagesByLayer.get(layer.getKey()) - 1;
+                    imagesByLayer.put(layer.getKey(), count);
+                    if (count == 0) {
+                        bytes -= layer.getValue();
+                    }
+                }
+                evicted.add(image);
+            }
+        }
+
+        Collections.sort(evicted, new Comparator<ImageSummary>() {
+            @Override
+            public int compare(final ImageSummary first, final ImageSummary second) {
+                return Long.compare(first.getCreated(), second.getCreated());
+            }
+        });
+        return evicted;
+    }
+
+    /**
+     * @param image    an image
+     * @param retained the full or short ids of the images that are always kept
+     * @return <code>true</code> when the image is one of the retained images
+     */
+    static boolean isRetained(final ImageSummary image, final Set<String> retained) {
+        String id = withoutAlgorithm(image.getId());
+        for (String retainedId : retained) {
+            if (id.startsWith(withoutAlgorithm(retainedId))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String withoutAlgorithm(final String id) {
+        return id.startsWith(SHA256) ? id.substring(SHA256.length()) : id;
+    }
+
+    private static Set<String> getNames(final ImageSummary image) {
+        Set<String> names = new LinkedHashSet<>();
+        for (String repoTag : image.getRepoTags()) {
+            if (!repoTag.equals(NO_TAG)) {
+                int tagSeparator = repoTag.lastIndexOf(':');
+                names.add(tagSeparator > repoTag.lastIndexOf('/') ? repoTag.substring(0, tagSeparator) : repoTag);
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Identifies the layers of an image by the layers below them and the step that created them, like the chain ids
+     * of docker, so the same layers of different images get the same key.
+     *
+     * @return the sizes of the layers of the image by their key
+     */
+    private static Map<String, Long> getLayers(final ImageSummary image,
+                                               final Map<String, List<ImageHistoryEntry>> histories) {
+        List<ImageHistoryEntry> history = histories.get(image.getId());
+        if (history == null || history.isEmpty()) {
+            return Collections.singletonMap(image.getId(), image.getSize() != null ? image.getSize() : 0L);
+        }
+        Map<String, Long> layers = new LinkedHashMap<>();
+        String chain = "";
+        // the history lists the top layer first
+        for (int i = history.size() - 1; i >= 0; i--) {
+            ImageHistoryEntry entry = history.get(i);
+            chain = Hashing.sha256().hashString(String.format("%s %s %s %s", chain, entry.getCreated(),
+                    entry.getSize(), entry.getCreatedBy()), StandardCharsets.UTF_8).toString();
+            layers.put(chain, entry.getSize());
+        }
+        return layers;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.maven;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Optional;
+import com.google.common.base.Strings;
+
+/**
+ * Registry of values by key that can be shared between (parallel) executions of the plugin's goals. Values are
+ * returned in the order they were first registered in. A <code>null</code> key is treated as an empty key.
+ *
+ * @param <T> the type of the registered values
+ */
+public class KeyedRegistry<T> {
+
+    private final ConcurrentMap<String, T> entries = new ConcurrentHashMap<>();
+    private final Queue<String> keys = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Registers a value, replacing any value that was registered under the same key.
+     *
+     * @param key   the key of the value
+     * @param value the value
+     */
+    public void register(String key, T value) {
+        String nonNullKey = Strings.nullToEmpty(key);
+        if (entries.put(nonNullKey, value) == null) {
+            keys.add(nonNullKey);
+        }
+    }
+
+    public Optional<T> get(String key) {
+        return Optional.fromNullable(entries.get(Strings.nullToEmpty(key)));
+    }
+
+    /**
+     * @return a snapshot of the registered values, in registration order
+     */
+    public Collection<T> values() {
+        List<T> values = new ArrayList<>(entries.size());
+        for (String key : keys) {
+            T value = entries.get(key);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        return Collections.unmodifiableList(values);
+    }
+}
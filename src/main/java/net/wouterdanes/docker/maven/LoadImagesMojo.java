@@ -0,0 +1,89 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.maven;
+
+import java.io.File;
+import java.util.List;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.InstantiationStrategy;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.eclipse.aether.RepositorySystem;
+import org.eclipse.aether.RepositorySystemSession;
+import org.eclipse.aether.repository.RemoteRepository;
+
+import net.wouterdanes.docker.provider.model.ImageArchiveConfiguration;
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
+
+/**
+ * This class is responsible for loading docker images from tar archives, for example the archives that another
+ * project attached with the "save-images" goal. The goal is called "load-images" and runs by default in the initialize
+ * phase, so the images are available when containers are started. Archives are streamed to the daemon.
+ */
+@Mojo(defaultPhase = LifecyclePhase.INITIALIZE, name = "load-images", threadSafe = true,
+        instantiationStrategy = InstantiationStrategy.PER_LOOKUP)
+public class LoadImagesMojo extends AbstractPreVerifyDockerMojo {
+
+    @Parameter(required = true)
+    private List<ImageArchiveConfiguration> archives;
+
+    @Component
+    private RepositorySystem repositorySystem;
+
+    @Parameter(defaultValue = "${repositorySystemSession}", readonly = true)
+    private RepositorySystemSession repositorySession;
+
+    @Parameter(defaultValue = "${project.remoteProjectRepositories}", readonly = true)
+    private List<RemoteRepository> remoteRepositories;
+
+    public void setArchives(final List<ImageArchiveConfiguration> archives) {
+        this.archives = archives;
+    }
+
+    @Override
+    protected void doExecute() throws MojoExecutionException, MojoFailureException {
+        for (ImageArchiveConfiguration archive : archives) {
+            if (!archive.isValid()) {
+                throw new MojoExecutionException(String.format("Archive '%s' needs either a file or a groupId, "
+                        + "artifactId and version", archive));
+            }
+        }
+        for (ImageArchiveConfiguration archive : archives) {
+            File file = getArchiveResolver().resolve(archive);
+            getLog().info(String.format("Loading images from %s", file));
+            try {
+                getDockerProvider().loadImage(file);
+            } catch (DockerException e) {
+                handleDockerException(String.format("Cannot load images from archive '%s'", archive), e);
+            }
+        }
+    }
+
+    private ArtifactFileResolver getArchiveResolver() {
+        return new ArtifactFileResolver(repositorySystem, repositorySession, remoteRepositories);
+    }
+
+    @Override
+    protected String getMojoGoalName() {
+        return "load-images";
+    }
+}
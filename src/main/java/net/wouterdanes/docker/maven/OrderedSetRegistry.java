@@ -0,0 +1,63 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.maven;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Registry of unique values that can be shared between (parallel) executions of the plugin's goals. Values that are
+ * equal to an already registered value are ignored, values are returned in the order they were registered in.
+ *
+ * @param <T> the type of the registered values, must implement {@link Object#equals(Object)} and
+ *            {@link Object#hashCode()} consistently.
+ */
+public class OrderedSetRegistry<T> {
+
+    private final Set<T> seen = Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>());
+    private final Queue<T> values = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Registers a value, unless an equal value was registered before.
+     *
+     * @param value the value to register
+     * @return <code>true</code> if the value was registered, <code>false</code> if it was a duplicate
+     */
+    public boolean register(T value) {
+        if (!seen.add(value)) {
+            return false;
+        }
+        values.add(value);
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return values.isEmpty();
+    }
+
+    /**
+     * @return a snapshot of the registered values, in registration order
+     */
+    public List<T> values() {
+        return Collections.unmodifiableList(new ArrayList<>(values));
+    }
+}
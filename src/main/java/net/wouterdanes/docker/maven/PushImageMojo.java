@@ -17,6 +17,10 @@
 
 package net.wouterdanes.docker.maven;
 
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
@@ -26,10 +30,12 @@ import org.apache.maven.plugins.annotations.Mojo;
 
 import net.wouterdanes.docker.provider.model.PushableImage;
 import net.wouterdanes.docker.remoteapi.exception.DockerException;
+import net.wouterdanes.docker.remoteapi.exception.ImageNotFoundException;
 
 /**
  * This class is responsible for pushing docking images in the deploy phase of the maven build. The goal
- * is called "push-images"
+ * is called "push-images". Images are pushed in parallel, the goal waits for pushes that were started earlier in the
+ * background and resumes pushes that didn't finish in a previous build.
  */
 @Mojo(defaultPhase = LifecyclePhase.DEPLOY, name = "push-images", threadSafe = true,
 		instantiationStrategy = InstantiationStrategy.PER_LOOKUP)
@@ -38,19 +44,53 @@ public class PushImageMojo extends AbstractDockerMojo {
     @Override
     public void doExecute() throws MojoExecutionException, MojoFailureException {
         ensureThatAllPushableImagesHaveAName();
+        Map<String, String> imageIds = new HashMap<>();
         for (PushableImage image : getImagesToPush()) {
-            getLog().info(String.format("Pushing image '%s' with tag '%s'",
-                    image.getImageId(), image.getNameAndTag().or("<Unspecified>")));
-            try {
-                getDockerProvider().pushImage(image.getNameAndTag().get());
-            } catch (DockerException e) {
-                String message = String.format("Cannot push image '%s' with tag '%s'",
-                        image.getImageId(), image.getNameAndTag().or("<Unspecified>"));
-                handleDockerException(message, e);
+            String nameAndTag = image.getNameAndTag().get();
+            imageIds.put(nameAndTag, image.getImageId());
+            submitPush(nameAndTag);
+        }
+        Set<String> resumed = new HashSet<>();
+        for (String nameAndTag : getPushQueue().getUnfinishedInPreviousBuild()) {
+            if (!isTaggedLocally(nameAndTag)) {
+                getLog().info(String.format("Not resuming push of image with tag '%s' from a previous build, the tag "
+                        + "no longer exists", nameAndTag));
+                getPushQueue().forget(nameAndTag);
+                continue;
+            }
+            getLog().info(String.format("Resuming push of image with tag '%s' from a previous build", nameAndTag));
+            submitPush(nameAndTag);
+            resumed.add(nameAndTag);
+        }
+
+        Map<String, DockerException> failures;
+        try {
+            failures = getPushQueue().await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MojoExecutionException("Interrupted while waiting for images to be pushed", e);
+        }
+        for (Map.Entry<String, DockerException> failure : failures.entrySet()) {
+            String imageId = imageIds.containsKey(failure.getKey()) ? imageIds.get(failure.getKey()) : "<unknown>";
+            String message = String.format("Cannot push image '%s' with tag '%s'", imageId, failure.getKey());
+            if (resumed.contains(failure.getKey())) {
+                // the images of this build were pushed, a leftover of an earlier build doesn't fail it
+                getLog().warn(message, failure.getValue());
+            } else {
+                handleDockerException(message, failure.getValue());
             }
         }
     }
 
+    private boolean isTaggedLocally(final String nameAndTag) {
+        try {
+            getDockerProvider().inspectImage(nameAndTag);
+            return true;
+        } catch (ImageNotFoundException e) {
+            return false;
+        }
+    }
+
     private void ensureThatAllPushableImagesHaveAName() throws MojoFailureException {
         for (PushableImage image : getImagesToPush()) {
             if (!image.getNameAndTag().isPresent()) {
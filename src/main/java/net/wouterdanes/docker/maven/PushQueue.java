@@ -0,0 +1,210 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import org.apache.maven.plugin.logging.Log;
+
+import net.wouterdanes.docker.provider.DockerProvider;
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
+
+/**
+ * This class is responsible for pushing images in the background. A push starts as soon as it's submitted, failed
+ * pushes are retried. The state of every push is written to a file in the build directory, so pushes that didn't
+ * finish in an earlier build can be resumed by running the "push-images" goal again.
+ */
+public class PushQueue {
+
+    static final String STATE_FILE_NAME = "docker-push-queue.properties";
+
+    private static final long RETRY_DELAY_MILLIS = 2000;
+
+    enum State {
+        PENDING, PUSHED, FAILED
+    }
+
+    private final ConcurrentMap<String, Future<Void>> pushes = new ConcurrentHashMap<>();
+    private final Map<String, State> states = new LinkedHashMap<>();
+    private final List<String> unfinishedInPreviousBuild = new ArrayList<>();
+    private File stateFile;
+
+    /**
+     * Sets the file to keep the state of the pushes in, the first time it's called the pushes that didn't finish in a
+     * previous build are read from it.
+     *
+     * @param file the file, can be <code>null</code> to not keep state
+     */
+    public synchronized void useStateFile(File file) {
+        if (stateFile != null || file == null) {
+            return;
+        }
+        stateFile = file;
+        if (!file.isFile()) {
+            return;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            properties.load(in);
+        } catch (IOException | IllegalArgumentException ignored) {
+            return;
+        }
+        for (String nameAndTag : properties.stringPropertyNames()) {
+            if (!State.PUSHED.name().equals(properties.getProperty(nameAndTag))) {
+                unfinishedInPreviousBuild.add(nameAndTag);
+            }
+        }
+    }
+
+    /**
+     * @return the names and tags of images that were pushed in a previous build, but didn't finish
+     */
+    public synchronized List<String> getUnfinishedInPreviousBuild() {
+        List<String> unfinished = new ArrayList<>(unfinishedInPreviousBuild);
+        unfinished.removeAll(pushes.keySet());
+        return unfinished;
+    }
+
+    /**
+     * Forgets a push that didn't finish in a previous build, so it isn't resumed by later builds either.
+     *
+     * @param nameAndTag the name and tag of the push
+     */
+    public synchronized void forget(String nameAndTag) {
+        unfinishedInPreviousBuild.remove(nameAndTag);
+        states.remove(nameAndTag);
+        writeStateFile();
+    }
+
+    /**
+     * Starts pushing an image in the background, unless it's already being pushed.
+     *
+     * @param nameAndTag the name and tag to push
+     * @param provider   the provider to push with
+     * @param retries    the number of times to retry a failing push
+     * @param log        the log to report progress to
+     * @param tasks      the executor to push on
+     * @return <code>true</code> if the push was started, <code>false</code> if it was already submitted
+     */
+    public boolean submit(final String nameAndTag, final DockerProvider provider, final int retries, final Log log,
+                          BackgroundTasks tasks) {
+        FutureTask<Void> push = new FutureTask<>(new Runnable() {
+            @Override
+            public void run() {
+                push(nameAndTag, provider, retries, log);
+            }
+        }, null);
+        if (pushes.putIfAbsent(nameAndTag, push) != null) {
+            return false;
+        }
+        updateState(nameAndTag, State.PENDING);
+        tasks.execute(push);
+        return true;
+    }
+
+    /**
+     * Waits for all submitted pushes to finish.
+     *
+     * @return the failed pushes by name and tag
+     * @throws InterruptedException when waiting got interrupted
+     */
+    public Map<String, DockerException> await() throws InterruptedException {
+        Map<String, DockerException> failures = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<Void>> push : pushes.entrySet()) {
+            try {
+                push.getValue().get();
+            } catch (ExecutionException e) {
+                failures.put(push.getKey(), e.getCause() instanceof DockerException
+                        ? (DockerException) e.getCause()
+                        : new DockerException(e.getCause()));
+            }
+        }
+        return failures;
+    }
+
+    private void push(final String nameAndTag, final DockerProvider provider, final int retries, final Log log) {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                log.info(String.format("Pushing image with tag '%s'..", nameAndTag));
+                provider.pushImage(nameAndTag);
+                log.info(String.format("Pushed image with tag '%s'", nameAndTag));
+                updateState(nameAndTag, State.PUSHED);
+                return;
+            } catch (DockerException e) {
+                if (attempt >= retries) {
+                    updateState(nameAndTag, State.FAILED);
+                    throw e;
+                }
+                log.warn(String.format("Pushing image with tag '%s' failed, retrying (%s/%s)..", nameAndTag,
+                        attempt + 1, retries), e);
+            }
+            try {
+                Thread.sleep(RETRY_DELAY_MILLIS * (attempt + 1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                updateState(nameAndTag, State.FAILED);
+                throw new DockerException("Interrupted while pushing " + nameAndTag, e);
+            }
+        }
+    }
+
+    private synchronized void updateState(String nameAndTag, State state) {
+        states.put(nameAndTag, state);
+        writeStateFile();
+    }
+
+    private void writeStateFile() {
+        if (stateFile == null) {
+            return;
+        }
+        Properties properties = new Properties();
+        for (String unfinished : unfinishedInPreviousBuild) {
+            properties.setProperty(unfinished, State.FAILED.name());
+        }
+        for (Map.Entry<String, State> entry : states.entrySet()) {
+            properties.setProperty(entry.getKey(), entry.getValue().name());
+        }
+        try {
+            File directory = stateFile.getAbsoluteFile().getParentFile();
+            Files.createDirectories(directory.toPath());
+            File temp = File.createTempFile(stateFile.getName(), ".tmp", directory);
+            try (OutputStream out = Files.newOutputStream(temp.toPath())) {
+                properties.store(out, "State of the images pushed by the docker-maven-plugin");
+            }
+            Files.move(temp.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ignored) {
+            // without the state file, failed pushes can't be resumed, but pushing works fine
+        }
+    }
+}
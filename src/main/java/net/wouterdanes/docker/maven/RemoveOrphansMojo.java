@@ -0,0 +1,129 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.maven;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.InstantiationStrategy;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+
+import net.wouterdanes.docker.provider.DockerProvider;
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
+import net.wouterdanes.docker.remoteapi.model.ContainerSummary;
+import net.wouterdanes.docker.remoteapi.model.ImageSummary;
+
+/**
+ * This class is responsible for removing containers and images that were created by the plugin in builds that never
+ * cleaned up after themselves, for example because they got killed. The goal is called "remove-orphans", it isn't
+ * bound to a phase and doesn't need a project, so it can be run on build agents directly:
+ * <code>mvn net.wouterdanes.docker:docker-maven-plugin:remove-orphans</code>
+ */
+@Mojo(name = "remove-orphans", threadSafe = true, requiresProject = false,
+        instantiationStrategy = InstantiationStrategy.PER_LOOKUP)
+public class RemoveOrphansMojo extends AbstractDockerMojo {
+
+    private static final List<String> MANAGED_FILTER = Collections.singletonList(BuildSession.MANAGED_FILTER);
+
+    /**
+     * Only containers and images that are older than this are removed, to leave the ones of running builds alone.
+     */
+    @Parameter(defaultValue = "60", property = "docker.orphans.olderThanMinutes")
+    private int olderThanMinutes;
+
+    /**
+     * The number of containers or images to remove at the same time.
+     */
+    @Parameter(defaultValue = "4", property = "docker.orphans.parallelism")
+    private int parallelism;
+
+    public void setOlderThanMinutes(final int olderThanMinutes) {
+        this.olderThanMinutes = olderThanMinutes;
+    }
+
+    public void setParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    @Override
+    protected void doExecute() throws MojoExecutionException, MojoFailureException {
+        final DockerProvider provider = getDockerProvider();
+        long createdBefore = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis())
+                - TimeUnit.MINUTES.toSeconds(olderThanMinutes);
+        String sessionId = getBuildSession().getId();
+
+        List<ContainerSummary> containers = new ArrayList<>();
+        List<ImageSummary> images = new ArrayList<>();
+        try {
+            for (ContainerSummary container : provider.listContainers(MANAGED_FILTER)) {
+                if (container.getCreated() < createdBefore && isOrphan(container.getLabels(), sessionId)) {
+                    containers.add(container);
+                }
+            }
+            for (ImageSummary image : provider.listImages(MANAGED_FILTER)) {
+                if (image.getCreated() < createdBefore && isOrphan(image.getLabels(), sessionId)) {
+                    images.add(image);
+                }
+            }
+        } catch (DockerException e) {
+            handleDockerException("Cannot list the containers and images created by the plugin", e);
+            return;
+        }
+
+        getLog().info(String.format("Removing %s orphaned container(s) and %s orphaned image(s)..",
+                containers.size(), images.size()));
+
+        // containers go first, images can't be removed while a container uses them
+        Map<ContainerSummary, Throwable> containerFailures = ConcurrentTasks.forEach(containers, parallelism,
+                new ConcurrentTasks.Task<ContainerSummary>() {
+                    @Override
+                    public void run(final ContainerSummary container) {
+                        if (container.isRunning()) {
+                            provider.stopContainer(container.getId());
+                        }
+                        provider.deleteContainer(container.getId());
+                    }
+                });
+        for (Map.Entry<ContainerSummary, Throwable> failure : containerFailures.entrySet()) {
+            getLog().warn(String.format("Failed to remove container '%s'", failure.getKey().getId()),
+                    failure.getValue());
+        }
+
+        Map<ImageSummary, Throwable> imageFailures = ConcurrentTasks.forEach(images, parallelism,
+                new ConcurrentTasks.Task<ImageSummary>() {
+                    @Override
+                    public void run(final ImageSummary image) {
+                        removeImageAndTags(provider, image);
+                    }
+                });
+        for (Map.Entry<ImageSummary, Throwable> failure : imageFailures.entrySet()) {
+            getLog().warn(String.format("Failed to remove image '%s'", failure.getKey().getId()), failure.getValue());
+        }
+    }
+
+    private static boolean isOrphan(Map<String, String> labels, String currentSessionId) {
+        return BuildSession.isManaged(labels)
+                && !currentSessionId.equals(labels.get(BuildSession.SESSION_LABEL));
+    }
+}
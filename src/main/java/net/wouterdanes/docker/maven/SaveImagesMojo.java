@@ -0,0 +1,126 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.maven;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import com.google.common.base.Optional;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.plugins.annotations.Component;
+import org.apache.maven.plugins.annotations.InstantiationStrategy;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+
+import net.wouterdanes.docker.provider.model.BuiltImageInfo;
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
+
+/**
+ * This class is responsible for saving built docker images to tar archives and attaching them to the project, so
+ * they're installed and deployed with the other artifacts of the project. The goal is called "save-images" and runs by
+ * default in the package phase. The archives can be loaded into another daemon with the "load-images" goal.
+ */
+@Mojo(defaultPhase = LifecyclePhase.PACKAGE, name = "save-images", threadSafe = true,
+        instantiationStrategy = InstantiationStrategy.PER_LOOKUP)
+public class SaveImagesMojo extends AbstractPreVerifyDockerMojo {
+
+    /**
+     * The directory in the build directory that archives are saved to.
+     */
+    public static final String ARCHIVE_DIRECTORY = "docker-images";
+
+    /**
+     * The artifact type of the attached archives.
+     */
+    public static final String ARCHIVE_TYPE = "tar";
+
+    /**
+     * The ids of the built images to save, all built images are saved when none are configured.
+     */
+    @Parameter
+    private List<String> images;
+
+    @Parameter(defaultValue = "${project}", readonly = true)
+    private MavenProject project;
+
+    @Component
+    private MavenProjectHelper projectHelper;
+
+    public void setImages(final List<String> images) {
+        this.images = images;
+    }
+
+    public void setProject(final MavenProject project) {
+        this.project = project;
+    }
+
+    public void setProjectHelper(final MavenProjectHelper projectHelper) {
+        this.projectHelper = projectHelper;
+    }
+
+    @Override
+    protected void doExecute() throws MojoExecutionException, MojoFailureException {
+        File directory = new File(getBuildDirectory(), ARCHIVE_DIRECTORY);
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new MojoExecutionException(String.format("Can't create directory %s", directory));
+        }
+        for (BuiltImageInfo image : getImagesToSave()) {
+            saveImage(image, new File(directory, image.getStartId() + "." + ARCHIVE_TYPE));
+        }
+    }
+
+    private Collection<BuiltImageInfo> getImagesToSave() throws MojoExecutionException {
+        if (images == null || images.isEmpty()) {
+            return getBuiltImages();
+        }
+        List<BuiltImageInfo> imagesToSave = new ArrayList<>(images.size());
+        for (String startId : images) {
+            Optional<BuiltImageInfo> image = getBuiltImageForStartId(startId);
+            if (!image.isPresent()) {
+                throw new MojoExecutionException(String.format("Image '%s' wasn't built, can't save it", startId));
+            }
+            imagesToSave.add(image.get());
+        }
+        return imagesToSave;
+    }
+
+    private void saveImage(BuiltImageInfo image, File archive) {
+        // saving by name keeps the name in the archive, an image saved by id is loaded without a name
+        String nameOrId = image.getNameAndTag().or(image.getImageId());
+        getLog().info(String.format("Saving image '%s' to %s", nameOrId, archive));
+        try {
+            getDockerProvider().saveImage(nameOrId, archive);
+        } catch (DockerException e) {
+            handleDockerException(String.format("Cannot save image '%s'", nameOrId), e);
+            return;
+        }
+        projectHelper.attachArtifact(project, ARCHIVE_TYPE, image.getStartId(), archive);
+    }
+
+    @Override
+    protected String getMojoGoalName() {
+        return "save-images";
+    }
+}
@@ -17,18 +17,28 @@
 
 package net.wouterdanes.docker.maven;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
 
 import javax.inject.Inject;
 
+import com.google.common.base.Charsets;
 import com.google.common.base.Optional;
 import com.google.common.base.Predicate;
 import com.google.common.collect.Collections2;
+import com.google.common.hash.Hashing;
 
 import org.apache.maven.plugin.MojoExecution;
 import org.apache.maven.plugin.MojoExecutionException;
@@ -44,8 +54,10 @@ import net.wouterdanes.docker.provider.model.BuiltImageInfo;
 import net.wouterdanes.docker.provider.model.ContainerStartConfiguration;
 import net.wouterdanes.docker.provider.model.ExposedPort;
 import net.wouterdanes.docker.remoteapi.exception.DockerException;
+import net.wouterdanes.docker.remoteapi.exception.ImageNotFoundException;
 import net.wouterdanes.docker.remoteapi.model.ContainerInspectionResult;
 import net.wouterdanes.docker.remoteapi.model.ContainerLink;
+import net.wouterdanes.docker.remoteapi.model.ImageInspectionResult;
 
 /**
  * This class is responsible for starting docking containers in the pre-integration phase of the maven build. The goal
@@ -55,6 +67,8 @@ import net.wouterdanes.docker.remoteapi.model.ContainerLink;
         threadSafe = true, instantiationStrategy = InstantiationStrategy.PER_LOOKUP)
 public class StartContainerMojo extends AbstractPreVerifyDockerMojo {
 
+    static final String SNAPSHOT_REPOSITORY_PREFIX = "docker-maven-plugin-snapshot/";
+
     @Parameter(required = true)
     private List<ContainerStartConfiguration> containers;
 
@@ -69,20 +83,87 @@ public class StartContainerMojo extends AbstractPreVerifyDockerMojo {
     @Parameter(defaultValue = "${mojoExecution}", readonly = true)
     private MojoExecution mojoExecution;
 
+    /**
+     * File to remember container startup timings in, they're used to start the slowest containers first. No timings
+     * are used or recorded when this isn't set.
+     */
+    @Parameter(defaultValue = "${project.build.directory}/docker-startup-timings.properties",
+            property = "docker.startupTimingsFile")
+    private File startupTimingsFile;
+
+    /**
+     * Maps the ids of containers that should be snapshot after startup to the image they were configured with
+     */
+    private final Map<String, String> snapshotCandidates = new HashMap<>();
+
+    /**
+     * Maps container ids to the time their creation started and the time it took to create and start them
+     */
+    private final Map<String, Long> creationTimes = new HashMap<>();
+    private final Map<String, Long> startDurations = new HashMap<>();
+    private final Map<String, Long> readyDurations = new HashMap<>();
+
+    /**
+     * Start the containers in the background and return immediately, the "await-containers" goal waits for them and
+     * exposes their ports to the project. Use this to bind this goal to an earlier phase, so the containers start up
+     * while the project is being compiled and tested.
+     */
+    @Parameter(defaultValue = "false", property = "docker.startContainers.async")
+    private boolean async;
+
+    /**
+     * Holds the port properties until the containers are awaited when starting in the background
+     */
+    private final Properties pendingProperties = new Properties();
+
     @Override
     public void doExecute() throws MojoExecutionException, MojoFailureException {
         if (hasDuplicateIds() || hasInvalidLinks()) {
             return;
         }
+        if (!async) {
+            startContainers();
+            return;
+        }
+
+        getLog().info("Starting containers in the background, the 'await-containers' goal waits for them..");
+        registerPendingContainerStart(getBackgroundTasks().submit(new Callable<Properties>() {
+            @Override
+            public Properties call() {
+                try {
+                    startContainers();
+                } catch (MojoExecutionException | MojoFailureException | RuntimeException e) {
+                    String message = "Failed to start containers in the background: " + e.getMessage();
+                    getLog().error(message, e);
+                    registerPluginError(new DockerPluginError(getMojoGoalName(), message));
+                }
+                return pendingProperties;
+            }
+        }));
+    }
+
+    private void startContainers() throws MojoExecutionException, MojoFailureException {
+        Optional<StartupTimings> timings = loadStartupTimings();
+        CriticalPathScheduler scheduler = new CriticalPathScheduler(containers, getKnownTimings(timings));
+        List<ContainerStartConfiguration> startOrder = scheduler.getStartOrder();
+        Optional<Long> predictedMillis = scheduler.predictStartupMillis(startOrder);
+        long stackStart = System.currentTimeMillis();
+
+        assignPlacementGroups();
         DockerProvider provider = getDockerProvider();
-        for (ContainerStartConfiguration configuration : containers) {
+        for (ContainerStartConfiguration configuration : startOrder) {
             replaceImageWithBuiltImageIdIfInternalId(configuration);
             replaceLinkedContainerIdsWithStartedNames(configuration);
             try {
+                replaceImageWithSnapshotIfAvailable(provider, configuration);
+                configuration.withLabels(getBuildSession().getLabels());
                 getLog().info(String.format("Starting container '%s'..", configuration.getId()));
+                long creationTime = System.currentTimeMillis();
                 ContainerInspectionResult container = provider.startContainer(configuration);
+                creationTimes.put(configuration.getId(), creationTime);
+                startDurations.put(configuration.getId(), System.currentTimeMillis() - creationTime);
                 String containerId = container.getId();
-                List<ExposedPort> exposedPorts = provider.getExposedPorts(containerId);
+                List<ExposedPort> exposedPorts = provider.getExposedPorts(container);
                 exposePortsToProject(configuration, exposedPorts);
                 getLog().info(String.format("Started container with id '%s'", containerId));
                 registerStartedContainer(configuration.getId(), container);
@@ -91,49 +172,217 @@ public class StartContainerMojo extends AbstractPreVerifyDockerMojo {
                 handleDockerException(message, e);
             }
         }
-        getLog().debug("Properties after exposing ports: " + project.getProperties());
+        getLog().debug("Properties after exposing ports: " + (async ? pendingProperties : project.getProperties()));
         waitForContainersToFinishStartup();
+
+        long actualMillis = System.currentTimeMillis() - stackStart;
+        if (predictedMillis.isPresent()) {
+            getLog().info(String.format("Containers started in %s ms, predicted was %s ms", actualMillis,
+                    predictedMillis.get()));
+        } else {
+            getLog().info(String.format("Containers started in %s ms", actualMillis));
+        }
+        saveStartupTimings(timings);
+    }
+
+    private Optional<StartupTimings> loadStartupTimings() {
+        if (startupTimingsFile == null) {
+            return Optional.absent();
+        }
+        return Optional.of(new StartupTimings(startupTimingsFile));
     }
 
+    private Map<String, StartupTimings.Timing> getKnownTimings(final Optional<StartupTimings> timings) {
+        Map<String, StartupTimings.Timing> known = new HashMap<>();
+        if (!timings.isPresent()) {
+            return known;
+        }
+        for (ContainerStartConfiguration configuration : containers) {
+            Optional<StartupTimings.Timing> timing = timings.get().get(getTimingKey(configuration));
+            if (timing.isPresent()) {
+                known.put(configuration.getId(), timing.get());
+            }
+        }
+        return known;
+    }
+
+    private void saveStartupTimings(final Optional<StartupTimings> timings) {
+        if (!timings.isPresent()) {
+            return;
+        }
+        for (ContainerStartConfiguration configuration : containers) {
+            String id = configuration.getId();
+            if (!startDurations.containsKey(id)) {
+                continue;
+            }
+            boolean waited = configuration.getWaitForStartup() != null;
+            if (waited && !readyDurations.containsKey(id)) {
+                // didn't finish startup, a timeout says nothing about how long it really takes
+                continue;
+            }
+            long ready = waited ? readyDurations.get(id) : startDurations.get(id);
+            timings.get().record(getTimingKey(configuration), new StartupTimings.Timing(startDurations.get(id), ready));
+        }
+        try {
+            timings.get().save();
+        } catch (IOException e) {
+            getLog().warn("Failed to save container startup timings to " + startupTimingsFile, e);
+        }
+    }
+
+    private String getTimingKey(final ContainerStartConfiguration configuration) {
+        if (project == null) {
+            return configuration.getId();
+        }
+        return project.getGroupId() + ':' + project.getArtifactId() + ':' + configuration.getId();
+    }
+
+    /**
+     * Waits for all containers with a startup pattern at the same time, so the moment each of them is ready is known.
+     */
     private void waitForContainersToFinishStartup() {
-        Collection<ContainerStartConfiguration> waiters =
-                Collections2.filter(containers, new Predicate<ContainerStartConfiguration>() {
-                    @Override
-                    public boolean apply(final ContainerStartConfiguration input) {
-                        return input.getWaitForStartup() != null;
-                    }
-                });
-        for (ContainerStartConfiguration container : waiters) {
-            Pattern pattern = Pattern.compile(container.getWaitForStartup());
+        Map<ContainerStartConfiguration, StartedContainerInfo> waiting = new LinkedHashMap<>();
+        for (ContainerStartConfiguration container : containers) {
             Optional<StartedContainerInfo> startedContainerInfo = getInfoForContainerStartId(container.getId());
-            if (!startedContainerInfo.isPresent()) {
-                continue;
+            if (container.getWaitForStartup() != null && startedContainerInfo.isPresent()) {
+                waiting.put(container, startedContainerInfo.get());
             }
-            StartedContainerInfo containerInfo = startedContainerInfo.get();
-            String containerId = containerInfo.getContainerInfo().getId();
-            long maxWait = System.currentTimeMillis() + 1000 * container.getStartupTimeout();
-            boolean finished = false;
-            while (System.currentTimeMillis() <= maxWait) {
-                String logs = getDockerProvider().getLogs(containerId);
+        }
+
+        long waitStart = System.currentTimeMillis();
+        boolean interrupted = false;
+        while (!waiting.isEmpty() && !interrupted) {
+            Iterator<Map.Entry<ContainerStartConfiguration, StartedContainerInfo>> iterator =
+                    waiting.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<ContainerStartConfiguration, StartedContainerInfo> entry = iterator.next();
+                ContainerStartConfiguration container = entry.getKey();
+                Pattern pattern = Pattern.compile(container.getWaitForStartup());
+                String logs = getDockerProvider().getLogs(entry.getValue().getContainerInfo().getId());
                 if (logs != null && pattern.matcher(logs).find()) {
                     getLog().info(String.format("Container '%s' has completed startup", container.getId()));
-                    finished = true;
-                    break;
+                    readyDurations.put(container.getId(),
+                            System.currentTimeMillis() - creationTimes.get(container.getId()));
+                    snapshotIfRequested(container, entry.getValue());
+                    iterator.remove();
+                } else if (System.currentTimeMillis() > waitStart + 1000 * container.getStartupTimeout()) {
+                    registerStartupTimeout(container);
+                    iterator.remove();
                 }
+            }
+            for (ContainerStartConfiguration container : waiting.keySet()) {
+                getLog().info(String.format("Waiting for container '%s' to finish startup (max %s sec.)",
+                        container.getId(), container.getStartupTimeout()));
+            }
+            if (!waiting.isEmpty()) {
                 try {
-                    getLog().info(String.format("Waiting for container '%s' to finish startup (max %s sec.)",
-                            container.getId(), container.getStartupTimeout()));
                     Thread.sleep(1000);
-                } catch (InterruptedException ignored) {
-                    break;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    interrupted = true;
                 }
             }
-            if (!finished) {
-                String message = String.format("Container %s did not finish startup in time", container.getId());
-                registerPluginError(new DockerPluginError(getMojoGoalName(), message));
-                getLog().error(message);
+        }
+        for (ContainerStartConfiguration container : waiting.keySet()) {
+            registerStartupTimeout(container);
+        }
+    }
+
+    private void registerStartupTimeout(final ContainerStartConfiguration container) {
+        String message = String.format("Container %s did not finish startup in time", container.getId());
+        registerPluginError(new DockerPluginError(getMojoGoalName(), message));
+        getLog().error(message);
+    }
+
+    private void replaceImageWithSnapshotIfAvailable(final DockerProvider provider,
+                                                     final ContainerStartConfiguration configuration) {
+        if (!configuration.isSnapshotAfterStartup()) {
+            return;
+        }
+        if (configuration.getWaitForStartup() == null) {
+            getLog().warn(String.format("Container '%s' wants a snapshot after startup, but doesn't specify " +
+                    "waitForStartup, not creating a snapshot.", configuration.getId()));
+            return;
+        }
+        String image = configuration.getImage();
+        snapshotCandidates.put(configuration.getId(), image);
+        try {
+            ImageInspectionResult imageInfo = provider.inspectImage(image);
+            String snapshot = getSnapshotNameAndTag(configuration, image, imageInfo.getId());
+            provider.inspectImage(snapshot);
+            getLog().info(String.format("Starting container '%s' from snapshot '%s'", configuration.getId(), snapshot));
+            configuration.fromImage(snapshot);
+            snapshotCandidates.remove(configuration.getId());
+        } catch (ImageNotFoundException ignored) {
+            // Either the image isn't pulled yet or there is no snapshot for this version of it, snapshot after startup
+        }
+    }
+
+    private void snapshotIfRequested(final ContainerStartConfiguration configuration,
+                                     final StartedContainerInfo containerInfo) {
+        String image = snapshotCandidates.remove(configuration.getId());
+        if (image == null) {
+            return;
+        }
+        ContainerInspectionResult container = containerInfo.getContainerInfo();
+        String snapshot = getSnapshotNameAndTag(configuration, image, container.getImageId());
+        getLog().info(String.format("Committing container '%s' to snapshot '%s'..", configuration.getId(), snapshot));
+        try {
+            getDockerProvider().commitContainer(container.getId(), snapshot, BuildSession.getReleasedLabels());
+        } catch (DockerException e) {
+            // A missing snapshot only costs time in the next build, so it shouldn't fail this one
+            getLog().warn(String.format("Failed to snapshot container '%s'", configuration.getId()), e);
+        }
+    }
+
+    /**
+     * Derives the name and tag of a snapshot image from the container configuration and the id of the image that the
+     * container is based on, so a new snapshot is made whenever either of them changes.
+     */
+    static String getSnapshotNameAndTag(ContainerStartConfiguration configuration, String image, String imageId) {
+        String name = configuration.getId().toLowerCase(Locale.ENGLISH).replaceAll("[^a-z0-9]+", "-");
+        String digest = Hashing.sha256()
+                .hashString(configuration.getId() + '\n' + image + '\n' + imageId + '\n'
+                        + configuration.getWaitForStartup(), Charsets.UTF_8)
+                .toString();
+        return SNAPSHOT_REPOSITORY_PREFIX + name + ':' + digest.substring(0, 12);
+    }
+
+    /**
+     * Puts containers that are linked together, directly or through other containers, in one placement group, so a
+     * provider that spreads containers over several docker hosts starts all of them on the same host.
+     */
+    private void assignPlacementGroups() {
+        Map<String, String> groups = new HashMap<>();
+        for (ContainerStartConfiguration configuration : containers) {
+            if (configuration.getId() != null) {
+                groups.put(configuration.getId(), configuration.getId());
+            }
+        }
+        for (ContainerStartConfiguration configuration : containers) {
+            for (ContainerLink link : configuration.getLinks()) {
+                String group = findPlacementGroup(groups, configuration.getId());
+                String linkedGroup = findPlacementGroup(groups, link.getContainerId());
+                if (!group.equals(linkedGroup)) {
+                    groups.put(group, linkedGroup);
+                }
+            }
+        }
+        String sessionId = getBuildSession().getId();
+        for (ContainerStartConfiguration configuration : containers) {
+            if (configuration.getId() == null) {
+                continue;
             }
+            configuration.inPlacementGroup(sessionId + '/' + findPlacementGroup(groups, configuration.getId()));
+        }
+    }
+
+    private static String findPlacementGroup(Map<String, String> groups, String containerId) {
+        String group = containerId;
+        while (!groups.get(group).equals(group)) {
+            group = groups.get(group);
         }
+        return group;
     }
 
     private boolean hasInvalidLinks() {
@@ -203,11 +452,19 @@ public class StartContainerMojo extends AbstractPreVerifyDockerMojo {
         this.project = project;
     }
 
+    public void setAsync(final boolean async) {
+        this.async = async;
+    }
+
     public void setMojoExecution(final MojoExecution mojoExecution) {
         this.mojoExecution = mojoExecution;
     }
 
     private void addPropertyToProject(String key, String value) {
+        if (async) {
+            pendingProperties.setProperty(key, value);
+            return;
+        }
         getLog().info(String.format("Setting property '%s' to '%s'", key, value));
         project.getProperties().setProperty(key, value);
     }
@@ -0,0 +1,162 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import com.google.common.base.Optional;
+
+/**
+ * This class is responsible for remembering how long containers took to start in earlier builds. The timings are kept
+ * in a properties file, per container two durations are stored in milliseconds: how long it took to create and start
+ * the container and how long it took until the container was ready (matched its "waitForStartup" pattern). New
+ * timings are averaged with the stored ones, so one slow build doesn't throw off the next one. Builds that share the
+ * file merge their timings into it under a file lock, so they don't lose each other's updates.
+ */
+public class StartupTimings {
+
+    private static final String START_SUFFIX = ".start";
+    private static final String READY_SUFFIX = ".ready";
+
+    private static final String LOCK_SUFFIX = ".lock";
+
+    private final File file;
+    private final Properties properties = new Properties();
+    private final Map<String, Timing> recorded = new LinkedHashMap<>();
+
+    public StartupTimings(final File file) {
+        this.file = file;
+        load();
+    }
+
+    public Optional<Timing> get(String key) {
+        Optional<Long> start = getLong(key + START_SUFFIX);
+        Optional<Long> ready = getLong(key + READY_SUFFIX);
+        if (!start.isPresent() || !ready.isPresent()) {
+            return Optional.absent();
+        }
+        return Optional.of(new Timing(start.get(), ready.get()));
+    }
+
+    public void record(String key, Timing timing) {
+        Timing previous = recorded.get(key);
+        recorded.put(key, previous != null ? average(previous, timing) : timing);
+    }
+
+    /**
+     * Merges the recorded timings into the ones in the file and writes them, other builds can read the file while
+     * it's being written. The merge holds a lock on a file next to it, so builds that save at the same time don't
+     * overwrite each other's timings.
+     *
+     * @throws IOException when the file can't be written
+     */
+    public void save() throws IOException {
+        File directory = file.getAbsoluteFile().getParentFile();
+        Files.createDirectories(directory.toPath());
+        Path lockFile = new File(directory, file.getName() + LOCK_SUFFIX).toPath();
+        try (FileChannel channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            // the lock is released when the channel is closed
+            channel.lock();
+            // another build may have saved its timings since they were loaded
+            load();
+            for (Map.Entry<String, Timing> timing : recorded.entrySet()) {
+                merge(timing.getKey(), timing.getValue());
+            }
+            File temp = File.createTempFile(file.getName(), ".tmp", directory);
+            try (OutputStream out = Files.newOutputStream(temp.toPath())) {
+                properties.store(out, "Container startup timings of the docker-maven-plugin");
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private void load() {
+        properties.clear();
+        if (file.isFile()) {
+            try (InputStream in = Files.newInputStream(file.toPath())) {
+                properties.load(in);
+            } catch (IOException | IllegalArgumentException ignored) {
+                // The timings are only used to speed things up, start without them if they can't be read
+            }
+        }
+    }
+
+    private void merge(String key, Timing timing) {
+        Optional<Timing> previous = get(key);
+        Timing average = previous.isPresent() ? average(previous.get(), timing) : timing;
+        properties.setProperty(key + START_SUFFIX, String.valueOf(average.getStartMillis()));
+        properties.setProperty(key + READY_SUFFIX, String.valueOf(average.getReadyMillis()));
+    }
+
+    private static Timing average(Timing first, Timing second) {
+        return new Timing((first.getStartMillis() + second.getStartMillis()) / 2,
+                (first.getReadyMillis() + second.getReadyMillis()) / 2);
+    }
+
+    private Optional<Long> getLong(String key) {
+        String value = properties.getProperty(key);
+        if (value == null) {
+            return Optional.absent();
+        }
+        try {
+            return Optional.of(Long.parseLong(value));
+        } catch (NumberFormatException e) {
+            return Optional.absent();
+        }
+    }
+
+    /**
+     * The startup timing of a single container
+     */
+    public static class Timing {
+
+        private final long startMillis;
+        private final long readyMillis;
+
+        public Timing(final long startMillis, final long readyMillis) {
+            this.startMillis = startMillis;
+            this.readyMillis = readyMillis;
+        }
+
+        /**
+         * @return the time it took to create and start the container, after which the next container can be started
+         */
+        public long getStartMillis() {
+            return startMillis;
+        }
+
+        /**
+         * @return the time from creating the container until it was ready
+         */
+        public long getReadyMillis() {
+            return readyMillis;
+        }
+    }
+}
@@ -17,23 +17,73 @@
 
 package net.wouterdanes.docker.maven;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
 
+import net.wouterdanes.docker.provider.DockerProvider;
 import net.wouterdanes.docker.provider.model.BuiltImageInfo;
 import net.wouterdanes.docker.remoteapi.exception.DockerException;
+import net.wouterdanes.docker.remoteapi.model.ImageHistoryEntry;
+import net.wouterdanes.docker.remoteapi.model.ImageSummary;
 
 /**
  * This class is responsible for stopping the docker containers that were started by the plugin. The goal
- * is called "stop-containers" and it's executed in the "post-integration-test" phase.
+ * is called "stop-containers" and it's executed in the "post-integration-test" phase. The images built by the plugin
+ * are removed too, unless they're kept or a retention policy keeps the most recently used images on the docker host.
  */
 @Mojo(name = "stop-containers", threadSafe = true, defaultPhase = LifecyclePhase.POST_INTEGRATION_TEST)
 public class StopContainerMojo extends AbstractPreVerifyDockerMojo {
 
+    private static final List<String> MANAGED_FILTER = Collections.singletonList(BuildSession.MANAGED_FILTER);
+
+    /**
+     * Keep the images the plugin built on the docker host instead of removing them, up to this number of the most
+     * recently used images per name. Older ones are removed, of this build and earlier builds.
+     */
+    @Parameter(property = "docker.retention.imagesPerName")
+    private Integer retainImagesPerName;
+
+    /**
+     * Keep the images the plugin built on the docker host instead of removing them, as long as they take up to this
+     * number of megabytes together. Layers that images share are counted once. The least recently used ones are
+     * removed first.
+     */
+    @Parameter(property = "docker.retention.maxMb")
+    private Long retainMaxMb;
+
+    /**
+     * The number of images to remove at the same time when one of the retention limits is set.
+     */
+    @Parameter(defaultValue = "4", property = "docker.retention.parallelism")
+    private int retentionParallelism;
+
+    public void setRetainImagesPerName(final Integer retainImagesPerName) {
+        this.retainImagesPerName = retainImagesPerName;
+    }
+
+    public void setRetainMaxMb(final Long retainMaxMb) {
+        this.retainMaxMb = retainMaxMb;
+    }
+
+    public void setRetentionParallelism(final int retentionParallelism) {
+        this.retentionParallelism = retentionParallelism;
+    }
+
     @Override
     public void doExecute() throws MojoExecutionException, MojoFailureException {
+        // containers that are still starting in the background need to be stopped too
+        awaitPendingContainerStarts();
         for (StartedContainerInfo container : getStartedContainers()) {
             String containerId = container.getContainerInfo().getId();
             getLog().info(String.format("Stopping container '%s'..", containerId));
@@ -52,6 +102,12 @@ public class StopContainerMojo extends AbstractPreVerifyDockerMojo {
                 getLog().error("Failed to delete container", e);
             }
         }
+        ImageRetentionPolicy retentionPolicy = new ImageRetentionPolicy(retainImagesPerName,
+                retainMaxMb != null ? retainMaxMb * 1024 * 1024 : null);
+        if (retentionPolicy.isEnabled()) {
+            applyRetentionPolicy(retentionPolicy);
+            return;
+        }
         for (BuiltImageInfo image : getBuiltImages()) {
             if (image.shouldKeepAfterStopping()) {
                 getLog().info(String.format("Keeping image %s", image.getImageId()));
@@ -68,6 +124,129 @@ public class StopContainerMojo extends AbstractPreVerifyDockerMojo {
         }
     }
 
+    /**
+     * Removes the dangling images the plugin built, like earlier builds of images that were rebuilt under the same
+     * name, and the images that fall outside of the retention policy. The images of this build are kept.
+     */
+    private void applyRetentionPolicy(final ImageRetentionPolicy retentionPolicy) {
+        final DockerProvider provider = getDockerProvider();
+        Set<String> retained = new HashSet<>();
+        for (BuiltImageInfo image : getBuiltImages()) {
+            retained.add(image.getImageId());
+        }
+
+        List<ImageSummary> dangling = new ArrayList<>();
+        List<ImageSummary> evictions;
+        try {
+            List<ImageSummary> danglingImages = getManagedImages(provider.listDanglingImages(MANAGED_FILTER));
+            List<ImageSummary> listedImages = getManagedImages(provider.listImages(MANAGED_FILTER));
+            retained.addAll(getImagesOfConcurrentBuilds(danglingImages, listedImages));
+
+            Set<String> danglingIds = new HashSet<>();
+            for (ImageSummary image : danglingImages) {
+                if (!ImageRetentionPolicy.isRetained(image, retained)) {
+                    dangling.add(image);
+                }
+                danglingIds.add(image.getId());
+            }
+            List<ImageSummary> images = new ArrayList<>();
+            for (ImageSummary image : listedImages) {
+                if (!danglingIds.contains(image.getId())) {
+                    images.add(image);
+                }
+            }
+            evictions = retentionPolicy.selectEvictions(images, retained, getHistories(images));
+        } catch (DockerException e) {
+            getLog().error("Failed to list the images built by the plugin", e);
+            return;
+        }
+
+        getLog().info(String.format("Removing %s dangling and %s least recently used image(s) built by the plugin..",
+                dangling.size(), evictions.size()));
+        List<ImageSummary> removals = new ArrayList<>(dangling);
+        removals.addAll(evictions);
+        Map<ImageSummary, Throwable> failures = ConcurrentTasks.forEach(removals, retentionParallelism,
+                new ConcurrentTasks.Task<ImageSummary>() {
+                    @Override
+                    public void run(final ImageSummary image) {
+                        removeImageAndTags(provider, image);
+                    }
+                });
+        for (Map.Entry<ImageSummary, Throwable> failure : failures.entrySet()) {
+            getLog().warn(String.format("Failed to remove image '%s'", failure.getKey().getId()), failure.getValue());
+        }
+    }
+
+    /**
+     * Kept and pushed images are released from their session, the retention policy doesn't touch them.
+     */
+    private static List<ImageSummary> getManagedImages(final List<ImageSummary> images) {
+        List<ImageSummary> managed = new ArrayList<>();
+        for (ImageSummary image : images) {
+            if (BuildSession.isManaged(image.getLabels())) {
+                managed.add(image);
+            }
+        }
+        return managed;
+    }
+
+    /**
+     * Finds the images of other builds that may still be running, they could be about to start containers from them.
+     * Those are the images of other sessions that were created since this session started, which is when this session
+     * created its first image or when the plugin ran first, whichever is earlier.
+     */
+    private Set<String> getImagesOfConcurrentBuilds(final List<ImageSummary> danglingImages,
+                                                    final List<ImageSummary> listedImages) {
+        String sessionId = getBuildSession().getId();
+        List<ImageSummary> images = new ArrayList<>(danglingImages);
+        images.addAll(listedImages);
+
+        long sessionStart = getBuildSession().getCreated();
+        for (ImageSummary image : images) {
+            if (sessionId.equals(image.getLabels().get(BuildSession.SESSION_LABEL))) {
+                sessionStart = Math.min(sessionStart, image.getCreated());
+            }
+        }
+        Set<String> concurrent = new HashSet<>();
+        for (ImageSummary image : images) {
+            if (image.getCreated() >= sessionStart
+                    && !sessionId.equals(image.getLabels().get(BuildSession.SESSION_LABEL))) {
+                concurrent.add(image.getId());
+            }
+        }
+        if (!concurrent.isEmpty()) {
+            getLog().info(String.format("Keeping %s image(s) of builds that ran at the same time", concurrent.size()));
+        }
+        return concurrent;
+    }
+
+    /**
+     * Reads the histories of the images when the size of the images is limited, so the layers they share are only
+     * counted once. An image whose history can't be read counts with its full size.
+     */
+    private Map<String, List<ImageHistoryEntry>> getHistories(final List<ImageSummary> images) {
+        final Map<String, List<ImageHistoryEntry>> histories = new ConcurrentHashMap<>();
+        if (retainMaxMb == null) {
+            return histories;
+        }
+        final DockerProvider provider = getDockerProvider();
+        Map<ImageSummary, Throwable> failures = ConcurrentTasks.forEach(images, retentionParallelism,
+                new ConcurrentTasks.Task<ImageSummary>() {
+                    @Override
+                    public void run(final ImageSummary image) {
+                        List<ImageHistoryEntry> history = provider.getImageHistory(image.getId());
+                        if (history != null) {
+                            histories.put(image.getId(), history);
+                        }
+                    }
+                });
+        for (Map.Entry<ImageSummary, Throwable> failure : failures.entrySet()) {
+            getLog().debug(String.format("Can't read the history of image '%s', counting its full size: %s",
+                    failure.getKey().getId(), failure.getValue().getMessage()));
+        }
+        return histories;
+    }
+
     @Override
     protected String getMojoGoalName() {
         return "stop-containers";
@@ -17,7 +17,11 @@
 
 package net.wouterdanes.docker.maven;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import com.google.common.base.Optional;
 
@@ -30,10 +34,13 @@ import org.apache.maven.plugins.annotations.Parameter;
 
 import net.wouterdanes.docker.provider.model.BuiltImageInfo;
 import net.wouterdanes.docker.provider.model.ImageTagConfiguration;
+import net.wouterdanes.docker.provider.model.PushableImage;
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
 
 /**
  * This class is responsible for tagging docking images in the install phase of the maven build. The goal is called
- * "tag-images"
+ * "tag-images". All tags of all images are applied in one batch by a single provider, a number of them at the same
+ * time, and the tags that fail are reported together.
  */
 @Mojo(defaultPhase = LifecyclePhase.INSTALL, name = "tag-images", threadSafe = true,
         instantiationStrategy = InstantiationStrategy.PER_LOOKUP)
@@ -42,22 +49,59 @@ public class TagImageMojo extends AbstractDockerMojo {
     @Parameter(required = true)
     private List<ImageTagConfiguration> images;
 
+    /**
+     * The maximum number of tags to apply at the same time
+     */
+    @Parameter(defaultValue = "4", property = "docker.tagImages.parallelism")
+    private int parallelism;
+
     public void setImages(final List<ImageTagConfiguration> images) {
         this.images = images;
     }
 
+    public void setParallelism(final int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     @Override
     protected void doExecute() throws MojoExecutionException, MojoFailureException {
+        Map<String, List<String>> tags = new LinkedHashMap<>();
+        Map<String, String> imagesByTag = new HashMap<>();
+        List<PushableImage> pushes = new ArrayList<>();
         for (ImageTagConfiguration config : images) {
             if (!config.getTags().isEmpty()) {
-                applyTagsToImage(config);
+                collectTags(config, tags, imagesByTag, pushes);
+            }
+        }
+        if (tags.isEmpty()) {
+            return;
+        }
+
+        Map<String, DockerException> failures;
+        try {
+            for (Map.Entry<String, List<String>> image : tags.entrySet()) {
+                getLog().info(String.format("Tagging image '%s' with tags %s..", image.getKey(), image.getValue()));
+            }
+            failures = getDockerProvider().tagImages(tags, parallelism);
+        } catch (DockerException e) {
+            handleDockerException(String.format("Failed to add tags to images %s", tags.keySet()), e);
+            return;
+        }
+
+        for (PushableImage push : pushes) {
+            if (!failures.containsKey(push.getNameAndTag().get())) {
+                enqueueForPushing(push.getImageId(), push.getNameAndTag());
             }
         }
+        if (!failures.isEmpty()) {
+            reportFailures(tags, failures);
+        }
     }
 
-    private void applyTagsToImage(ImageTagConfiguration config) throws MojoFailureException {
+    private void collectTags(ImageTagConfiguration config, Map<String, List<String>> tags,
+                             Map<String, String> imagesByTag, List<PushableImage> pushes)
+            throws MojoFailureException {
         String imageId = config.getId();
-        boolean push = config.isPush();
         Optional<String> registry = Optional.fromNullable(config.getRegistry());
 
         Optional<BuiltImageInfo> builtInfo = getBuiltImageForStartId(imageId);
@@ -66,12 +110,55 @@ public class TagImageMojo extends AbstractDockerMojo {
             registry = registry.or(builtInfo.get().getRegistry());
         }
 
+        if (!tags.containsKey(imageId)) {
+            tags.put(imageId, new ArrayList<String>());
+        }
+        List<String> imageTags = tags.get(imageId);
         for (String nameAndTag : config.getTags()) {
-            attachTag(imageId, nameAndTag);
-            if (push) {
-                enqueueForPushing(imageId, Optional.fromNullable(nameAndTag), registry);
+            addTag(imageId, nameAndTag, imageTags, imagesByTag);
+            if (!config.isPush()) {
+                continue;
+            }
+            if (registry.isPresent()) {
+                // the image is pushed with the name extended with the registry, so that tag is applied too
+                String registryNameAndTag = registry.get() + "/" + nameAndTag;
+                addTag(imageId, registryNameAndTag, imageTags, imagesByTag);
+                pushes.add(new PushableImage(imageId, Optional.of(registryNameAndTag)));
+            } else {
+                pushes.add(new PushableImage(imageId, Optional.of(nameAndTag)));
+            }
+        }
+    }
+
+    /**
+     * Adds a tag to the tags of an image. The tags of a batch are applied at the same time, so a tag that is assigned
+     * to two images would end up on either of them.
+     */
+    private static void addTag(String imageId, String nameAndTag, List<String> imageTags,
+                               Map<String, String> imagesByTag) throws MojoFailureException {
+        String taggedImageId = imagesByTag.get(nameAndTag);
+        if (taggedImageId == null) {
+            imagesByTag.put(nameAndTag, imageId);
+            imageTags.add(nameAndTag);
+        } else if (!taggedImageId.equals(imageId)) {
+            throw new MojoFailureException(String.format("Tag '%s' is assigned to both image '%s' and image '%s'",
+                    nameAndTag, taggedImageId, imageId));
+        }
+    }
+
+    private void reportFailures(Map<String, List<String>> tags, Map<String, DockerException> failures)
+            throws MojoFailureException {
+        StringBuilder message = new StringBuilder(String.format("Failed to add %d tag(s):", failures.size()));
+        for (Map.Entry<String, List<String>> image : tags.entrySet()) {
+            for (String nameAndTag : image.getValue()) {
+                DockerException failure = failures.get(nameAndTag);
+                if (failure != null) {
+                    message.append(String.format("%n  tag '%s' on image '%s': %s", nameAndTag, image.getKey(),
+                            failure.getMessage()));
+                }
             }
         }
+        handleDockerException(message.toString(), failures.values().iterator().next());
     }
 
-}
\ No newline at end of file
+}
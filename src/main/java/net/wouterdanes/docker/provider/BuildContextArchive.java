@@ -0,0 +1,122 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.provider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.common.hash.Hashing;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipParameters;
+
+import net.wouterdanes.docker.provider.model.ImageBuildConfiguration;
+
+/**
+ * This class is responsible for creating the gzipped tar that is sent to the daemon as the build context of an image.
+ * In reproducible mode the same files always give the same bytes: entries are sorted by name, owned by root, get
+ * fixed timestamps and permissions, and the gzip header has no timestamp. The digest of such an archive identifies the
+ * context, so it can be used as a cache key.
+ */
+public final class BuildContextArchive {
+
+    private static final Date REPRODUCIBLE_DATE = new Date(0);
+    private static final int FILE_MODE = 0100644;
+    private static final int EXECUTABLE_FILE_MODE = 0100755;
+
+    private BuildContextArchive() {
+    }
+
+    static byte[] create(final ImageBuildConfiguration image) {
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try {
+            write(image, baos);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to create output archive", e);
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * Writes the build context archive of an image to a stream, the stream is closed afterwards. The files of the
+     * image are put in the root of the archive, the context entries (artifacts and dependencies) under their path.
+     * Both are streamed into the archive.
+     *
+     * @param image  the image to write the context of
+     * @param output the stream to write the archive to
+     * @throws IOException when the files of the image can't be read or the archive can't be written
+     */
+    public static void write(final ImageBuildConfiguration image, final OutputStream output) throws IOException {
+        Map<String, File> entries = image.isReproducible()
+                ? new TreeMap<String, File>()
+                : new LinkedHashMap<String, File>();
+        for (File file : image.getFiles()) {
+            entries.put(file.getName(), file);
+        }
+        entries.putAll(image.getContextEntries());
+
+        GzipParameters gzipParameters = new GzipParameters();
+        if (image.isReproducible()) {
+            gzipParameters.setModificationTime(0);
+        }
+        try (
+                GzipCompressorOutputStream gzipStream = new GzipCompressorOutputStream(output, gzipParameters);
+                TarArchiveOutputStream tar = new TarArchiveOutputStream(gzipStream)
+        ) {
+            tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+            for (Map.Entry<String, File> entry : entries.entrySet()) {
+                File file = entry.getValue();
+                TarArchiveEntry tarEntry = image.isReproducible()
+                        ? newReproducibleEntry(entry.getKey(), file)
+                        : new TarArchiveEntry(file, entry.getKey());
+                tar.putArchiveEntry(tarEntry);
+                Files.copy(file.toPath(), tar);
+                tar.closeArchiveEntry();
+            }
+        }
+    }
+
+    /**
+     * @param archive the archive
+     * @return the digest of the archive, like <code>sha256:4a6f..</code>
+     */
+    static String digest(final byte[] archive) {
+        return "sha256:" + Hashing.sha256().hashBytes(archive);
+    }
+
+    private static TarArchiveEntry newReproducibleEntry(final String name, final File file) {
+        TarArchiveEntry entry = new TarArchiveEntry(name);
+        entry.setSize(file.length());
+        entry.setModTime(REPRODUCIBLE_DATE);
+        entry.setMode(file.canExecute() ? EXECUTABLE_FILE_MODE : FILE_MODE);
+        entry.setUserId(0);
+        entry.setGroupId(0);
+        entry.setUserName("root");
+        entry.setGroupName("root");
+        return entry;
+    }
+}
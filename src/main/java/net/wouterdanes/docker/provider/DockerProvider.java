@@ -17,15 +17,22 @@
 
 package net.wouterdanes.docker.provider;
 
+import java.io.File;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.maven.plugin.logging.Log;
 
 import net.wouterdanes.docker.provider.model.ContainerStartConfiguration;
 import net.wouterdanes.docker.provider.model.ExposedPort;
 import net.wouterdanes.docker.provider.model.ImageBuildConfiguration;
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
 import net.wouterdanes.docker.remoteapi.model.ContainerInspectionResult;
+import net.wouterdanes.docker.remoteapi.model.ContainerSummary;
 import net.wouterdanes.docker.remoteapi.model.Credentials;
+import net.wouterdanes.docker.remoteapi.model.ImageHistoryEntry;
+import net.wouterdanes.docker.remoteapi.model.ImageInspectionResult;
+import net.wouterdanes.docker.remoteapi.model.ImageSummary;
 
 /**
  * This interface represents an implementation that provides Docker functionality. Examples are:
@@ -70,6 +77,13 @@ public interface DockerProvider {
      */
     List<ExposedPort> getExposedPorts(String containerId);
 
+    /**
+     * Returns a list of ports exposed by a container that was just inspected, without talking to docker again
+     * @param container the inspection result of a started container
+     * @return {@link List} of {@link net.wouterdanes.docker.provider.model.ExposedPort}s
+     */
+    List<ExposedPort> getExposedPorts(ContainerInspectionResult container);
+
     /**
      * Builds a new Docker Image based on the passed configuration and returns the id of the newly created image.
      * @param image the image configuration to use
@@ -77,6 +91,13 @@ public interface DockerProvider {
      */
     String buildImage(ImageBuildConfiguration image);
 
+    /**
+     * Creates an image from the rootfs directory of the image configuration, applying its env and cmd
+     * @param image the image configuration
+     * @return the ID of the created image
+     */
+    String importImage(ImageBuildConfiguration image);
+
     /**
      * Removes an image from docker
      * @param imageId the Id of the images to remove
@@ -96,6 +117,81 @@ public interface DockerProvider {
      */
     void tagImage(String imageId, String nameAndTag);
 
+    /**
+     * Associates images with new repo/tags. The tags are applied concurrently over the connections of this provider,
+     * a failing tag doesn't stop the others.
+     * @param tags the repo/tags to assign per image Id
+     * @param parallelism the maximum number of tags to apply at the same time
+     * @return the failures per repo/tag, empty when all tags were applied
+     */
+    Map<String, DockerException> tagImages(Map<String, List<String>> tags, int parallelism);
+
+    /**
+     * Returns information about an image that is present on the docker host
+     * @param image the Id or name of the image
+     * @return the inspection result of the image
+     * @throws net.wouterdanes.docker.remoteapi.exception.ImageNotFoundException when the image isn't present
+     */
+    ImageInspectionResult inspectImage(String image);
+
+    /**
+     * Returns the layers of an image that is present on the docker host, newest first
+     * @param image the Id or name of the image
+     * @return the layers of the image with the instructions that created them
+     * @throws net.wouterdanes.docker.remoteapi.exception.ImageNotFoundException when the image isn't present
+     */
+    List<ImageHistoryEntry> getImageHistory(String image);
+
+    /**
+     * Creates a new image from the current state of a container
+     * @param containerId the Id of the container to commit
+     * @param nameAndTag the repo/tag to assign to the new image
+     * @param labels the labels of the new image, these replace labels with the same name of the container
+     * @return the id of the new Docker Image
+     */
+    String commitContainer(String containerId, String nameAndTag, Map<String, String> labels);
+
+    /**
+     * Pulls an image from its registry
+     * @param image the name and tag of the image
+     */
+    void pullImage(String image);
+
+    /**
+     * Saves an image to a tar archive, like <code>docker save</code>
+     * @param image the name or id of the image
+     * @param destination the file to write the archive to
+     */
+    void saveImage(String image, File destination);
+
+    /**
+     * Loads the images in a tar archive, like <code>docker load</code>
+     * @param archive the archive to load
+     */
+    void loadImage(File archive);
+
+    /**
+     * Returns all containers, running or not, that carry the passed labels
+     * @param labelFilters label names or "name=value" pairs the containers must have
+     * @return the matching containers
+     */
+    List<ContainerSummary> listContainers(List<String> labelFilters);
+
+    /**
+     * Returns the images that carry the passed labels
+     * @param labelFilters label names or "name=value" pairs the images must have
+     * @return the matching images
+     */
+    List<ImageSummary> listImages(List<String> labelFilters);
+
+    /**
+     * Lists the dangling images, images without a tag that aren't the parent of another image, that carry all passed
+     * labels
+     * @param labelFilters label names or "name=value" pairs the images must have
+     * @return the matching images
+     */
+    List<ImageSummary> listDanglingImages(List<String> labelFilters);
+
     /**
      * Returns the logs of the specified container
      * @param containerId the Id of the container
@@ -52,8 +52,7 @@ public class LocalDockerProvider extends RemoteApiBasedDockerProvider {
     }
 
     @Override
-    public List<ExposedPort> getExposedPorts(final String containerId) {
-        ContainerInspectionResult containerInspectionResult = getContainersService().inspectContainer(containerId);
+    public List<ExposedPort> getExposedPorts(final ContainerInspectionResult containerInspectionResult) {
         if (containerInspectionResult.getNetworkSettings().getPorts().isEmpty()) {
             return Collections.emptyList();
         }
@@ -0,0 +1,518 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.provider;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.ws.rs.NotFoundException;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Optional;
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+
+import org.apache.maven.plugin.logging.Log;
+
+import net.wouterdanes.docker.provider.model.ContainerStartConfiguration;
+import net.wouterdanes.docker.provider.model.ExposedPort;
+import net.wouterdanes.docker.provider.model.ImageBuildConfiguration;
+import net.wouterdanes.docker.remoteapi.exception.ContainerNotFoundException;
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
+import net.wouterdanes.docker.remoteapi.exception.ImageNotFoundException;
+import net.wouterdanes.docker.remoteapi.model.ContainerInspectionResult;
+import net.wouterdanes.docker.remoteapi.model.ContainerLink;
+import net.wouterdanes.docker.remoteapi.model.ContainerSummary;
+import net.wouterdanes.docker.remoteapi.model.Credentials;
+import net.wouterdanes.docker.remoteapi.model.ImageHistoryEntry;
+import net.wouterdanes.docker.remoteapi.model.ImageInspectionResult;
+import net.wouterdanes.docker.remoteapi.model.ImageSummary;
+
+/**
+ * This class is responsible for spreading image builds and containers over several docker hosts. The hosts are
+ * specified as a comma separated list of host:port pairs:
+ * <pre>-D{@value #DOCKER_HOSTS_PROPERTY}=host1:4243,host2:4243</pre>
+ *
+ * New images and containers go to the host with the least images being built and containers running for this build.
+ * Containers in the same placement group, which the plugin uses for containers that are linked together, are started on
+ * the same host. Containers of an image that was built or committed by the plugin are started on the host that has the
+ * image, unless they have to run next to the containers of their group; the image is copied to that host then.
+ * Everything else that targets an existing container or image goes to the host that owns it. When no hosts are
+ * specified, it falls back to the host the "remote" provider uses.
+ */
+public class MultiDockerProvider implements DockerProvider {
+
+    public static final String DOCKER_HOSTS_PROPERTY = "docker.hosts";
+
+    // providers are created for every call, so which host owns what has to be shared between the instances
+    private static final ConcurrentMap<String, String> CONTAINER_HOSTS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, String> IMAGE_HOSTS = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, AtomicInteger> HOST_LOAD = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, String> GROUP_HOSTS = new ConcurrentHashMap<>();
+    private static final Set<String> IMAGE_COPIES = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    private final Map<String, DockerProvider> delegates;
+
+    public MultiDockerProvider() {
+        this(createDelegates(System.getProperty(DOCKER_HOSTS_PROPERTY)));
+    }
+
+    @VisibleForTesting
+    MultiDockerProvider(final Map<String, DockerProvider> delegates) {
+        this.delegates = delegates;
+        for (String host : delegates.keySet()) {
+            HOST_LOAD.putIfAbsent(host, new AtomicInteger());
+        }
+    }
+
+    @Override
+    public void setCredentials(final Credentials credentials) {
+        for (DockerProvider delegate : delegates.values()) {
+            delegate.setCredentials(credentials);
+        }
+    }
+
+    @Override
+    public ContainerInspectionResult startContainer(final ContainerStartConfiguration configuration) {
+        String host = chooseHostFor(configuration);
+        AtomicInteger load = HOST_LOAD.get(host);
+        load.incrementAndGet();
+        ContainerInspectionResult container;
+        try {
+            container = delegates.get(host).startContainer(configuration);
+        } catch (RuntimeException e) {
+            load.decrementAndGet();
+            throw e;
+        }
+        CONTAINER_HOSTS.put(container.getId(), host);
+        if (container.getName() != null) {
+            CONTAINER_HOSTS.put(container.getName(), host);
+        }
+        return container;
+    }
+
+    @Override
+    public void stopContainer(final String containerId) {
+        onHostOfContainer(containerId, new Call<Void>() {
+            @Override
+            public Void on(final DockerProvider delegate) {
+                delegate.stopContainer(containerId);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void deleteContainer(final String containerId) {
+        onHostOfContainer(containerId, new Call<Void>() {
+            @Override
+            public Void on(final DockerProvider delegate) {
+                delegate.deleteContainer(containerId);
+                return null;
+            }
+        });
+        String host = CONTAINER_HOSTS.remove(containerId);
+        if (host != null) {
+            HOST_LOAD.get(host).decrementAndGet();
+        }
+    }
+
+    @Override
+    public List<ExposedPort> getExposedPorts(final String containerId) {
+        return onHostOfContainer(containerId, new Call<List<ExposedPort>>() {
+            @Override
+            public List<ExposedPort> on(final DockerProvider delegate) {
+                return delegate.getExposedPorts(containerId);
+            }
+        });
+    }
+
+    @Override
+    public List<ExposedPort> getExposedPorts(final ContainerInspectionResult container) {
+        // the host in the exposed ports is the one of the delegate that started the container
+        return delegates.get(hostOfContainer(container.getId())).getExposedPorts(container);
+    }
+
+    @Override
+    public String buildImage(final ImageBuildConfiguration image) {
+        return createImageOnLeastLoadedHost(image, new Call<String>() {
+            @Override
+            public String on(final DockerProvider delegate) {
+                return delegate.buildImage(image);
+            }
+        });
+    }
+
+    @Override
+    public String importImage(final ImageBuildConfiguration image) {
+        return createImageOnLeastLoadedHost(image, new Call<String>() {
+            @Override
+            public String on(final DockerProvider delegate) {
+                return delegate.importImage(image);
+            }
+        });
+    }
+
+    private String createImageOnLeastLoadedHost(final ImageBuildConfiguration image, final Call<String> create) {
+        String host = leastLoadedHost();
+        AtomicInteger load = HOST_LOAD.get(host);
+        load.incrementAndGet();
+        String imageId;
+        try {
+            imageId = create.on(delegates.get(host));
+        } finally {
+            load.decrementAndGet();
+        }
+        IMAGE_HOSTS.put(imageId, host);
+        if (image.getNameAndTag() != null) {
+            IMAGE_HOSTS.put(image.getNameAndTag(), host);
+        }
+        return imageId;
+    }
+
+    @Override
+    public void removeImage(final String imageId) {
+        onHostOfImage(imageId, new Call<Void>() {
+            @Override
+            public Void on(final DockerProvider delegate) {
+                delegate.removeImage(imageId);
+                return null;
+            }
+        });
+        IMAGE_HOSTS.remove(imageId);
+    }
+
+    @Override
+    public void pushImage(final String nameAndTag) {
+        onHostOfImage(nameAndTag, new Call<Void>() {
+            @Override
+            public Void on(final DockerProvider delegate) {
+                delegate.pushImage(nameAndTag);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void tagImage(final String imageId, final String nameAndTag) {
+        onHostOfImage(imageId, new Call<Void>() {
+            @Override
+            public Void on(final DockerProvider delegate) {
+                delegate.tagImage(imageId, nameAndTag);
+                return null;
+            }
+        });
+        String host = IMAGE_HOSTS.get(imageId);
+        if (host != null) {
+            IMAGE_HOSTS.put(nameAndTag, host);
+        }
+    }
+
+    @Override
+    public Map<String, DockerException> tagImages(final Map<String, List<String>> tags, final int parallelism) {
+        Map<String, DockerException> failures = new LinkedHashMap<>();
+        Map<String, Map<String, List<String>>> tagsPerHost = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> image : tags.entrySet()) {
+            String host = IMAGE_HOSTS.get(image.getKey());
+            if (host == null || !delegates.containsKey(host)) {
+                // the owner of the image is found by trying every host
+                for (String nameAndTag : image.getValue()) {
+                    try {
+                        tagImage(image.getKey(), nameAndTag);
+                    } catch (DockerException e) {
+                        failures.put(nameAndTag, e);
+                    }
+                }
+                continue;
+            }
+            if (!tagsPerHost.containsKey(host)) {
+                tagsPerHost.put(host, new LinkedHashMap<String, List<String>>());
+            }
+            tagsPerHost.get(host).put(image.getKey(), image.getValue());
+        }
+
+        for (Map.Entry<String, Map<String, List<String>>> host : tagsPerHost.entrySet()) {
+            Map<String, DockerException> hostFailures = delegates.get(host.getKey())
+                    .tagImages(host.getValue(), parallelism);
+            failures.putAll(hostFailures);
+            for (List<String> imageTags : host.getValue().values()) {
+                for (String nameAndTag : imageTags) {
+                    if (!hostFailures.containsKey(nameAndTag)) {
+                        IMAGE_HOSTS.put(nameAndTag, host.getKey());
+                    }
+                }
+            }
+        }
+        return failures;
+    }
+
+    @Override
+    public ImageInspectionResult inspectImage(final String image) {
+        return onHostOfImage(image, new Call<ImageInspectionResult>() {
+            @Override
+            public ImageInspectionResult on(final DockerProvider delegate) {
+                return delegate.inspectImage(image);
+            }
+        });
+    }
+
+    @Override
+    public List<ImageHistoryEntry> getImageHistory(final String image) {
+        return onHostOfImage(image, new Call<List<ImageHistoryEntry>>() {
+            @Override
+            public List<ImageHistoryEntry> on(final DockerProvider delegate) {
+                return delegate.getImageHistory(image);
+            }
+        });
+    }
+
+    @Override
+    public String commitContainer(final String containerId, final String nameAndTag,
+                                  final Map<String, String> labels) {
+        String imageId = onHostOfContainer(containerId, new Call<String>() {
+            @Override
+            public String on(final DockerProvider delegate) {
+                return delegate.commitContainer(containerId, nameAndTag, labels);
+            }
+        });
+        String host = CONTAINER_HOSTS.get(containerId);
+        IMAGE_HOSTS.put(imageId, host);
+        IMAGE_HOSTS.put(nameAndTag, host);
+        return imageId;
+    }
+
+    @Override
+    public void pullImage(final String image) {
+        for (DockerProvider delegate : delegates.values()) {
+            delegate.pullImage(image);
+        }
+    }
+
+    @Override
+    public void saveImage(final String image, final File destination) {
+        onHostOfImage(image, new Call<Void>() {
+            @Override
+            public Void on(final DockerProvider delegate) {
+                delegate.saveImage(image, destination);
+                return null;
+            }
+        });
+    }
+
+    @Override
+    public void loadImage(final File archive) {
+        // containers of the loaded images can be started on any host
+        for (DockerProvider delegate : delegates.values()) {
+            delegate.loadImage(archive);
+        }
+    }
+
+    @Override
+    public List<ContainerSummary> listContainers(final List<String> labelFilters) {
+        List<ContainerSummary> containers = new ArrayList<>();
+        for (DockerProvider delegate : delegates.values()) {
+            containers.addAll(delegate.listContainers(labelFilters));
+        }
+        return containers;
+    }
+
+    @Override
+    public List<ImageSummary> listImages(final List<String> labelFilters) {
+        List<ImageSummary> images = new ArrayList<>();
+        for (DockerProvider delegate : delegates.values()) {
+            images.addAll(delegate.listImages(labelFilters));
+        }
+        return images;
+    }
+
+    @Override
+    public List<ImageSummary> listDanglingImages(final List<String> labelFilters) {
+        List<ImageSummary> images = new ArrayList<>();
+        for (DockerProvider delegate : delegates.values()) {
+            images.addAll(delegate.listDanglingImages(labelFilters));
+        }
+        return images;
+    }
+
+    @Override
+    public String getLogs(final String containerId) {
+        return onHostOfContainer(containerId, new Call<String>() {
+            @Override
+            public String on(final DockerProvider delegate) {
+                return delegate.getLogs(containerId);
+            }
+        });
+    }
+
+    @Override
+    public void setLogger(final Log logger) {
+        for (DockerProvider delegate : delegates.values()) {
+            delegate.setLogger(logger);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getName() + "{" +
+                "hosts=" + delegates.keySet() +
+                '}';
+    }
+
+    private String chooseHostFor(final ContainerStartConfiguration configuration) {
+        String group = configuration.getPlacementGroup();
+        Optional<String> groupHost = group != null
+                ? Optional.fromNullable(GROUP_HOSTS.get(group))
+                : Optional.<String>absent();
+        Optional<String> linkedHost = Optional.absent();
+        for (ContainerLink link : configuration.getLinks()) {
+            String host = hostOfContainer(link.getContainerId());
+            if (linkedHost.isPresent() && !linkedHost.get().equals(host)) {
+                throw new DockerException(String.format(
+                        "Container '%s' links to containers on different docker hosts: %s and %s",
+                        configuration.getId(), linkedHost.get(), host));
+            }
+            linkedHost = Optional.of(host);
+        }
+
+        String image = configuration.getImage();
+        Optional<String> imageHost = Optional.fromNullable(IMAGE_HOSTS.get(image));
+        if (imageHost.isPresent() && !delegates.containsKey(imageHost.get())) {
+            imageHost = Optional.absent();
+        }
+
+        String host = groupHost.or(linkedHost).or(imageHost).or(leastLoadedHost());
+        if (group != null) {
+            String groupedHost = GROUP_HOSTS.putIfAbsent(group, host);
+            host = groupedHost != null ? groupedHost : host;
+        }
+        if (imageHost.isPresent() && !imageHost.get().equals(host) && IMAGE_COPIES.add(image + '@' + host)) {
+            copyImage(image, imageHost.get(), host);
+        }
+        return host;
+    }
+
+    /**
+     * Copies an image the plugin built or committed on one host to another, for a container that has to run next to
+     * the containers it links to.
+     */
+    private void copyImage(final String image, final String from, final String to) {
+        File archive;
+        try {
+            archive = File.createTempFile("docker-image", ".tar");
+        } catch (IOException e) {
+            IMAGE_COPIES.remove(image + '@' + to);
+            throw new DockerException(String.format("Can't create a file to copy image '%s' to %s", image, to), e);
+        }
+        try {
+            delegates.get(from).saveImage(image, archive);
+            delegates.get(to).loadImage(archive);
+        } catch (RuntimeException e) {
+            IMAGE_COPIES.remove(image + '@' + to);
+            throw e;
+        } finally {
+            if (!archive.delete()) {
+                archive.deleteOnExit();
+            }
+        }
+    }
+
+    private String leastLoadedHost() {
+        String leastLoaded = null;
+        int lowestLoad = Integer.MAX_VALUE;
+        for (String host : delegates.keySet()) {
+            int load = HOST_LOAD.get(host).get();
+            if (load < lowestLoad) {
+                leastLoaded = host;
+                lowestLoad = load;
+            }
+        }
+        return leastLoaded;
+    }
+
+    private String hostOfContainer(final String containerIdOrName) {
+        String host = CONTAINER_HOSTS.get(containerIdOrName);
+        if (host == null || !delegates.containsKey(host)) {
+            throw new ContainerNotFoundException(containerIdOrName);
+        }
+        return host;
+    }
+
+    private <T> T onHostOfContainer(final String containerId, final Call<T> call) {
+        return onHostOf(CONTAINER_HOSTS, containerId, call);
+    }
+
+    private <T> T onHostOfImage(final String image, final Call<T> call) {
+        return onHostOf(IMAGE_HOSTS, image, call);
+    }
+
+    /**
+     * Executes a call on the host that owns a container or image. When the owner isn't known, for example because the
+     * container or image was created by another build, every host is tried until one of them knows the resource and
+     * that host is remembered as the owner.
+     */
+    private <T> T onHostOf(final ConcurrentMap<String, String> owners, final String resource, final Call<T> call) {
+        String host = owners.get(resource);
+        if (host != null && delegates.containsKey(host)) {
+            return call.on(delegates.get(host));
+        }
+
+        RuntimeException notFound = null;
+        for (Map.Entry<String, DockerProvider> delegate : delegates.entrySet()) {
+            try {
+                T result = call.on(delegate.getValue());
+                owners.putIfAbsent(resource, delegate.getKey());
+                return result;
+            } catch (ImageNotFoundException | ContainerNotFoundException | NotFoundException e) {
+                notFound = e;
+            }
+        }
+        throw notFound;
+    }
+
+    private static Map<String, DockerProvider> createDelegates(final String hosts) {
+        Map<String, DockerProvider> delegates = new LinkedHashMap<>();
+        if (Strings.isNullOrEmpty(hosts)) {
+            RemoteDockerProvider delegate = new RemoteDockerProvider();
+            delegates.put(delegate.getHost() + ":" + delegate.getPort(), delegate);
+            return Collections.unmodifiableMap(delegates);
+        }
+        for (String endpoint : Splitter.on(',').trimResults().omitEmptyStrings().split(hosts)) {
+            String hostAndPort = endpoint.replaceFirst("^tcp://", "");
+            int separator = hostAndPort.lastIndexOf(':');
+            String host = separator < 0 ? hostAndPort : hostAndPort.substring(0, separator);
+            int port = separator < 0
+                    ? RemoteApiBasedDockerProvider.DEFAULT_DOCKER_PORT
+                    : Integer.parseInt(hostAndPort.substring(separator + 1));
+            delegates.put(host + ":" + port, new RemoteDockerProvider(host, port));
+        }
+        return Collections.unmodifiableMap(delegates);
+    }
+
+    private interface Call<T> {
+        T on(DockerProvider delegate);
+    }
+}
@@ -17,37 +17,59 @@
 
 package net.wouterdanes.docker.provider;
 
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.ws.rs.core.StreamingOutput;
 
 import com.google.common.base.Optional;
+import com.google.common.base.Preconditions;
 
-import org.apache.commons.compress.archivers.ArchiveEntry;
-import org.apache.commons.compress.archivers.ArchiveException;
-import org.apache.commons.compress.archivers.ArchiveOutputStream;
-import org.apache.commons.compress.archivers.ArchiveStreamFactory;
-import org.apache.commons.compress.compressors.CompressorException;
-import org.apache.commons.compress.compressors.CompressorOutputStream;
-import org.apache.commons.compress.compressors.CompressorStreamFactory;
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.archivers.tar.TarConstants;
 import org.apache.maven.plugin.logging.Log;
+import org.codehaus.jackson.map.ObjectMapper;
 
 import net.wouterdanes.docker.provider.model.ContainerStartConfiguration;
+import net.wouterdanes.docker.provider.model.ExposedPort;
 import net.wouterdanes.docker.provider.model.ImageBuildConfiguration;
 import net.wouterdanes.docker.remoteapi.BaseService;
 import net.wouterdanes.docker.remoteapi.ContainersService;
+import net.wouterdanes.docker.remoteapi.DockerCapability;
 import net.wouterdanes.docker.remoteapi.ImagesService;
 import net.wouterdanes.docker.remoteapi.MiscService;
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
 import net.wouterdanes.docker.remoteapi.exception.ImageNotFoundException;
+import net.wouterdanes.docker.remoteapi.model.BuildResult;
 import net.wouterdanes.docker.remoteapi.model.ContainerCreateRequest;
 import net.wouterdanes.docker.remoteapi.model.ContainerInspectionResult;
 import net.wouterdanes.docker.remoteapi.model.ContainerStartRequest;
+import net.wouterdanes.docker.remoteapi.model.ContainerSummary;
 import net.wouterdanes.docker.remoteapi.model.Credentials;
+import net.wouterdanes.docker.remoteapi.model.ImageHistoryEntry;
+import net.wouterdanes.docker.remoteapi.model.ImageInspectionResult;
+import net.wouterdanes.docker.remoteapi.model.ImageSummary;
 import net.wouterdanes.docker.remoteapi.util.DockerHostFromEnvironmentSupplier;
 import net.wouterdanes.docker.remoteapi.util.DockerHostFromPropertySupplier;
 import net.wouterdanes.docker.remoteapi.util.DockerPortFromEnvironmentSupplier;
@@ -97,8 +119,52 @@ public abstract class RemoteApiBasedDockerProvider implements DockerProvider {
 
     @Override
     public String buildImage(final ImageBuildConfiguration image) {
-        byte[] bytes = getTgzArchiveForFiles(image);
-        return miscService.buildImage(bytes, Optional.fromNullable(image.getNameAndTag()));
+        Map<String, String> labels = supports(DockerCapability.BUILD_LABELS)
+                ? image.getLabels()
+                : Collections.<String, String>emptyMap();
+        if (!image.getBuildArgs().isEmpty()) {
+            checkSupported(DockerCapability.BUILD_ARGS);
+        }
+        List<String> cacheFrom = supports(DockerCapability.BUILD_CACHE_FROM)
+                ? image.getCacheFrom()
+                : Collections.<String>emptyList();
+        Optional<String> name = Optional.fromNullable(image.getNameAndTag());
+        BuildResult result;
+        if (image.getContextArchive() != null) {
+            result = miscService.buildImage(image.getContextArchive(), name, labels, image.getBuildArgs(),
+                    cacheFrom);
+        } else {
+            byte[] bytes = BuildContextArchive.create(image);
+            if (image.isReproducible()) {
+                log.debug(String.format("Build context of image '%s' has digest %s", image.getId(),
+                        BuildContextArchive.digest(bytes)));
+            }
+            result = miscService.buildImage(bytes, name, labels, image.getBuildArgs(), cacheFrom);
+        }
+        image.setBuildSteps(result.getSteps());
+        return result.getImageId();
+    }
+
+    @Override
+    public String importImage(final ImageBuildConfiguration image) {
+        // like builds, images are imported without labels when the daemon can't apply them
+        List<String> changes = getImportChanges(image, supports(DockerCapability.IMPORT_CHANGES));
+        if (!changes.isEmpty()) {
+            checkSupported(DockerCapability.IMPORT_CHANGES);
+        }
+        final File rootfs = image.getRootfs();
+        StreamingOutput rootfsTar = new StreamingOutput() {
+            @Override
+            public void write(final OutputStream output) throws IOException {
+                writeDirectoryTar(rootfs, output);
+            }
+        };
+        return getImagesService().importImage(rootfsTar, Optional.fromNullable(image.getNameAndTag()), changes);
+    }
+
+    @Override
+    public List<ExposedPort> getExposedPorts(final String containerId) {
+        return getExposedPorts(getContainersService().inspectContainer(containerId));
     }
 
     @Override
@@ -116,6 +182,107 @@ public abstract class RemoteApiBasedDockerProvider implements DockerProvider {
         getImagesService().tagImage(imageId, nameAndTag);
     }
 
+    @Override
+    public Map<String, DockerException> tagImages(final Map<String, List<String>> tags, final int parallelism) {
+        Preconditions.checkArgument(parallelism > 0, "Parallelism should be at least 1");
+        Map<String, DockerException> failures = new LinkedHashMap<>();
+        int count = 0;
+        for (List<String> imageTags : tags.values()) {
+            count += imageTags.size();
+        }
+        if (count == 0) {
+            return failures;
+        }
+
+        // the requests share the client of the images service and with it its kept alive connections
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, count));
+        try {
+            Map<String, Future<Void>> pending = new LinkedHashMap<>();
+            for (Map.Entry<String, List<String>> image : tags.entrySet()) {
+                final String imageId = image.getKey();
+                for (final String nameAndTag : image.getValue()) {
+                    pending.put(nameAndTag, executor.submit(new Callable<Void>() {
+                        @Override
+                        public Void call() {
+                            tagImage(imageId, nameAndTag);
+                            return null;
+                        }
+                    }));
+                }
+            }
+            for (Map.Entry<String, Future<Void>> tag : pending.entrySet()) {
+                try {
+                    tag.getValue().get();
+                } catch (ExecutionException e) {
+                    failures.put(tag.getKey(), e.getCause() instanceof DockerException
+                            ? (DockerException) e.getCause()
+                            : new DockerException(e.getCause().getMessage(), e.getCause()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    failures.put(tag.getKey(), new DockerException("Interrupted while tagging", e));
+                }
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        return failures;
+    }
+
+    @Override
+    public ImageInspectionResult inspectImage(final String image) {
+        return getImagesService().inspectImage(image);
+    }
+
+    @Override
+    public List<ImageHistoryEntry> getImageHistory(final String image) {
+        return getImagesService().getImageHistory(image);
+    }
+
+    @Override
+    public String commitContainer(final String containerId, final String nameAndTag,
+                                  final Map<String, String> labels) {
+        // the tag starts at the last colon, unless that colon is part of a registry's host:port
+        int tagSeparator = nameAndTag.lastIndexOf(':');
+        if (tagSeparator <= nameAndTag.lastIndexOf('/')) {
+            return miscService.commitContainer(containerId, nameAndTag, Optional.<String>absent(), labels);
+        }
+        return miscService.commitContainer(containerId, nameAndTag.substring(0, tagSeparator),
+                Optional.of(nameAndTag.substring(tagSeparator + 1)), labels);
+    }
+
+    @Override
+    public void pullImage(final String image) {
+        getImagesService().pullImage(image);
+    }
+
+    @Override
+    public void saveImage(final String image, final File destination) {
+        getImagesService().saveImage(image, destination);
+    }
+
+    @Override
+    public void loadImage(final File archive) {
+        getImagesService().loadImage(archive);
+    }
+
+    @Override
+    public List<ContainerSummary> listContainers(final List<String> labelFilters) {
+        checkSupported(DockerCapability.LIST_FILTERS);
+        return getContainersService().listContainers(labelFilters);
+    }
+
+    @Override
+    public List<ImageSummary> listImages(final List<String> labelFilters) {
+        checkSupported(DockerCapability.LIST_FILTERS);
+        return getImagesService().listImages(labelFilters);
+    }
+
+    @Override
+    public List<ImageSummary> listDanglingImages(final List<String> labelFilters) {
+        checkSupported(DockerCapability.LIST_FILTERS);
+        return getImagesService().listDanglingImages(labelFilters);
+    }
+
     @Override
     public String toString() {
         return getClass().getName() + "{" +
@@ -151,6 +318,14 @@ public abstract class RemoteApiBasedDockerProvider implements DockerProvider {
         ContainerCreateRequest createRequest = new ContainerCreateRequest()
                 .fromImage(imageId);
 
+        boolean hostConfigOnCreate = supports(DockerCapability.HOST_CONFIG_ON_CREATE);
+        if (hostConfigOnCreate) {
+            createRequest.withHostConfig(startRequest);
+        }
+        if (!configuration.getLabels().isEmpty() && supports(DockerCapability.CONTAINER_LABELS)) {
+            createRequest.withLabels(configuration.getLabels());
+        }
+
         String containerId;
         try {
             containerId = containersService.createContainer(createRequest);
@@ -160,11 +335,33 @@ public abstract class RemoteApiBasedDockerProvider implements DockerProvider {
             containerId = containersService.createContainer(createRequest);
         }
 
-        containersService.startContainer(containerId, startRequest);
+        if (hostConfigOnCreate) {
+            containersService.startContainer(containerId);
+        } else {
+            containersService.startContainer(containerId, startRequest);
+        }
 
         return containersService.inspectContainer(containerId);
     }
 
+    /**
+     * Checks if the daemon this provider talks to supports a feature, negotiating the API version if that hasn't been
+     * done yet.
+     *
+     * @param capability the API feature
+     * @return <code>true</code> if the feature can be used
+     */
+    protected boolean supports(DockerCapability capability) {
+        return miscService.supports(capability);
+    }
+
+    private void checkSupported(DockerCapability capability) {
+        if (!supports(capability)) {
+            throw new DockerException(String.format("The docker daemon at %s:%s doesn't support %s, API v%s is needed",
+                    host, port, capability, capability.getMinimumVersion()));
+        }
+    }
+
     protected ContainersService getContainersService() {
         return containersService;
     }
@@ -185,25 +382,99 @@ public abstract class RemoteApiBasedDockerProvider implements DockerProvider {
         return port;
     }
 
-    private static byte[] getTgzArchiveForFiles(final ImageBuildConfiguration image) {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (
-                CompressorOutputStream gzipStream = new CompressorStreamFactory().createCompressorOutputStream("gz", baos);
-                ArchiveOutputStream tar = new ArchiveStreamFactory().createArchiveOutputStream("tar", gzipStream)
-        ) {
-            for (File file : image.getFiles()) {
-                ArchiveEntry entry = tar.createArchiveEntry(file, file.getName());
+    /**
+     * @param image      the image to import
+     * @param withLabels whether to label the image, the daemon applies labels as changes too
+     * @return the Dockerfile instructions that set the env, cmd and labels of an imported image
+     */
+    static List<String> getImportChanges(final ImageBuildConfiguration image, final boolean withLabels) {
+        List<String> changes = new ArrayList<>();
+        for (Map.Entry<String, String> variable : image.getEnv().entrySet()) {
+            changes.add(String.format("ENV %s %s", variable.getKey(), variable.getValue()));
+        }
+        try {
+            ObjectMapper mapper = new ObjectMapper();
+            if (image.getCmd() != null) {
+                changes.add("CMD " + mapper.writeValueAsString(image.getCmd()));
+            }
+            if (withLabels) {
+                for (Map.Entry<String, String> label : image.getLabels().entrySet()) {
+                    // quoted as JSON strings, so keys and values can contain spaces and quotes
+                    changes.add(String.format("LABEL %s=%s", mapper.writeValueAsString(label.getKey()),
+                            mapper.writeValueAsString(label.getValue())));
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to write the changes of image " + image.getId(), e);
+        }
+        return changes;
+    }
+
+    /**
+     * Writes a directory as a tar of a root filesystem, owned by root and with the permissions and symbolic links of
+     * the files in the directory. The stream isn't closed.
+     */
+    private static void writeDirectoryTar(final File directory, final OutputStream output) throws IOException {
+        final TarArchiveOutputStream tar = new TarArchiveOutputStream(output);
+        tar.setLongFileMode(TarArchiveOutputStream.LONGFILE_POSIX);
+        tar.setBigNumberMode(TarArchiveOutputStream.BIGNUMBER_POSIX);
+        final Path root = directory.toPath();
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs)
+                    throws IOException {
+                if (!dir.equals(root)) {
+                    TarArchiveEntry entry = new TarArchiveEntry(nameInTar(dir) + "/");
+                    entry.setMode(TarArchiveEntry.DEFAULT_DIR_MODE & ~0777 | modeOf(dir, 0755));
+                    putEntry(entry, dir, false);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+                if (attrs.isSymbolicLink()) {
+                    TarArchiveEntry entry = new TarArchiveEntry(nameInTar(file), TarConstants.LF_SYMLINK);
+                    entry.setLinkName(Files.readSymbolicLink(file).toString());
+                    putEntry(entry, file, false);
+                } else if (attrs.isRegularFile()) {
+                    TarArchiveEntry entry = new TarArchiveEntry(nameInTar(file));
+                    entry.setMode(TarArchiveEntry.DEFAULT_FILE_MODE & ~0777 | modeOf(file, 0644));
+                    entry.setSize(attrs.size());
+                    putEntry(entry, file, true);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            private String nameInTar(final Path path) {
+                return root.relativize(path).toString().replace(File.separatorChar, '/');
+            }
+
+            private void putEntry(final TarArchiveEntry entry, final Path path, final boolean withContents)
+                    throws IOException {
+                entry.setModTime(Files.getLastModifiedTime(path, LinkOption.NOFOLLOW_LINKS).toMillis());
+                entry.setUserId(0);
+                entry.setGroupId(0);
                 tar.putArchiveEntry(entry);
-                byte[] contents = Files.readAllBytes(Paths.get(file.getAbsolutePath()));
-                tar.write(contents);
+                if (withContents) {
+                    Files.copy(path, tar);
+                }
                 tar.closeArchiveEntry();
             }
-            tar.flush();
-            gzipStream.flush();
-        } catch (CompressorException | ArchiveException | IOException e) {
-            throw new IllegalStateException("Unable to create output archive", e);
+        });
+        tar.finish();
+    }
+
+    private static int modeOf(final Path path, final int defaultMode) throws IOException {
+        try {
+            int mode = 0;
+            for (PosixFilePermission permission : Files.getPosixFilePermissions(path, LinkOption.NOFOLLOW_LINKS)) {
+                mode |= 0400 >> permission.ordinal();
+            }
+            return mode;
+        } catch (UnsupportedOperationException e) {
+            return defaultMode;
         }
-        return baos.toByteArray();
     }
 
     private static Integer getDockerPortFromEnvironment() {
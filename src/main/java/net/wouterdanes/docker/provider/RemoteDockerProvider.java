@@ -41,6 +41,10 @@ public class RemoteDockerProvider extends RemoteApiBasedDockerProvider {
         super();
     }
 
+    public RemoteDockerProvider(final String host, final int port) {
+        super(host, port);
+    }
+
     @Override
     public ContainerInspectionResult startContainer(final ContainerStartConfiguration configuration) {
         ContainerStartRequest startRequest = new ContainerStartRequest()
@@ -51,8 +55,7 @@ public class RemoteDockerProvider extends RemoteApiBasedDockerProvider {
     }
 
     @Override
-    public List<ExposedPort> getExposedPorts(final String containerId) {
-        ContainerInspectionResult containerInspectionResult = getContainersService().inspectContainer(containerId);
+    public List<ExposedPort> getExposedPorts(final ContainerInspectionResult containerInspectionResult) {
         if (containerInspectionResult.getNetworkSettings().getPorts().isEmpty()) {
             return Collections.emptyList();
         }
@@ -28,12 +28,14 @@ public class BuiltImageInfo {
     private final String startId;
     private final String imageId;
     private final Optional<String> registry;
+    private final Optional<String> nameAndTag;
     private final boolean keepAfterStopping;
 
     public BuiltImageInfo(final String imageId, ImageBuildConfiguration imageConfig) {
         this.imageId = imageId;
         this.startId = imageConfig.getId();
         this.registry = Optional.fromNullable(imageConfig.getRegistry());
+        this.nameAndTag = Optional.fromNullable(imageConfig.getNameAndTag());
         this.keepAfterStopping = imageConfig.isKeep() || imageConfig.isPush();
     }
 
@@ -49,6 +51,10 @@ public class BuiltImageInfo {
         return registry;
     }
 
+    public Optional<String> getNameAndTag() {
+        return nameAndTag;
+    }
+
     public boolean shouldKeepAfterStopping() {
         return keepAfterStopping;
     }
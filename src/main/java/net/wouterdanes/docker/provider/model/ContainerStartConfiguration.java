@@ -19,7 +19,9 @@ package net.wouterdanes.docker.provider.model;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import net.wouterdanes.docker.remoteapi.model.ContainerLink;
 
@@ -47,6 +49,22 @@ public class ContainerStartConfiguration {
      */
     private int startupTimeout;
 
+    /**
+     * Commit the container to a snapshot image once it has finished startup and start from that snapshot next time
+     */
+    private boolean snapshotAfterStartup;
+
+    /**
+     * Labels to set on the container, the plugin adds its own labels to find containers it left behind
+     */
+    private Map<String, String> labels;
+
+    /**
+     * Containers in the same placement group are started on the same docker host, set by the plugin for containers
+     * that are linked together
+     */
+    private String placementGroup;
+
     /**
      * Set the image name or id to use and returns the object so you can chain from/with statements.
      *
@@ -85,6 +103,24 @@ public class ContainerStartConfiguration {
         return this;
     }
 
+    public ContainerStartConfiguration snapshotAfterStartup() {
+        this.snapshotAfterStartup = true;
+        return this;
+    }
+
+    public ContainerStartConfiguration withLabels(Map<String, String> labels) {
+        if (this.labels == null) {
+            this.labels = new LinkedHashMap<>(labels.size());
+        }
+        this.labels.putAll(labels);
+        return this;
+    }
+
+    public ContainerStartConfiguration inPlacementGroup(String group) {
+        this.placementGroup = group;
+        return this;
+    }
+
     public String getImage() {
         return image;
     }
@@ -104,4 +140,16 @@ public class ContainerStartConfiguration {
     public int getStartupTimeout() {
         return startupTimeout != 0 ? startupTimeout : DEFAULT_STARTUP_TIMEOUT;
     }
+
+    public boolean isSnapshotAfterStartup() {
+        return snapshotAfterStartup;
+    }
+
+    public Map<String, String> getLabels() {
+        return labels != null ? Collections.unmodifiableMap(labels) : Collections.<String, String>emptyMap();
+    }
+
+    public String getPlacementGroup() {
+        return placementGroup;
+    }
 }
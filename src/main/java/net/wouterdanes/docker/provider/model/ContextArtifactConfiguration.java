@@ -0,0 +1,102 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.provider.model;
+
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * This class is responsible for holding the configuration of a maven artifact to add to the build context of an image
+ * built by the {@link net.wouterdanes.docker.maven.BuildImageMojo}. The artifact is streamed from the local repository
+ * into the context, it isn't copied to the build directory first.
+ */
+public class ContextArtifactConfiguration {
+
+    @Parameter(required = true)
+    private String groupId;
+
+    @Parameter(required = true)
+    private String artifactId;
+
+    @Parameter(required = true)
+    private String version;
+
+    @Parameter
+    private String classifier;
+
+    @Parameter(defaultValue = "jar")
+    private String type = "jar";
+
+    @Parameter
+    private String path;
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(final String groupId) {
+        this.groupId = groupId;
+    }
+
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    public void setArtifactId(final String artifactId) {
+        this.artifactId = artifactId;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(final String version) {
+        this.version = version;
+    }
+
+    public String getClassifier() {
+        return classifier;
+    }
+
+    public void setClassifier(final String classifier) {
+        this.classifier = classifier;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(final String type) {
+        this.type = type;
+    }
+
+    /**
+     * @return the path of the artifact in the build context, or <code>null</code> to use the file name of the artifact
+     */
+    public String getPath() {
+        return path;
+    }
+
+    public void setPath(final String path) {
+        this.path = path;
+    }
+
+    @Override
+    public String toString() {
+        return groupId + ':' + artifactId + ':' + type + (classifier != null ? ':' + classifier : "") + ':' + version;
+    }
+}
@@ -0,0 +1,54 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.provider.model;
+
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * This class is responsible for holding the configuration of a set of project dependencies to add to the build context
+ * of an image built by the {@link net.wouterdanes.docker.maven.BuildImageMojo}. The dependencies are streamed from the
+ * local repository into a directory of the context.
+ */
+public class DependencySetConfiguration {
+
+    @Parameter(defaultValue = "runtime")
+    private String scope = "runtime";
+
+    @Parameter(defaultValue = "libs")
+    private String directory = "libs";
+
+    /**
+     * @return the scope of the dependencies, like maven's classpath scopes: <code>compile</code>,
+     * <code>runtime</code> or <code>test</code>
+     */
+    public String getScope() {
+        return scope;
+    }
+
+    public void setScope(final String scope) {
+        this.scope = scope;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(final String directory) {
+        this.directory = directory;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.provider.model;
+
+import java.io.File;
+
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * This class is responsible for holding the configuration of a single image archive to be loaded by the
+ * {@link net.wouterdanes.docker.maven.LoadImagesMojo} or to seed the layer cache of an image built by the
+ * {@link net.wouterdanes.docker.maven.BuildImageMojo}. The archive is either a file or a maven artifact, like the
+ * archives attached by the {@link net.wouterdanes.docker.maven.SaveImagesMojo}.
+ */
+public class ImageArchiveConfiguration {
+
+    @Parameter
+    private File file;
+
+    @Parameter
+    private String groupId;
+
+    @Parameter
+    private String artifactId;
+
+    @Parameter
+    private String version;
+
+    @Parameter
+    private String classifier;
+
+    @Parameter(defaultValue = "tar")
+    private String type = "tar";
+
+    public File getFile() {
+        return file;
+    }
+
+    public void setFile(final File file) {
+        this.file = file;
+    }
+
+    public String getGroupId() {
+        return groupId;
+    }
+
+    public void setGroupId(final String groupId) {
+        this.groupId = groupId;
+    }
+
+    public String getArtifactId() {
+        return artifactId;
+    }
+
+    public void setArtifactId(final String artifactId) {
+        this.artifactId = artifactId;
+    }
+
+    public String getVersion() {
+        return version;
+    }
+
+    public void setVersion(final String version) {
+        this.version = version;
+    }
+
+    public String getClassifier() {
+        return classifier;
+    }
+
+    public void setClassifier(final String classifier) {
+        this.classifier = classifier;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(final String type) {
+        this.type = type;
+    }
+
+    public boolean isArtifact() {
+        return groupId != null && artifactId != null && version != null;
+    }
+
+    public boolean isValid() {
+        return file != null ^ isArtifact();
+    }
+
+    @Override
+    public String toString() {
+        if (file != null) {
+            return file.toString();
+        }
+        return groupId + ':' + artifactId + ':' + type + (classifier != null ? ':' + classifier : "") + ':' + version;
+    }
+}
@@ -0,0 +1,163 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.provider.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * This class is responsible for holding the configuration of a single Java image to be assembled by the
+ * {@link net.wouterdanes.docker.maven.AssembleImageMojo}, without a Dockerfile.
+ */
+public class ImageAssemblyConfiguration {
+
+    @Parameter(required = true)
+    private String id;
+
+    @Parameter(required = true)
+    private String nameAndTag;
+
+    @Parameter(required = true)
+    private String baseImage;
+
+    @Parameter
+    private String mainClass;
+
+    @Parameter
+    private List<String> entrypoint;
+
+    @Parameter(defaultValue = "/app")
+    private String appRoot = "/app";
+
+    @Parameter(defaultValue = "false")
+    private boolean keep;
+
+    @Parameter(defaultValue = "false")
+    private boolean push;
+
+    @Parameter
+    private String registry;
+
+    @Parameter
+    private Map<String, String> labels;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(final String id) {
+        this.id = id;
+    }
+
+    public String getNameAndTag() {
+        return nameAndTag;
+    }
+
+    public void setNameAndTag(final String nameAndTag) {
+        this.nameAndTag = nameAndTag;
+    }
+
+    public String getBaseImage() {
+        return baseImage;
+    }
+
+    public void setBaseImage(final String baseImage) {
+        this.baseImage = baseImage;
+    }
+
+    public String getMainClass() {
+        return mainClass;
+    }
+
+    public void setMainClass(final String mainClass) {
+        this.mainClass = mainClass;
+    }
+
+    public List<String> getEntrypoint() {
+        return entrypoint;
+    }
+
+    public void setEntrypoint(final List<String> entrypoint) {
+        this.entrypoint = entrypoint;
+    }
+
+    public String getAppRoot() {
+        return appRoot;
+    }
+
+    public void setAppRoot(final String appRoot) {
+        this.appRoot = appRoot;
+    }
+
+    public boolean isKeep() {
+        return keep;
+    }
+
+    public void setKeep(final boolean keep) {
+        this.keep = keep;
+    }
+
+    public boolean isPush() {
+        return push;
+    }
+
+    public void setPush(final boolean push) {
+        this.push = push;
+    }
+
+    public String getRegistry() {
+        return registry;
+    }
+
+    public void setRegistry(final String registry) {
+        this.registry = registry;
+    }
+
+    public Map<String, String> getLabels() {
+        return labels != null ? labels : Collections.<String, String>emptyMap();
+    }
+
+    public void setLabels(final Map<String, String> labels) {
+        this.labels = labels;
+    }
+
+    /**
+     * Checks if this is a valid configuration, an assembled image needs a name to be loaded by and a base image.
+     * @return <code>true</code> if this configuration can be assembled, <code>false</code> otherwise.
+     */
+    public boolean isValid() {
+        return id != null && nameAndTag != null && baseImage != null;
+    }
+
+    /**
+     * @return the configuration that registers the assembled image like an image built from a Dockerfile
+     */
+    public ImageBuildConfiguration toBuildConfiguration() {
+        ImageBuildConfiguration configuration = new ImageBuildConfiguration();
+        configuration.setId(id);
+        configuration.setNameAndTag(nameAndTag);
+        configuration.setKeep(keep);
+        configuration.setPush(push);
+        configuration.setRegistry(registry);
+        configuration.setLabels(labels);
+        return configuration;
+    }
+}
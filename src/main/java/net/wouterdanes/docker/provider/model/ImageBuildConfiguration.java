@@ -18,19 +18,41 @@
 package net.wouterdanes.docker.provider.model;
 
 import java.io.File;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.maven.plugins.annotations.Parameter;
 
+import net.wouterdanes.docker.remoteapi.model.BuildStep;
+
 /**
  * This class is responsible for holding the configuration of a single docker image to be built by the
  * {@link net.wouterdanes.docker.maven.BuildImageMojo}
  */
 public class ImageBuildConfiguration {
 
-    @Parameter(required = true)
+    @Parameter
     private List<File> files;
 
+    @Parameter
+    private List<ContextArtifactConfiguration> artifacts;
+
+    @Parameter
+    private List<DependencySetConfiguration> dependencySets;
+
+    private Map<String, File> contextEntries;
+
+    @Parameter
+    private File rootfs;
+
+    @Parameter
+    private Map<String, String> env;
+
+    @Parameter
+    private List<String> cmd;
+
     @Parameter(required = true)
     private String id;
 
@@ -46,6 +68,33 @@ public class ImageBuildConfiguration {
     @Parameter
     private String registry;
 
+    @Parameter
+    private Map<String, String> labels;
+
+    @Parameter
+    private ImageArchiveConfiguration cache;
+
+    @Parameter(defaultValue = "false")
+    private boolean reproducible;
+
+    @Parameter(defaultValue = "false")
+    private boolean trimContext;
+
+    @Parameter
+    private Map<String, String> buildArgs;
+
+    @Parameter
+    private Long maxSizeMb;
+
+    @Parameter
+    private List<ImageVariantConfiguration> variants;
+
+    private File contextArchive;
+
+    private List<BuildStep> buildSteps;
+
+    private List<String> cacheFrom;
+
     public List<File> getFiles() {
         return files;
     }
@@ -54,6 +103,62 @@ public class ImageBuildConfiguration {
         this.files = files;
     }
 
+    public List<ContextArtifactConfiguration> getArtifacts() {
+        return artifacts != null ? artifacts : Collections.<ContextArtifactConfiguration>emptyList();
+    }
+
+    public void setArtifacts(final List<ContextArtifactConfiguration> artifacts) {
+        this.artifacts = artifacts;
+    }
+
+    public List<DependencySetConfiguration> getDependencySets() {
+        return dependencySets != null ? dependencySets : Collections.<DependencySetConfiguration>emptyList();
+    }
+
+    public void setDependencySets(final List<DependencySetConfiguration> dependencySets) {
+        this.dependencySets = dependencySets;
+    }
+
+    /**
+     * @return the resolved artifacts and dependencies to add to the build context next to the files, by their path in
+     * the context
+     */
+    public Map<String, File> getContextEntries() {
+        return contextEntries != null ? contextEntries : Collections.<String, File>emptyMap();
+    }
+
+    public void setContextEntries(final Map<String, File> contextEntries) {
+        this.contextEntries = contextEntries;
+    }
+
+    /**
+     * @return the directory to import as the root filesystem of the image instead of building a Dockerfile, or
+     * <code>null</code>
+     */
+    public File getRootfs() {
+        return rootfs;
+    }
+
+    public void setRootfs(final File rootfs) {
+        this.rootfs = rootfs;
+    }
+
+    public Map<String, String> getEnv() {
+        return env != null ? env : Collections.<String, String>emptyMap();
+    }
+
+    public void setEnv(final Map<String, String> env) {
+        this.env = env;
+    }
+
+    public List<String> getCmd() {
+        return cmd;
+    }
+
+    public void setCmd(final List<String> cmd) {
+        this.cmd = cmd;
+    }
+
     public String getId() {
         return id;
     }
@@ -86,6 +191,131 @@ public class ImageBuildConfiguration {
         this.push = push;
     }
 
+    /**
+     * @return <code>true</code> when the same files must always give the same build context archive
+     */
+    public boolean isReproducible() {
+        return reproducible;
+    }
+
+    public void setReproducible(final boolean reproducible) {
+        this.reproducible = reproducible;
+    }
+
+    /**
+     * @return <code>true</code> when only the files that the Dockerfile adds or copies are sent to the daemon
+     */
+    public boolean isTrimContext() {
+        return trimContext;
+    }
+
+    public void setTrimContext(final boolean trimContext) {
+        this.trimContext = trimContext;
+    }
+
+    /**
+     * @return the build context archive that was spooled to disk for this image, or <code>null</code> when the
+     * context is created in memory for every build
+     */
+    public File getContextArchive() {
+        return contextArchive;
+    }
+
+    public void setContextArchive(final File contextArchive) {
+        this.contextArchive = contextArchive;
+    }
+
+    /**
+     * @return the size in megabytes the image may have, base image included, or <code>null</code> when the size of
+     * the image isn't limited
+     */
+    public Long getMaxSizeMb() {
+        return maxSizeMb;
+    }
+
+    public void setMaxSizeMb(final Long maxSizeMb) {
+        this.maxSizeMb = maxSizeMb;
+    }
+
+    /**
+     * @return the values of the ARG instructions of the Dockerfile
+     */
+    public Map<String, String> getBuildArgs() {
+        return buildArgs != null ? buildArgs : Collections.<String, String>emptyMap();
+    }
+
+    public void setBuildArgs(final Map<String, String> buildArgs) {
+        this.buildArgs = buildArgs;
+    }
+
+    /**
+     * @return the variants of this image that are built from the same context with other build arguments, this image
+     * itself isn't built when it has variants
+     */
+    public List<ImageVariantConfiguration> getVariants() {
+        return variants != null ? variants : Collections.<ImageVariantConfiguration>emptyList();
+    }
+
+    public void setVariants(final List<ImageVariantConfiguration> variants) {
+        this.variants = variants;
+    }
+
+    /**
+     * @param variant one of the variants of this image
+     * @return the id the variant is registered under
+     */
+    public String getVariantId(final ImageVariantConfiguration variant) {
+        return id + "-" + variant.getId();
+    }
+
+    /**
+     * Creates the configuration of a single variant of this image. It shares the build context of this image, its
+     * build arguments override the ones of this image and its tag replaces the tag in the name of this image. The
+     * layer cache isn't shared, it's loaded once for all variants.
+     *
+     * @param variant one of the variants of this image
+     * @return the configuration to build the variant with
+     */
+    public ImageBuildConfiguration toVariant(final ImageVariantConfiguration variant) {
+        ImageBuildConfiguration image = new ImageBuildConfiguration();
+        image.files = files;
+        image.artifacts = artifacts;
+        image.dependencySets = dependencySets;
+        image.contextEntries = contextEntries;
+        image.id = getVariantId(variant);
+        image.keep = keep;
+        image.push = push;
+        image.registry = registry;
+        image.labels = labels;
+        image.reproducible = reproducible;
+        image.trimContext = trimContext;
+        image.maxSizeMb = maxSizeMb;
+        image.contextArchive = contextArchive;
+        image.cacheFrom = getCacheFrom();
+        image.buildArgs = new LinkedHashMap<>(getBuildArgs());
+        image.buildArgs.putAll(variant.getBuildArgs());
+        if (nameAndTag != null) {
+            String tag = variant.getTag() != null ? variant.getTag() : variant.getId();
+            int tagSeparator = nameAndTag.lastIndexOf(':');
+            String name = tagSeparator > nameAndTag.lastIndexOf('/')
+                    ? nameAndTag.substring(0, tagSeparator)
+                    : nameAndTag;
+            image.nameAndTag = name + ":" + tag;
+        }
+        return image;
+    }
+
+    /**
+     * @return the steps of the last build of this image, empty when it wasn't built from a Dockerfile yet
+     */
+    public List<BuildStep> getBuildSteps() {
+        return buildSteps != null ? buildSteps : Collections.<BuildStep>emptyList();
+    }
+
+    public void setBuildSteps(final List<BuildStep> buildSteps) {
+        this.buildSteps = buildSteps;
+    }
+
     public String getRegistry() {
         return registry;
     }
@@ -94,11 +324,50 @@ public class ImageBuildConfiguration {
         this.registry = registry;
     }
 
+    public Map<String, String> getLabels() {
+        return labels != null ? labels : Collections.<String, String>emptyMap();
+    }
+
+    public void setLabels(Map<String, String> labels) {
+        this.labels = labels;
+    }
+
+    /**
+     * @return the archive that seeds the layer cache of the daemon before the image is built, or <code>null</code>
+     */
+    public ImageArchiveConfiguration getCache() {
+        return cache;
+    }
+
+    public void setCache(final ImageArchiveConfiguration cache) {
+        this.cache = cache;
+    }
+
     /**
-     * Checks if this is a valid configuration, every image build package should have a Dockerfile included.
+     * @return the names of the images whose layers the build may reuse: the image itself when it has a layer cache
+     * and a name, the image a variant was derived from for variants
+     */
+    public List<String> getCacheFrom() {
+        if (cacheFrom != null) {
+            return cacheFrom;
+        }
+        return cache != null && nameAndTag != null
+                ? Collections.singletonList(nameAndTag)
+                : Collections.<String>emptyList();
+    }
+
+    /**
+     * Checks if this is a valid configuration, every image build package should have a Dockerfile included, unless
+     * the image is imported from a rootfs directory. Imported images can't have variants.
      * @return <code>true</code> if this configuration can be built, <code>false</code> otherwise.
      */
     public boolean isValid() {
+        if (rootfs != null) {
+            return rootfs.isDirectory() && getVariants().isEmpty();
+        }
+        if (files == null) {
+            return false;
+        }
         for (File file : files) {
             if (file.getName().equals("Dockerfile")) {
                 return true;
@@ -0,0 +1,70 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.provider.model;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.apache.maven.plugins.annotations.Parameter;
+
+/**
+ * This class is responsible for holding the configuration of a variant of an image built by the
+ * {@link net.wouterdanes.docker.maven.BuildImageMojo}. Every variant is built from the same build context with its own
+ * build arguments and tag, and is registered under the id of the image followed by the id of the variant.
+ */
+public class ImageVariantConfiguration {
+
+    @Parameter(required = true)
+    private String id;
+
+    @Parameter
+    private String tag;
+
+    @Parameter
+    private Map<String, String> buildArgs;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(final String id) {
+        this.id = id;
+    }
+
+    /**
+     * @return the tag that replaces the tag in the name of the image, or <code>null</code> to derive it from the id
+     */
+    public String getTag() {
+        return tag;
+    }
+
+    public void setTag(final String tag) {
+        this.tag = tag;
+    }
+
+    /**
+     * @return the build arguments of this variant, they override the build arguments of the image
+     */
+    public Map<String, String> getBuildArgs() {
+        return buildArgs != null ? buildArgs : Collections.<String, String>emptyMap();
+    }
+
+    public void setBuildArgs(final Map<String, String> buildArgs) {
+        this.buildArgs = buildArgs;
+    }
+}
@@ -18,13 +18,18 @@
 package net.wouterdanes.docker.remoteapi;
 
 import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.Client;
 import javax.ws.rs.client.ClientBuilder;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.Response.Status.Family;
 
+import com.google.common.base.Supplier;
 import com.google.common.io.BaseEncoding;
 
 import org.codehaus.jackson.map.DeserializationConfig;
@@ -40,6 +45,9 @@ import net.wouterdanes.docker.remoteapi.model.Credentials;
  */
 public abstract class BaseService {
 
+    /**
+     * The API version services fall back to when a daemon doesn't support anything newer.
+     */
     public static final String TARGET_DOCKER_API_VERSION = "v1.12";
     public static final String REGISTRY_AUTH_HEADER = "X-Registry-Auth";
 
@@ -47,10 +55,17 @@ public abstract class BaseService {
     private static final String REGISTRY_AUTH_NULL_VALUE = "null";
 
     private final ObjectMapper objectMapper;
-    private final WebTarget serviceEndPoint;
+    private final Client client;
+    private final String dockerApiRoot;
+    private final String endPointPath;
+    private final Supplier<DockerApiVersion> apiVersion;
     private Credentials credentials = null;
 
     public BaseService(String dockerApiRoot, String endPointPath) {
+        this(dockerApiRoot, endPointPath, DockerApiVersionNegotiator.forApiRoot(dockerApiRoot));
+    }
+
+    protected BaseService(String dockerApiRoot, String endPointPath, Supplier<DockerApiVersion> apiVersion) {
         objectMapper = new ObjectMapper();
         // Only send properties that are actually set, default values are often wrong
         objectMapper.setSerializationInclusion(JsonSerialize.Inclusion.NON_NULL);
@@ -58,18 +73,69 @@ public abstract class BaseService {
         DeserializationConfig deserializationConfig = objectMapper.getDeserializationConfig()
                 .without(DeserializationConfig.Feature.FAIL_ON_UNKNOWN_PROPERTIES);
         objectMapper.setDeserializationConfig(deserializationConfig);
-        serviceEndPoint = ClientBuilder.newClient()
-                .target(dockerApiRoot)
-                .path(TARGET_DOCKER_API_VERSION)
-                .path(endPointPath);
+        client = ClientBuilder.newClient();
+        this.dockerApiRoot = dockerApiRoot;
+        this.endPointPath = endPointPath;
+        this.apiVersion = apiVersion;
     }
 
     public void setCredentials(Credentials credentials) {
         this.credentials = credentials;
     }
 
+    /**
+     * @return the API version this service uses, negotiated with the daemon the first time it's needed
+     */
+    public DockerApiVersion getApiVersion() {
+        return apiVersion.get();
+    }
+
+    /**
+     * @param capability the API feature to check
+     * @return <code>true</code> if the API version this service uses supports the passed feature
+     */
+    public boolean supports(DockerCapability capability) {
+        return capability.isSupportedBy(getApiVersion());
+    }
+
+    /**
+     * Returns the end point of this service for the API version it uses. It's built on every call, a version that
+     * couldn't be negotiated yet falls back to the minimum and may be negotiated later.
+     *
+     * @return the versioned end point of this service
+     */
     protected WebTarget getServiceEndPoint() {
-        return serviceEndPoint;
+        return client.target(dockerApiRoot)
+                .path(getApiVersion().getPath())
+                .path(endPointPath);
+    }
+
+    /**
+     * Returns the end point of this service without an API version in the path, the daemon will answer using its
+     * newest API version. Only use this for calls that are the same in all API versions.
+     *
+     * @return the end point of this service for the daemon's current API version
+     */
+    protected WebTarget getUnversionedServiceEndPoint() {
+        return client.target(dockerApiRoot)
+                .path(endPointPath);
+    }
+
+    /**
+     * Adds a "filters" query parameter that only matches resources with all passed labels. The filter is JSON, which
+     * is passed as a template value so its braces don't get mistaken for a URI template.
+     *
+     * @param target       the target to add the parameter to
+     * @param labelFilters label names or "name=value" pairs
+     * @return the target with the parameter
+     */
+    protected WebTarget withLabelFilters(WebTarget target, List<String> labelFilters) {
+        if (labelFilters.isEmpty()) {
+            return target;
+        }
+        Map<String, List<String>> filters = Collections.singletonMap("label", labelFilters);
+        return target.queryParam("filters", "{filters}")
+                .resolveTemplate("filters", toJson(filters));
     }
 
     protected String getRegistryAuthHeaderValue() {
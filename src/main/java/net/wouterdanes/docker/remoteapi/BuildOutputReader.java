@@ -0,0 +1,120 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.remoteapi;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.base.Ticker;
+
+import org.codehaus.jackson.map.MappingIterator;
+import org.codehaus.jackson.map.ObjectMapper;
+
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
+import net.wouterdanes.docker.remoteapi.model.BuildResult;
+import net.wouterdanes.docker.remoteapi.model.BuildStep;
+
+/**
+ * This class is responsible for reading the output stream of an image build while the daemon writes it. It times the
+ * steps of the Dockerfile as their output arrives and notes which steps were taken from the layer cache.
+ */
+final class BuildOutputReader {
+
+    private static final Pattern STEP_PATTERN = Pattern.compile("Step (\\d+)(?:/\\d+)? ?: (.*)");
+    private static final Pattern IMAGE_ID_PATTERN = Pattern.compile("Successfully built ([0-9a-f]+)");
+    private static final String USING_CACHE = "---> Using cache";
+
+    private final Ticker ticker;
+    private final List<BuildStep> steps = new ArrayList<>();
+    private final StringBuilder output = new StringBuilder();
+
+    private int stepNumber;
+    private String instruction;
+    private long stepStart;
+    private boolean cached;
+
+    BuildOutputReader(final Ticker ticker) {
+        this.ticker = ticker;
+    }
+
+    /**
+     * Reads the output stream of a build up to its end.
+     *
+     * @param stream the JSON messages written by the daemon
+     * @return the id of the built image and its steps
+     * @throws IOException     when the stream can't be read
+     * @throws DockerException when the build failed
+     */
+    BuildResult read(final InputStream stream) throws IOException {
+        MappingIterator<Map<String, Object>> messages = new ObjectMapper().reader(Map.class).readValues(stream);
+        while (messages.hasNextValue()) {
+            Map<String, Object> message = messages.nextValue();
+            if (message.containsKey("error")) {
+                finishStep();
+                throw new DockerException(String.format("Building the image failed: %s", message.get("error")),
+                        output.toString());
+            }
+            Object text = message.get("stream");
+            if (text != null) {
+                readText(text.toString());
+            }
+        }
+        finishStep();
+
+        Matcher matcher = IMAGE_ID_PATTERN.matcher(output);
+        String imageId = null;
+        while (matcher.find()) {
+            imageId = matcher.group(1);
+        }
+        if (imageId == null) {
+            throw new DockerException("Can't obtain ID from build output stream.", output.toString());
+        }
+        return new BuildResult(imageId, steps);
+    }
+
+    private void readText(final String text) {
+        output.append(text);
+        for (String line : text.split("\n")) {
+            Matcher matcher = STEP_PATTERN.matcher(line.trim());
+            if (matcher.matches()) {
+                finishStep();
+                stepNumber = Integer.parseInt(matcher.group(1));
+                instruction = matcher.group(2).trim();
+                stepStart = ticker.read();
+                cached = false;
+            } else if (line.trim().startsWith(USING_CACHE)) {
+                cached = true;
+            }
+        }
+    }
+
+    private void finishStep() {
+        if (instruction == null) {
+            return;
+        }
+        long durationMillis = TimeUnit.NANOSECONDS.toMillis(ticker.read() - stepStart);
+        steps.add(new BuildStep(stepNumber, instruction, durationMillis, cached));
+        instruction = null;
+    }
+}
@@ -19,10 +19,13 @@ package net.wouterdanes.docker.remoteapi;
 
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.List;
 
 import javax.ws.rs.HttpMethod;
 import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 
@@ -32,6 +35,7 @@ import net.wouterdanes.docker.remoteapi.model.ContainerCreateRequest;
 import net.wouterdanes.docker.remoteapi.model.ContainerCreateResponse;
 import net.wouterdanes.docker.remoteapi.model.ContainerInspectionResult;
 import net.wouterdanes.docker.remoteapi.model.ContainerStartRequest;
+import net.wouterdanes.docker.remoteapi.model.ContainerSummary;
 
 /**
  * This class is responsible for talking to the Docker Remote API "containers" endpoint.<br> See <a
@@ -72,6 +76,24 @@ public class ContainersService extends BaseService {
         checkContainerTargetingResponse(id, statusInfo);
     }
 
+    /**
+     * Starts a container that got its host configuration when it was created.
+     *
+     * @param id the id of the container
+     */
+    public void startContainer(String id) {
+        Response response = getServiceEndPoint()
+                .path(id)
+                .path("/start")
+                .request()
+                .post(null);
+
+        Response.StatusType statusInfo = response.getStatusInfo();
+        response.close();
+
+        checkContainerTargetingResponse(id, statusInfo);
+    }
+
     public void killContainer(String id) {
         Response response = getServiceEndPoint()
                 .path(id)
@@ -106,6 +128,24 @@ public class ContainersService extends BaseService {
         }
     }
 
+    /**
+     * Lists all containers, running or not, that carry the passed labels. Requires API v1.18.
+     *
+     * @param labelFilters label names or "name=value" pairs the containers must have
+     * @return the matching containers
+     */
+    public List<ContainerSummary> listContainers(List<String> labelFilters) {
+        WebTarget target = getServiceEndPoint()
+                .path("json")
+                .queryParam("all", 1);
+
+        String json = withLabelFilters(target, labelFilters)
+                .request(MediaType.APPLICATION_JSON_TYPE)
+                .get(String.class);
+
+        return Arrays.asList(toObject(json, ContainerSummary[].class));
+    }
+
     public ContainerInspectionResult inspectContainer(final String containerId) {
         String json = getServiceEndPoint()
                 .path(containerId)
@@ -0,0 +1,117 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.remoteapi;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A version of the Docker Remote API, like <code>1.12</code>. Versions are compared by their major and minor number.
+ */
+public final class DockerApiVersion implements Comparable<DockerApiVersion> {
+
+    private static final Pattern VERSION_PATTERN = Pattern.compile("v?(?<major>\\d+)\\.(?<minor>\\d+)");
+
+    /**
+     * The lowest API version the plugin supports, all services fall back to this version.
+     */
+    public static final DockerApiVersion MINIMUM = parse(BaseService.TARGET_DOCKER_API_VERSION);
+    /**
+     * The highest API version the plugin knows how to talk to.
+     */
+    public static final DockerApiVersion MAXIMUM = new DockerApiVersion(1, 25);
+
+    private final int major;
+    private final int minor;
+
+    public DockerApiVersion(final int major, final int minor) {
+        this.major = major;
+        this.minor = minor;
+    }
+
+    /**
+     * Parses an API version as returned by the daemon ("1.12") or as used in urls ("v1.12").
+     *
+     * @param version the version to parse
+     * @return the parsed version
+     * @throws IllegalArgumentException when the version can't be parsed
+     */
+    public static DockerApiVersion parse(String version) {
+        Preconditions.checkArgument(version != null, "Version was null");
+        Matcher matcher = VERSION_PATTERN.matcher(version.trim());
+        Preconditions.checkArgument(matcher.matches(), "'%s' is not a valid API version", version);
+        return new DockerApiVersion(Integer.parseInt(matcher.group("major")),
+                Integer.parseInt(matcher.group("minor")));
+    }
+
+    /**
+     * Returns the highest version supported by both the plugin and a daemon that supports the passed version, but
+     * never a version lower than {@link #MINIMUM}.
+     *
+     * @param daemonVersion the (highest) API version of the daemon
+     * @return the version to use when talking to the daemon
+     */
+    public static DockerApiVersion negotiate(DockerApiVersion daemonVersion) {
+        if (daemonVersion.compareTo(MINIMUM) < 0) {
+            return MINIMUM;
+        }
+        return daemonVersion.compareTo(MAXIMUM) > 0 ? MAXIMUM : daemonVersion;
+    }
+
+    public boolean isAtLeast(DockerApiVersion other) {
+        return compareTo(other) >= 0;
+    }
+
+    /**
+     * @return the version as it's used in API urls, for example <code>v1.12</code>
+     */
+    public String getPath() {
+        return "v" + this;
+    }
+
+    @Override
+    public int compareTo(final DockerApiVersion other) {
+        if (major != other.major) {
+            return major < other.major ? -1 : 1;
+        }
+        return minor < other.minor ? -1 : (minor == other.minor ? 0 : 1);
+    }
+
+    @Override
+    public boolean equals(final Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof DockerApiVersion)) {
+            return false;
+        }
+        DockerApiVersion other = (DockerApiVersion) obj;
+        return major == other.major && minor == other.minor;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * major + minor;
+    }
+
+    @Override
+    public String toString() {
+        return major + "." + minor;
+    }
+}
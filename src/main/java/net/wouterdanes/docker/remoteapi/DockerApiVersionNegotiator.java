@@ -0,0 +1,97 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.remoteapi;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.common.base.Strings;
+import com.google.common.base.Supplier;
+
+import net.wouterdanes.docker.remoteapi.model.DockerVersionInfo;
+
+/**
+ * Negotiates the API version to use with a docker daemon. The version is negotiated once per daemon (per JVM, so once
+ * per build) using {@link MiscService#getVersionInfo()} and cached afterwards. A failed negotiation falls back to
+ * {@link DockerApiVersion#MINIMUM} without being cached, so the next call tries again. The negotiation can be skipped
+ * by setting the system property {@value #API_VERSION_PROPERTY}.
+ */
+public final class DockerApiVersionNegotiator {
+
+    public static final String API_VERSION_PROPERTY = "docker.apiVersion";
+
+    private static final ConcurrentMap<String, Supplier<DockerApiVersion>> VERSIONS = new ConcurrentHashMap<>();
+
+    private DockerApiVersionNegotiator() {
+    }
+
+    /**
+     * Returns a supplier for the API version to use with the daemon at the passed root. The version is negotiated the
+     * first time the supplier is asked for it.
+     *
+     * @param dockerApiRoot the root url of the Docker Remote API, like <code>http://localhost:4243</code>
+     * @return a (caching) supplier of the version to use
+     */
+    public static Supplier<DockerApiVersion> forApiRoot(final String dockerApiRoot) {
+        Supplier<DockerApiVersion> version = VERSIONS.get(dockerApiRoot);
+        if (version != null) {
+            return version;
+        }
+        version = new NegotiatedVersion(dockerApiRoot);
+        Supplier<DockerApiVersion> existing = VERSIONS.putIfAbsent(dockerApiRoot, version);
+        return existing != null ? existing : version;
+    }
+
+    private static DockerApiVersion negotiate(String dockerApiRoot) {
+        String pinnedVersion = System.getProperty(API_VERSION_PROPERTY);
+        if (!Strings.isNullOrEmpty(pinnedVersion)) {
+            return DockerApiVersion.negotiate(DockerApiVersion.parse(pinnedVersion));
+        }
+        DockerVersionInfo versionInfo = new MiscService(dockerApiRoot).getVersionInfo();
+        return DockerApiVersion.negotiate(DockerApiVersion.parse(versionInfo.getApiVersion()));
+    }
+
+    /**
+     * Remembers the version of a daemon once it was negotiated successfully
+     */
+    private static final class NegotiatedVersion implements Supplier<DockerApiVersion> {
+
+        private final String dockerApiRoot;
+        private volatile DockerApiVersion version;
+
+        private NegotiatedVersion(final String dockerApiRoot) {
+            this.dockerApiRoot = dockerApiRoot;
+        }
+
+        @Override
+        public DockerApiVersion get() {
+            DockerApiVersion negotiated = version;
+            if (negotiated != null) {
+                return negotiated;
+            }
+            try {
+                negotiated = negotiate(dockerApiRoot);
+            } catch (RuntimeException ignored) {
+                // Daemons that don't answer the unversioned version call are too old to know better than v1.12, but
+                // the call can fail for a passing reason too, so it's tried again next time
+                return DockerApiVersion.MINIMUM;
+            }
+            version = negotiated;
+            return negotiated;
+        }
+    }
+}
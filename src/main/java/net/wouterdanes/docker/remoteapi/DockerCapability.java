@@ -0,0 +1,67 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.remoteapi;
+
+/**
+ * Features of the Docker Remote API that are not available in {@link DockerApiVersion#MINIMUM}. Services use these to
+ * pick the cheapest way to do something on the daemon they talk to, falling back to the v1.12 way.
+ */
+public enum DockerCapability {
+
+    /**
+     * The container's host configuration (links, port bindings, binds) can be passed when creating it
+     */
+    HOST_CONFIG_ON_CREATE(1, 15),
+    /**
+     * Containers can carry labels
+     */
+    CONTAINER_LABELS(1, 18),
+    /**
+     * Lists of containers and images can be filtered on the daemon
+     */
+    LIST_FILTERS(1, 18),
+    /**
+     * Images can be created from a rootfs tar with Dockerfile instructions like ENV and CMD applied
+     */
+    IMPORT_CHANGES(1, 20),
+    /**
+     * Build arguments can be passed when building an image
+     */
+    BUILD_ARGS(1, 21),
+    /**
+     * Labels can be set on images when they're built
+     */
+    BUILD_LABELS(1, 23),
+    /**
+     * Images can be named as layer cache sources of a build, loaded images aren't used as cache otherwise
+     */
+    BUILD_CACHE_FROM(1, 25);
+
+    private final DockerApiVersion minimumVersion;
+
+    DockerCapability(final int major, final int minor) {
+        this.minimumVersion = new DockerApiVersion(major, minor);
+    }
+
+    public DockerApiVersion getMinimumVersion() {
+        return minimumVersion;
+    }
+
+    public boolean isSupportedBy(DockerApiVersion version) {
+        return version.isAtLeast(minimumVersion);
+    }
+}
@@ -17,14 +17,36 @@
 
 package net.wouterdanes.docker.remoteapi;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
 import javax.ws.rs.WebApplicationException;
+import javax.ws.rs.client.Entity;
 import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import com.google.common.base.Optional;
 
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.RequestEntityProcessing;
+
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
 import net.wouterdanes.docker.remoteapi.model.ImageDescriptor;
+import net.wouterdanes.docker.remoteapi.model.ImageHistoryEntry;
+import net.wouterdanes.docker.remoteapi.model.ImageInspectionResult;
+import net.wouterdanes.docker.remoteapi.model.ImageSummary;
 
 /**
  * This class is responsible for talking to the Docker Remote API "images" endpoint.<br> See <a
@@ -33,12 +55,15 @@ import net.wouterdanes.docker.remoteapi.model.ImageDescriptor;
  */
 public class ImagesService extends BaseService {
 
+    private static final String TAR_MEDIA_TYPE = "application/x-tar";
+    private static final Pattern IMPORT_STATUS_PATTERN = Pattern.compile("\"status\"\\s*:\\s*\"([^\" ]+)\"");
+
     public ImagesService(String dockerApiRoot) {
         super(dockerApiRoot, "/images");
     }
 
     public String pullImage(final String image) {
-        ImageDescriptor descriptor = new ImageDescriptor(image);
+        ImageDescriptor descriptor = ImageDescriptor.of(image);
 
         WebTarget target = getServiceEndPoint()
                 .path("create")
@@ -48,7 +73,10 @@ public class ImagesService extends BaseService {
             target = target.queryParam("repo", descriptor.getRepository().get());
         }
 
-        if (descriptor.getTag().isPresent()) {
+        // the daemon takes a digest in place of the tag
+        if (descriptor.getDigest().isPresent()) {
+            target = target.queryParam("tag", descriptor.getDigest().get());
+        } else if (descriptor.getTag().isPresent()) {
             target = target.queryParam("tag", descriptor.getTag().get());
         }
 
@@ -77,7 +105,7 @@ public class ImagesService extends BaseService {
     }
 
     private WebTarget createPushRequestFromTag(final String nameAndTag) {
-        ImageDescriptor descriptor = new ImageDescriptor(nameAndTag);
+        ImageDescriptor descriptor = ImageDescriptor.of(nameAndTag);
         WebTarget target = getServiceEndPoint()
                 .path(descriptor.getRegistryRepositoryAndImage())
                 .path("push");
@@ -90,7 +118,7 @@ public class ImagesService extends BaseService {
     }
 
     public void tagImage(final String imageId, final String nameAndTag) {
-        ImageDescriptor descriptor = new ImageDescriptor(nameAndTag);
+        ImageDescriptor descriptor = ImageDescriptor.of(nameAndTag);
 
         WebTarget target = getServiceEndPoint()
                 .path(imageId)
@@ -113,6 +141,173 @@ public class ImagesService extends BaseService {
         checkImageTargetingResponse(imageId, statusInfo);
     }
 
+    public ImageInspectionResult inspectImage(final String image) {
+        String json;
+        try {
+            json = getServiceEndPoint()
+                    .path(image)
+                    .path("json")
+                    .request(MediaType.APPLICATION_JSON_TYPE)
+                    .get(String.class);
+        } catch (WebApplicationException e) {
+            throw makeImageTargetingException(image, e);
+        }
+
+        return toObject(json, ImageInspectionResult.class);
+    }
+
+    /**
+     * Returns the layers of an image with the instructions that created them, newest first.
+     *
+     * @param image the id or name of the image
+     * @return the layers of the image
+     */
+    public List<ImageHistoryEntry> getImageHistory(final String image) {
+        String json;
+        try {
+            json = getServiceEndPoint()
+                    .path(image)
+                    .path("history")
+                    .request(MediaType.APPLICATION_JSON_TYPE)
+                    .get(String.class);
+        } catch (WebApplicationException e) {
+            throw makeImageTargetingException(image, e);
+        }
+
+        return Arrays.asList(toObject(json, ImageHistoryEntry[].class));
+    }
+
+    /**
+     * Lists the images that carry the passed labels, intermediate images are left out. Requires API v1.18.
+     *
+     * @param labelFilters label names or "name=value" pairs the images must have
+     * @return the matching images
+     */
+    public List<ImageSummary> listImages(List<String> labelFilters) {
+        String json = withLabelFilters(getServiceEndPoint().path("json"), labelFilters)
+                .request(MediaType.APPLICATION_JSON_TYPE)
+                .get(String.class);
+
+        return Arrays.asList(toObject(json, ImageSummary[].class));
+    }
+
+    /**
+     * Lists the dangling images that carry the passed labels: images that lost their last tag, like earlier builds
+     * of an image that was rebuilt under the same name. Requires API v1.18.
+     *
+     * @param labelFilters label names or "name=value" pairs the images must have
+     * @return the matching images
+     */
+    public List<ImageSummary> listDanglingImages(List<String> labelFilters) {
+        Map<String, List<String>> filters = new LinkedHashMap<>();
+        filters.put("dangling", Collections.singletonList("true"));
+        if (!labelFilters.isEmpty()) {
+            filters.put("label", labelFilters);
+        }
+        String json = getServiceEndPoint()
+                .path("json")
+                .queryParam("filters", "{filters}")
+                .resolveTemplate("filters", toJson(filters))
+                .request(MediaType.APPLICATION_JSON_TYPE)
+                .get(String.class);
+
+        return Arrays.asList(toObject(json, ImageSummary[].class));
+    }
+
+    /**
+     * Creates an image from a tar of a root filesystem, like <code>docker import</code>. The tar is streamed to the
+     * daemon while it's written, no build containers are involved.
+     *
+     * @param rootfsTar  writes the tar of the root filesystem
+     * @param repository the name and optional tag of the image
+     * @param changes    Dockerfile instructions (ENV, CMD, ..) to apply to the image, requires API v1.20 when not empty
+     * @return the ID of the created image
+     */
+    public String importImage(final StreamingOutput rootfsTar, final Optional<String> repository,
+                              final List<String> changes) {
+        WebTarget target = getServiceEndPoint()
+                .path("create")
+                .queryParam("fromSrc", "-");
+        if (repository.isPresent()) {
+            target = target.queryParam("repo", repository.get());
+        }
+        for (int i = 0; i < changes.size(); i++) {
+            // instructions can contain braces, pass them as template values so they're not mistaken for templates
+            String name = "change" + i;
+            target = target.queryParam("changes", "{" + name + "}").resolveTemplate(name, changes.get(i));
+        }
+
+        String jsonStream;
+        try {
+            jsonStream = target
+                    .property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.CHUNKED)
+                    .request(MediaType.APPLICATION_JSON_TYPE)
+                    .post(Entity.entity(rootfsTar, TAR_MEDIA_TYPE), String.class);
+        } catch (WebApplicationException e) {
+            throw new DockerException("Can't import image", e);
+        }
+
+        String imageId = null;
+        Matcher matcher = IMPORT_STATUS_PATTERN.matcher(jsonStream);
+        while (matcher.find()) {
+            imageId = matcher.group(1);
+        }
+        if (imageId == null || jsonStream.contains("\"error\"")) {
+            throw new DockerException("Can't obtain ID from import output stream.", jsonStream);
+        }
+        return imageId;
+    }
+
+    /**
+     * Saves an image, with its parent layers, tags and metadata, to a tar archive. The archive is streamed to the
+     * file, it's not held in memory.
+     *
+     * @param image       the name or id of the image, saving by name keeps the name when the archive is loaded
+     * @param destination the file to write the archive to
+     */
+    public void saveImage(final String image, final File destination) {
+        Response response = getServiceEndPoint()
+                .path(image)
+                .path("get")
+                .request(TAR_MEDIA_TYPE)
+                .get();
+        try {
+            checkImageTargetingResponse(image, response.getStatusInfo());
+            try (InputStream archive = response.readEntity(InputStream.class)) {
+                Files.copy(archive, destination.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new DockerException(String.format("Can't write image '%s' to %s", image, destination), e);
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Loads images from a tar archive created by {@link #saveImage(String, File)} or <code>docker save</code>. The
+     * archive is sent in chunks, it's not held in memory.
+     *
+     * @param archive the archive to load
+     */
+    public void loadImage(final File archive) {
+        try (InputStream in = Files.newInputStream(archive.toPath())) {
+            Response response = getServiceEndPoint()
+                    .path("load")
+                    .property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.CHUNKED)
+                    .request(MediaType.APPLICATION_JSON_TYPE)
+                    .post(Entity.entity(in, TAR_MEDIA_TYPE));
+            Response.StatusType statusInfo = response.getStatusInfo();
+            String output = response.readEntity(String.class);
+            response.close();
+            // newer daemons report errors in the output stream with a success status
+            if (statusInfo.getFamily() != Response.Status.Family.SUCCESSFUL || output.contains("\"error\"")) {
+                throw new DockerException(String.format("Can't load image archive %s", archive), output);
+            }
+        } catch (IOException e) {
+            throw new DockerException(String.format("Can't read image archive %s", archive), e);
+        }
+    }
+
     public void deleteImage(final String imageId) {
         try {
             getServiceEndPoint()
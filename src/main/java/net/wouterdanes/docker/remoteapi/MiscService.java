@@ -17,15 +17,35 @@
 
 package net.wouterdanes.docker.remoteapi;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.client.Entity;
+import javax.ws.rs.client.WebTarget;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import com.google.common.base.Optional;
+import com.google.common.base.Ticker;
+
+import org.glassfish.jersey.client.ClientProperties;
+import org.glassfish.jersey.client.RequestEntityProcessing;
 
+import net.wouterdanes.docker.remoteapi.exception.ContainerNotFoundException;
 import net.wouterdanes.docker.remoteapi.exception.DockerException;
+import net.wouterdanes.docker.remoteapi.model.BuildResult;
+import net.wouterdanes.docker.remoteapi.model.ContainerCommitResponse;
 import net.wouterdanes.docker.remoteapi.model.DockerVersionInfo;
 
 /**
@@ -33,20 +53,18 @@ import net.wouterdanes.docker.remoteapi.model.DockerVersionInfo;
  */
 public class MiscService extends BaseService {
 
-    private static final Pattern BUILD_IMAGE_ID_EXTRACTION_PATTERN =
-            Pattern.compile(".*Successfully built ([0-9a-f]+).*", Pattern.DOTALL);
-
     public MiscService(final String dockerApiRoot) {
         super(dockerApiRoot, "/");
     }
 
     /**
-     * Returns the Docker version information
+     * Returns the Docker version information. This call doesn't depend on the negotiated API version, so it can be used
+     * to negotiate it.
      *
      * @return a {@link DockerVersionInfo} instance describing this docker installation.
      */
     public DockerVersionInfo getVersionInfo() {
-        String json = getServiceEndPoint()
+        String json = getUnversionedServiceEndPoint()
                 .path("/version")
                 .request(MediaType.APPLICATION_JSON_TYPE)
                 .get(String.class);
@@ -61,19 +79,130 @@ public class MiscService extends BaseService {
      * @return the ID of the created image
      */
     public String buildImage(byte[] tarArchive, Optional<String> name) {
-        String jsonStream = getServiceEndPoint()
+        return buildImage(tarArchive, name, Collections.<String, String>emptyMap(),
+                Collections.<String, String>emptyMap(), Collections.<String>emptyList()).getImageId();
+    }
+
+    /**
+     * Builds an image based on the passed tar archive and labels it. Optionally names &amp; tags the image
+     * @param tarArchive the tar archive to use as a source for the image
+     * @param name the name and optional tag of the image.
+     * @param labels the labels to set on the image, requires API v1.23 when not empty
+     * @param buildArgs the values of the ARG instructions of the Dockerfile, requires API v1.21 when not empty
+     * @param cacheFrom the images whose layers the build may reuse, requires API v1.25 when not empty
+     * @return the ID of the created image and the steps that built it
+     */
+    public BuildResult buildImage(byte[] tarArchive, Optional<String> name, Map<String, String> labels,
+                             Map<String, String> buildArgs, List<String> cacheFrom) {
+        return buildImage(Entity.entity(tarArchive, "application/tar"), name, labels, buildArgs, cacheFrom, false);
+    }
+
+    /**
+     * Builds an image based on a tar archive on disk and labels it. Optionally names &amp; tags the image. The archive
+     * is sent in chunks straight from the file, it's not read into memory.
+     * @param tarArchive the tar archive to use as a source for the image
+     * @param name the name and optional tag of the image.
+     * @param labels the labels to set on the image, requires API v1.23 when not empty
+     * @param buildArgs the values of the ARG instructions of the Dockerfile, requires API v1.21 when not empty
+     * @param cacheFrom the images whose layers the build may reuse, requires API v1.25 when not empty
+     * @return the ID of the created image and the steps that built it
+     */
+    public BuildResult buildImage(final File tarArchive, Optional<String> name, Map<String, String> labels,
+                             Map<String, String> buildArgs, List<String> cacheFrom) {
+        StreamingOutput archive = new StreamingOutput() {
+            @Override
+            public void write(final OutputStream output) throws IOException {
+                try (FileChannel channel = FileChannel.open(tarArchive.toPath(), StandardOpenOption.READ)) {
+                    WritableByteChannel target = Channels.newChannel(output);
+                    long size = channel.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += channel.transferTo(position, size - position, target);
+                    }
+                }
+            }
+        };
+        return buildImage(Entity.entity(archive, "application/tar"), name, labels, buildArgs, cacheFrom, true);
+    }
+
+    private BuildResult buildImage(Entity<?> tarArchive, Optional<String> name, Map<String, String> labels,
+                                   Map<String, String> buildArgs, List<String> cacheFrom, boolean chunked) {
+        // the build isn't quiet, the output of the steps is used to time them
+        WebTarget target = getServiceEndPoint()
                 .path("/build")
-                .queryParam("q", true)
                 .queryParam("t", name.orNull())
-                .queryParam("forcerm")
+                .queryParam("forcerm");
+
+        if (!labels.isEmpty()) {
+            // JSON contains braces, pass it as a template value so it's not mistaken for a template
+            target = target.queryParam("labels", "{labels}")
+                    .resolveTemplate("labels", toJson(labels));
+        }
+
+        if (!buildArgs.isEmpty()) {
+            target = target.queryParam("buildargs", "{buildargs}")
+                    .resolveTemplate("buildargs", toJson(buildArgs));
+        }
+
+        if (!cacheFrom.isEmpty()) {
+            target = target.queryParam("cachefrom", "{cachefrom}")
+                    .resolveTemplate("cachefrom", toJson(cacheFrom));
+        }
+
+        if (chunked) {
+            target = target.property(ClientProperties.REQUEST_ENTITY_PROCESSING, RequestEntityProcessing.CHUNKED);
+        }
+
+        Response response = target
                 .request(MediaType.APPLICATION_JSON_TYPE)
-                .post(Entity.entity(tarArchive, "application/tar"), String.class);
+                .post(tarArchive);
+        try {
+            if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                throw new DockerException(String.format("Can't build image: %s",
+                        response.getStatusInfo().getReasonPhrase()), response.readEntity(String.class));
+            }
+            try (InputStream output = response.readEntity(InputStream.class)) {
+                return new BuildOutputReader(Ticker.systemTicker()).read(output);
+            }
+        } catch (IOException e) {
+            throw new DockerException("Can't read build output stream", e);
+        } finally {
+            response.close();
+        }
+    }
+
+    /**
+     * Creates a new image from the current state of a container, the container is paused while it's being committed.
+     * @param containerId the id of the container to commit
+     * @param repository the repository (name) of the new image
+     * @param tag the optional tag of the new image
+     * @param labels the labels of the new image, these replace labels with the same name of the container
+     * @return the ID of the created image
+     */
+    public String commitContainer(String containerId, String repository, Optional<String> tag,
+                                  Map<String, String> labels) {
+        WebTarget target = getServiceEndPoint()
+                .path("/commit")
+                .queryParam("container", containerId)
+                .queryParam("repo", repository);
+
+        if (tag.isPresent()) {
+            target = target.queryParam("tag", tag.get());
+        }
 
-        Matcher matcher = BUILD_IMAGE_ID_EXTRACTION_PATTERN.matcher(jsonStream);
-        if (!matcher.matches()) {
-            throw new DockerException("Can't obtain ID from build output stream.", jsonStream);
+        String json;
+        try {
+            json = target.request(MediaType.APPLICATION_JSON_TYPE)
+                    .post(Entity.entity(toJson(Collections.singletonMap("Labels", labels)),
+                            MediaType.APPLICATION_JSON_TYPE), String.class);
+        } catch (WebApplicationException e) {
+            if (e.getResponse().getStatus() == 404) {
+                throw new ContainerNotFoundException(containerId);
+            }
+            throw new DockerException(e.getResponse().getStatusInfo().getReasonPhrase(), e);
         }
-        return matcher.group(1);
+
+        return toObject(json, ContainerCommitResponse.class).getId();
     }
 
-}
\ No newline at end of file
+}
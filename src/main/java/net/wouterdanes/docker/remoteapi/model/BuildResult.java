@@ -0,0 +1,42 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.remoteapi.model;
+
+import java.util.List;
+
+/**
+ * The result of an image build: the id of the image and the steps that built it.
+ */
+public class BuildResult {
+
+    private final String imageId;
+    private final List<BuildStep> steps;
+
+    public BuildResult(final String imageId, final List<BuildStep> steps) {
+        this.imageId = imageId;
+        this.steps = steps;
+    }
+
+    public String getImageId() {
+        return imageId;
+    }
+
+    public List<BuildStep> getSteps() {
+        return steps;
+    }
+}
@@ -0,0 +1,64 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.remoteapi.model;
+
+/**
+ * A single step of an image build, as reported in the output stream of
+ * <a href="https://docs.docker.com/engine/api/v1.24/#build-image-from-a-dockerfile">the build end point</a>.
+ */
+public class BuildStep {
+
+    private final int number;
+    private final String instruction;
+    private final long durationMillis;
+    private final boolean cached;
+
+    public BuildStep(final int number, final String instruction, final long durationMillis, final boolean cached) {
+        this.number = number;
+        this.instruction = instruction;
+        this.durationMillis = durationMillis;
+        this.cached = cached;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public String getInstruction() {
+        return instruction;
+    }
+
+    /**
+     * @return the time between the start of this step and the start of the next step, or the end of the build
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * @return <code>true</code> when the daemon reused the result of this step from its layer cache
+     */
+    public boolean isCached() {
+        return cached;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Step %s: %s", number, instruction);
+    }
+}
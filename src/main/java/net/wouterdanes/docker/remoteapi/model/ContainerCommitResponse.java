@@ -0,0 +1,39 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.remoteapi.model;
+
+import org.codehaus.jackson.annotate.JsonProperty;
+
+/**
+ * See <a href="http://docs.docker.com/reference/api/docker_remote_api_v1.12/#23-misc">
+ * http://docs.docker.com/reference/api/docker_remote_api_v1.12/#create-a-new-image-from-a-containers-changes</a>
+ */
+@SuppressWarnings("unused")
+public class ContainerCommitResponse {
+
+    @JsonProperty("Id")
+    private String id;
+
+    public void setId(final String id) {
+        this.id = id;
+    }
+
+    public String getId() {
+        return id;
+    }
+}
@@ -19,7 +19,9 @@ package net.wouterdanes.docker.remoteapi.model;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.codehaus.jackson.annotate.JsonProperty;
 
@@ -40,6 +42,10 @@ public class ContainerCreateRequest {
     private List<String> cmd;
     @JsonProperty("Image")
     private String image;
+    @JsonProperty("HostConfig")
+    private ContainerStartRequest hostConfig;
+    @JsonProperty("Labels")
+    private Map<String, String> labels;
 
     public String getHostname() {
         return hostname;
@@ -61,6 +67,14 @@ public class ContainerCreateRequest {
         return image;
     }
 
+    public ContainerStartRequest getHostConfig() {
+        return hostConfig;
+    }
+
+    public Map<String, String> getLabels() {
+        return labels;
+    }
+
     public ContainerCreateRequest withHostname(String hostname) {
         this.hostname = hostname;
         return this;
@@ -91,4 +105,27 @@ public class ContainerCreateRequest {
         return this;
     }
 
+    /**
+     * Passes the host configuration (links, port bindings, binds) when creating the container, so it doesn't need to
+     * be passed when starting it. Requires API v1.15.
+     *
+     * @param hostConfig the host configuration
+     * @return this object
+     */
+    public ContainerCreateRequest withHostConfig(ContainerStartRequest hostConfig) {
+        this.hostConfig = hostConfig;
+        return this;
+    }
+
+    /**
+     * Sets the labels of the container. Requires API v1.18.
+     *
+     * @param labels the labels
+     * @return this object
+     */
+    public ContainerCreateRequest withLabels(Map<String, String> labels) {
+        this.labels = new LinkedHashMap<>(labels);
+        return this;
+    }
+
 }
@@ -40,6 +40,8 @@ public class ContainerInspectionResult {
     private String path;
     @JsonProperty("Args")
     private List<String> args;
+    @JsonProperty("Image")
+    private String imageId;
 
     @JsonProperty("Config")
     private Config config;
@@ -67,6 +69,10 @@ public class ContainerInspectionResult {
         return args;
     }
 
+    public String getImageId() {
+        return imageId;
+    }
+
     public Config getConfig() {
         return config;
     }
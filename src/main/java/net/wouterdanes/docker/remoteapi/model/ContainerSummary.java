@@ -0,0 +1,70 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.remoteapi.model;
+
+import java.util.Collections;
+import java.util.Map;
+
+import org.codehaus.jackson.annotate.JsonProperty;
+
+/**
+ * Holds a container as it's returned when listing containers. See <a
+ * href="http://docs.docker.com/reference/api/docker_remote_api_v1.18/#list-containers">
+ * http://docs.docker.com/reference/api/docker_remote_api_v1.18/#list-containers</a>
+ */
+@SuppressWarnings("unused")
+public class ContainerSummary {
+
+    @JsonProperty("Id")
+    private String id;
+    @JsonProperty("Image")
+    private String image;
+    @JsonProperty("Created")
+    private long created;
+    @JsonProperty("Status")
+    private String status;
+    @JsonProperty("Labels")
+    private Map<String, String> labels;
+
+    public String getId() {
+        return id;
+    }
+
+    public String getImage() {
+        return image;
+    }
+
+    /**
+     * @return the time the container was created, in seconds since the epoch
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    public String getStatus() {
+        return status;
+    }
+
+    public boolean isRunning() {
+        return status != null && status.startsWith("Up");
+    }
+
+    public Map<String, String> getLabels() {
+        return labels != null ? labels : Collections.<String, String>emptyMap();
+    }
+}
@@ -17,48 +17,110 @@
 
 package net.wouterdanes.docker.remoteapi.model;
 
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import com.google.common.base.Optional;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Strings;
 
 /**
- * Creates an image descriptor based on a passed image id or qualifier in the form ([registry]/[repo]/[image]:[tag])
+ * Creates an image descriptor based on a passed image id or qualifier in the form
+ * ([registry]/[repo]/[image]:[tag]@[digest]). The repository can have more than one path component, like
+ * <code>library/base/ubuntu</code>. The first component is the registry when it contains a <code>.</code> or a
+ * <code>:</code> or is <code>localhost</code>, like docker decides it.
  */
 public class ImageDescriptor {
 
-    private static final Pattern IMAGE_QUALIFIER = Pattern.compile("^"
-            + "((?<registry>[\\w\\.\\-]+(:\\d+)?)/)??" // registry
-            + "((?<repository>[\\w]+)/)?(?<image>[\\w]+)" // repository/image
-            + "(:(?<tag>[\\w\\.\\-]+))?" // tag
-            + "$");
+    private static final String LOCALHOST = "localhost";
+    private static final int CACHE_SIZE = 512;
+
+    private static final Map<String, ImageDescriptor> CACHE = Collections.synchronizedMap(
+            new LinkedHashMap<String, ImageDescriptor>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(final Map.Entry<String, ImageDescriptor> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            });
 
     private final String id;
     private final Optional<String> registry;
     private final Optional<String> repository;
     private final String image;
     private final Optional<String> tag;
+    private final Optional<String> digest;
 
     public ImageDescriptor(String id) {
         Preconditions.checkArgument(!Strings.isNullOrEmpty(id), "Id was null or empty");
 
         this.id = id;
 
-        Matcher matcher = IMAGE_QUALIFIER.matcher(id);
-        if (matcher.matches()) {
-            // because Optional.orNull(x) cannot handle null values of x
-            this.registry = Optional.fromNullable(matcher.group("registry"));
-            this.repository = Optional.fromNullable(matcher.group("repository"));
-            this.image = matcher.group("image");
-            this.tag = Optional.fromNullable(matcher.group("tag"));
+        // a single pass finds the separators, the components are cut out of the id afterwards
+        int length = id.length();
+        int firstSlash = -1;
+        int lastSlash = -1;
+        int lastColon = -1;
+        int at = length;
+        boolean firstComponentIsHost = false;
+        for (int i = 0; i < length; i++) {
+            char c = id.charAt(i);
+            if (c == '@') {
+                at = i;
+                break;
+            }
+            if (c == '/') {
+                if (firstSlash < 0) {
+                    firstSlash = i;
+                }
+                lastSlash = i;
+            } else if (c == ':') {
+                lastColon = i;
+            }
+            if (firstSlash < 0 && (c == '.' || c == ':')) {
+                firstComponentIsHost = true;
+            }
+        }
+        int nameEnd = lastColon > lastSlash ? lastColon : at;
+        boolean hasRegistry = firstSlash > 0
+                && (firstComponentIsHost || firstSlash == LOCALHOST.length() && id.startsWith(LOCALHOST));
+        int repositoryStart = hasRegistry ? firstSlash + 1 : 0;
+
+        // the image, tag and digest can't be empty, other qualifiers are kept as a whole like image ids
+        boolean valid = lastSlash + 1 < nameEnd
+                && (nameEnd == at || nameEnd + 1 < at)
+                && (at == length || at + 1 < length);
+        if (valid) {
+            this.registry = hasRegistry ? Optional.of(id.substring(0, firstSlash)) : Optional.<String>absent();
+            this.repository = lastSlash > repositoryStart
+                    ? Optional.of(id.substring(repositoryStart, lastSlash))
+                    : Optional.<String>absent();
+            this.image = id.substring(lastSlash + 1, nameEnd);
+            this.tag = nameEnd < at ? Optional.of(id.substring(nameEnd + 1, at)) : Optional.<String>absent();
+            this.digest = at < length ? Optional.of(id.substring(at + 1)) : Optional.<String>absent();
         } else {
             this.registry = Optional.absent();
             this.repository = Optional.absent();
             this.image = id;
             this.tag = Optional.absent();
+            this.digest = Optional.absent();
+        }
+    }
+
+    /**
+     * Returns the descriptor of an image id or qualifier. Descriptors are immutable, so the ones of recently used
+     * qualifiers are cached and shared instead of parsing the same qualifier again.
+     *
+     * @param id the image id or qualifier
+     * @return the descriptor
+     */
+    public static ImageDescriptor of(String id) {
+        ImageDescriptor descriptor = CACHE.get(id);
+        if (descriptor == null) {
+            descriptor = new ImageDescriptor(id);
+            CACHE.put(id, descriptor);
         }
+        return descriptor;
     }
 
     public String getId() {
@@ -81,6 +143,9 @@ public class ImageDescriptor {
         return tag;
     }
 
+    public Optional<String> getDigest() {
+        return digest;
+    }
     public String getRegistryRepositoryAndImage() {
         StringBuilder buf = new StringBuilder();
         appendRegistry(buf);
@@ -136,6 +201,7 @@ public class ImageDescriptor {
                 + ", repository=" + repository.orNull()
                 + ", image=" + image
                 + ", tag=" + tag.orNull()
+                + ", digest=" + digest.orNull()
                 + "]";
     }
 
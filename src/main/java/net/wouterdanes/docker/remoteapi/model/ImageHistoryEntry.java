@@ -0,0 +1,66 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.remoteapi.model;
+
+import org.codehaus.jackson.annotate.JsonProperty;
+
+/**
+ * Holds a layer of an image as it's returned by the history of the image. See <a
+ * href="https://docs.docker.com/engine/api/v1.24/#get-the-history-of-an-image">
+ * https://docs.docker.com/engine/api/v1.24/#get-the-history-of-an-image</a>
+ */
+@SuppressWarnings("unused")
+public class ImageHistoryEntry {
+
+    @JsonProperty("Id")
+    private String id;
+    @JsonProperty("Created")
+    private long created;
+    @JsonProperty("CreatedBy")
+    private String createdBy;
+    @JsonProperty("Size")
+    private long size;
+
+    /**
+     * @return the id of the image the layer belongs to, <code>&lt;missing&gt;</code> for layers of pulled images
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the time the layer was created, in seconds since the epoch
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    /**
+     * @return the command that created the layer, like <code>/bin/sh -c #(nop) COPY file:1a2b in /app.jar</code>
+     */
+    public String getCreatedBy() {
+        return createdBy;
+    }
+
+    /**
+     * @return the size of the layer in bytes
+     */
+    public long getSize() {
+        return size;
+    }
+}
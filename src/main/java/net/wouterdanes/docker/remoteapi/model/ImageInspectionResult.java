@@ -0,0 +1,107 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.remoteapi.model;
+
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jackson.annotate.JsonProperty;
+
+/**
+ * Holds a part of the inspect result on an image. See <a
+ * href="http://docs.docker.com/reference/api/docker_remote_api_v1.12/#22-images">
+ * http://docs.docker.com/reference/api/docker_remote_api_v1.12/#inspect-an-image</a>
+ */
+@SuppressWarnings("unused")
+public class ImageInspectionResult {
+
+    @JsonProperty("Id")
+    private String id;
+    @JsonProperty("Parent")
+    private String parent;
+    @JsonProperty("Created")
+    private String created;
+    @JsonProperty("Size")
+    private Long size;
+    @JsonProperty("Architecture")
+    private String architecture;
+    @JsonProperty("Os")
+    private String os;
+    @JsonProperty("Config")
+    private Map<String, Object> config;
+    @JsonProperty("RootFS")
+    private RootFs rootFs;
+
+    public String getId() {
+        return id;
+    }
+
+    public String getParent() {
+        return parent;
+    }
+
+    public String getCreated() {
+        return created;
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public String getArchitecture() {
+        return architecture;
+    }
+
+    public String getOs() {
+        return os;
+    }
+
+    /**
+     * @return the run configuration of the image (Env, Cmd, Entrypoint, WorkingDir, ..) as the daemon reports it
+     */
+    public Map<String, Object> getConfig() {
+        return config;
+    }
+
+    /**
+     * @return the layers of the image, only reported by daemons that support API v1.23 and up, <code>null</code>
+     * otherwise
+     */
+    public RootFs getRootFs() {
+        return rootFs;
+    }
+
+    public static class RootFs {
+
+        @JsonProperty("Type")
+        private String type;
+        @JsonProperty("Layers")
+        private List<String> layers;
+
+        public String getType() {
+            return type;
+        }
+
+        /**
+         * @return the diff ids (digests of the uncompressed layer tars) of the layers, from the bottom layer up
+         */
+        public List<String> getLayers() {
+            return layers;
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.remoteapi.model;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.codehaus.jackson.annotate.JsonProperty;
+
+/**
+ * Holds an image as it's returned when listing images. See <a
+ * href="http://docs.docker.com/reference/api/docker_remote_api_v1.18/#list-images">
+ * http://docs.docker.com/reference/api/docker_remote_api_v1.18/#list-images</a>
+ */
+@SuppressWarnings("unused")
+public class ImageSummary {
+
+    @JsonProperty("Id")
+    private String id;
+    @JsonProperty("Created")
+    private long created;
+    @JsonProperty("RepoTags")
+    private List<String> repoTags;
+    @JsonProperty("Size")
+    private Long size;
+    @JsonProperty("Labels")
+    private Map<String, String> labels;
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return the time the image was created, in seconds since the epoch
+     */
+    public long getCreated() {
+        return created;
+    }
+
+    public List<String> getRepoTags() {
+        return repoTags != null ? repoTags : Collections.<String>emptyList();
+    }
+
+    public Long getSize() {
+        return size;
+    }
+
+    public Map<String, String> getLabels() {
+        return labels != null ? labels : Collections.<String, String>emptyMap();
+    }
+}
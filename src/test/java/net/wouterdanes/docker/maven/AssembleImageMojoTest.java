@@ -0,0 +1,140 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.maven;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.UUID;
+
+import com.google.common.base.Optional;
+
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.wouterdanes.docker.provider.AbstractFakeDockerProvider;
+import net.wouterdanes.docker.provider.DockerProviderSupplier;
+import net.wouterdanes.docker.provider.model.BuiltImageInfo;
+import net.wouterdanes.docker.provider.model.ImageAssemblyConfiguration;
+import net.wouterdanes.docker.remoteapi.exception.ImageNotFoundException;
+import net.wouterdanes.docker.remoteapi.model.ImageInspectionResult;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class AssembleImageMojoTest {
+
+    private static final String BASE_IMAGE = "java:8-jre";
+
+    private final String fakeProviderKey = UUID.randomUUID().toString();
+
+    private AssembleImageMojo mojo;
+    private File buildDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        FakeDockerProvider.instance = mock(FakeDockerProvider.class);
+        DockerProviderSupplier.registerProvider(fakeProviderKey, FakeDockerProvider.class);
+
+        buildDirectory = Files.createTempDirectory("target").toFile();
+        File classesDirectory = new File(buildDirectory, "classes");
+        assertTrue(new File(classesDirectory, "com/example").mkdirs());
+        Files.write(new File(classesDirectory, "com/example/Main.class").toPath(), new byte[]{(byte) 0xCA, (byte) 0xFE});
+        Files.write(new File(classesDirectory, "application.properties").toPath(), "port=8080".getBytes("UTF-8"));
+
+        ImageAssemblyConfiguration image = new ImageAssemblyConfiguration();
+        image.setId("app");
+        image.setNameAndTag("example/app:1.0");
+        image.setBaseImage(BASE_IMAGE);
+        image.setMainClass("com.example.Main");
+
+        mojo = new AssembleImageMojo();
+        mojo.setPluginContext(new HashMap());
+        mojo.setProviderName(fakeProviderKey);
+        mojo.setBuildDirectory(buildDirectory);
+        mojo.setClassesDirectory(classesDirectory);
+        mojo.setImages(Collections.singletonList(image));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        DockerProviderSupplier.removeProvider(fakeProviderKey);
+    }
+
+    @Test
+    public void testThatTheAssembledImageIsLoadedAndRegisteredAsBuilt() throws Exception {
+        when(FakeDockerProvider.instance.inspectImage(BASE_IMAGE)).thenReturn(baseImage(true));
+
+        mojo.execute();
+
+        File workDirectory = new File(new File(buildDirectory, AssembleImageMojo.ASSEMBLY_DIRECTORY), "app");
+        verify(FakeDockerProvider.instance).loadImage(new File(workDirectory, "image.tar"));
+        assertTrue(new File(workDirectory, "classes.tar").isFile());
+        assertTrue(new File(workDirectory, "resources.tar").isFile());
+        assertFalse(new File(workDirectory, "dependencies.tar").exists());
+
+        Optional<BuiltImageInfo> builtImage = mojo.getBuiltImageForStartId("app");
+        assertTrue(builtImage.isPresent());
+        assertTrue(builtImage.get().getImageId().startsWith("sha256:"));
+        assertEquals("example/app:1.0", builtImage.get().getNameAndTag().get());
+        assertTrue(mojo.getPluginErrors().isEmpty());
+    }
+
+    @Test
+    public void testThatAMissingBaseImageIsPulled() throws Exception {
+        when(FakeDockerProvider.instance.inspectImage(BASE_IMAGE))
+                .thenThrow(new ImageNotFoundException(BASE_IMAGE))
+                .thenReturn(baseImage(true));
+
+        mojo.execute();
+
+        verify(FakeDockerProvider.instance).pullImage(BASE_IMAGE);
+        assertTrue(mojo.getPluginErrors().isEmpty());
+    }
+
+    @Test
+    public void testThatADaemonThatDoesNotReportLayersRegistersAnError() throws Exception {
+        when(FakeDockerProvider.instance.inspectImage(BASE_IMAGE)).thenReturn(baseImage(false));
+
+        mojo.execute();
+
+        assertFalse(mojo.getBuiltImageForStartId("app").isPresent());
+        assertEquals(1, mojo.getPluginErrors().size());
+    }
+
+    private static ImageInspectionResult baseImage(boolean withLayers) throws Exception {
+        String rootFs = withLayers ? ",\"RootFS\":{\"Type\":\"layers\",\"Layers\":[\"sha256:abc\"]}" : "";
+        return new ObjectMapper().readValue("{\"Id\":\"sha256:base\",\"Config\":{\"Cmd\":[\"sh\"]}" + rootFs + "}",
+                ImageInspectionResult.class);
+    }
+
+    public static class FakeDockerProvider extends AbstractFakeDockerProvider {
+
+        private static FakeDockerProvider instance;
+
+        @Override
+        protected AbstractFakeDockerProvider getInstance() {
+            return instance;
+        }
+    }
+}
@@ -0,0 +1,77 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.maven;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import net.wouterdanes.docker.provider.model.ImageBuildConfiguration;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BuildContextSpoolTest {
+
+    private File directory;
+    private File dockerfile;
+
+    @Before
+    public void setUp() throws Exception {
+        File sources = Files.createTempDirectory("sources").toFile();
+        dockerfile = new File(sources, "Dockerfile");
+        Files.write(dockerfile.toPath(), "FROM busybox\n".getBytes(StandardCharsets.UTF_8));
+        directory = new File(Files.createTempDirectory("target").toFile(), BuildContextSpool.SPOOL_DIRECTORY);
+    }
+
+    @Test
+    public void testThatAnUnchangedReproducibleContextReusesItsSpool() throws Exception {
+        BuildContextSpool spool = new BuildContextSpool(directory, 10);
+
+        File first = spool.spool(reproducibleImage());
+        File second = spool.spool(reproducibleImage());
+
+        assertEquals(first, second);
+        assertTrue(first.getName().endsWith(".tar.gz"));
+        assertEquals(1, directory.list().length);
+    }
+
+    @Test
+    public void testThatTheLeastRecentlyUsedSpoolsAreRemoved() throws Exception {
+        BuildContextSpool spool = new BuildContextSpool(directory, 1);
+
+        File first = spool.spool(reproducibleImage());
+        assertTrue(first.setLastModified(first.lastModified() - 60000));
+        Files.write(dockerfile.toPath(), "FROM alpine\n".getBytes(StandardCharsets.UTF_8));
+        File second = spool.spool(reproducibleImage());
+
+        assertFalse(first.exists());
+        assertTrue(second.isFile());
+        assertEquals(1, directory.list().length);
+    }
+
+    private ImageBuildConfiguration reproducibleImage() {
+        ImageBuildConfiguration image = new ImageBuildConfiguration();
+        image.setFiles(Collections.singletonList(dockerfile));
+        image.setReproducible(true);
+        return image;
+    }
+}
@@ -0,0 +1,105 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class BuildContextTrimmerTest {
+
+    private static final List<String> NO_ENTRIES = Collections.emptyList();
+
+    private File directory;
+    private File appJar;
+    private File config;
+    private File readme;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = Files.createTempDirectory("context").toFile();
+        appJar = writeFile("app-1.0.jar", "jar");
+        config = writeFile("config.yml", "port: 8080");
+        readme = writeFile("README.md", "docs");
+    }
+
+    @Test
+    public void testThatOnlyTheDockerfileAndItsSourcesAreKept() throws Exception {
+        File dockerfile = writeFile("Dockerfile", "FROM java:8\n"
+                + "# ADD README.md /\n"
+                + "COPY --chown=app:app app-*.jar \\\n"
+                + "     /opt/app.jar\n"
+                + "ADD [\"./config.yml\", \"/etc/app/\"]\n"
+                + "ADD http://example.com/agent.jar /opt/\n");
+
+        List<File> trimmed = BuildContextTrimmer.trim(Arrays.asList(dockerfile, appJar, config, readme),
+                NO_ENTRIES);
+
+        assertEquals(Arrays.asList(dockerfile, appJar, config), trimmed);
+    }
+
+    @Test
+    public void testThatAllFilesAreKeptWhenTheWholeContextIsAdded() throws Exception {
+        File dockerfile = writeFile("Dockerfile", "FROM busybox\nCOPY . /app\n");
+
+        List<File> files = Arrays.asList(dockerfile, appJar, readme);
+
+        assertEquals(files, BuildContextTrimmer.trim(files, NO_ENTRIES));
+    }
+
+    @Test
+    public void testThatAllFilesAreKeptWhenASourceUsesAVariable() throws Exception {
+        File dockerfile = writeFile("Dockerfile", "FROM java:8\nARG JAR_FILE\nADD ${JAR_FILE} /app.jar\n"
+                + "COPY config.yml /etc/app/\n");
+
+        List<File> files = Arrays.asList(dockerfile, appJar, config, readme);
+
+        assertEquals(files, BuildContextTrimmer.trim(files, NO_ENTRIES));
+    }
+
+    @Test
+    public void testThatSourcesCanMatchArtifactsAndDependencies() throws Exception {
+        File dockerfile = writeFile("Dockerfile", "FROM java:8\nCOPY libs /opt/libs\nCOPY agent.jar /opt/\n");
+
+        List<File> trimmed = BuildContextTrimmer.trim(Arrays.asList(dockerfile, readme),
+                Arrays.asList("libs/guava-16.0.jar", "agent.jar"));
+
+        assertEquals(Collections.singletonList(dockerfile), trimmed);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatASourceWithoutMatchingFilesFails() throws Exception {
+        File dockerfile = writeFile("Dockerfile", "FROM java:8\nADD app-1.0.jarr /opt/app.jar\n");
+
+        BuildContextTrimmer.trim(Arrays.asList(dockerfile, appJar), NO_ENTRIES);
+    }
+
+    private File writeFile(String name, String contents) throws IOException {
+        File file = new File(directory, name);
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -17,30 +17,52 @@
 
 package net.wouterdanes.docker.maven;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.nio.file.Files;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import com.google.common.base.Optional;
 
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.artifact.handler.DefaultArtifactHandler;
 import org.apache.maven.plugin.MojoExecutionException;
 import org.apache.maven.plugin.MojoFailureException;
+import org.apache.maven.project.MavenProject;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 
 import net.wouterdanes.docker.provider.AbstractFakeDockerProvider;
 import net.wouterdanes.docker.provider.DockerExceptionThrowingDockerProvider;
 import net.wouterdanes.docker.provider.DockerProviderSupplier;
+import net.wouterdanes.docker.provider.model.BuiltImageInfo;
+import net.wouterdanes.docker.provider.model.DependencySetConfiguration;
+import net.wouterdanes.docker.provider.model.ImageArchiveConfiguration;
 import net.wouterdanes.docker.provider.model.ImageBuildConfiguration;
+import net.wouterdanes.docker.provider.model.ImageVariantConfiguration;
 import net.wouterdanes.docker.provider.model.PushableImage;
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
+import net.wouterdanes.docker.remoteapi.exception.ImageNotFoundException;
+import net.wouterdanes.docker.remoteapi.model.BuildStep;
+import net.wouterdanes.docker.remoteapi.model.ImageHistoryEntry;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
 
 public class BuildImageMojoTest {
 
@@ -101,6 +123,274 @@ public class BuildImageMojoTest {
         assertImageNotEnqueuedForPush();
     }
 
+    @Test
+    public void testThatImagesBuiltInTheBackgroundAreAwaitedWhenNeeded() throws Exception {
+        mojo.setAsync(true);
+
+        executeMojo(FAKE_PROVIDER_KEY);
+
+        Optional<BuiltImageInfo> builtImage = mojo.getBuiltImageForStartId(STARTID);
+        assertTrue(builtImage.isPresent());
+        assertEquals(IMAGEID, builtImage.get().getImageId());
+        assertEquals(1, mojo.getBuiltImages().size());
+        assertTrue(mojo.getPluginErrors().isEmpty());
+    }
+
+    @Test
+    public void testThatAFailedBackgroundBuildRegistersAnError() throws Exception {
+        mojo.setAsync(true);
+
+        executeMojo(DockerExceptionThrowingDockerProvider.PROVIDER_KEY);
+
+        assertFalse(mojo.getBuiltImageForStartId(STARTID).isPresent());
+        assertFalse(mojo.getPluginErrors().isEmpty());
+    }
+
+    @Test(timeout = 10000)
+    public void testThatImagesOfAnAbortedBackgroundBuildAreNotAwaitedForever() throws Exception {
+        mojo.setAsync(true);
+        Mockito.when(FakeDockerProvider.instance.buildImage(any(ImageBuildConfiguration.class)))
+                .thenThrow(new AssertionError("The build thread died"));
+
+        executeMojo(FAKE_PROVIDER_KEY);
+
+        assertFalse(mojo.getBuiltImageForStartId(STARTID).isPresent());
+        assertFalse(mojo.getPluginErrors().isEmpty());
+    }
+
+    @Test
+    public void testThatTheLayerCacheIsLoadedBeforeAndRefreshedAfterTheBuild() throws Exception {
+        File cacheFile = File.createTempFile("layer-cache", ".tar");
+        ImageArchiveConfiguration cache = new ImageArchiveConfiguration();
+        cache.setFile(cacheFile);
+        Mockito.when(mockImage.getCache()).thenReturn(cache);
+
+        executeMojo(FAKE_PROVIDER_KEY);
+
+        InOrder inOrder = Mockito.inOrder(FakeDockerProvider.instance);
+        inOrder.verify(FakeDockerProvider.instance).loadImage(cacheFile);
+        inOrder.verify(FakeDockerProvider.instance).buildImage(mockImage);
+        inOrder.verify(FakeDockerProvider.instance).saveImage(Mockito.eq(NAMEANDTAG), any(File.class));
+        assertTrue(mojo.getPluginErrors().isEmpty());
+    }
+
+    @Test
+    public void testThatTheLayerCacheOfAnUnnamedImageIsSavedById() throws Exception {
+        File cacheFile = File.createTempFile("layer-cache", ".tar");
+        ImageArchiveConfiguration cache = new ImageArchiveConfiguration();
+        cache.setFile(cacheFile);
+        Mockito.when(mockImage.getCache()).thenReturn(cache);
+        Mockito.when(mockImage.getNameAndTag()).thenReturn(null);
+
+        executeMojo(FAKE_PROVIDER_KEY);
+
+        Mockito.verify(FakeDockerProvider.instance).saveImage(Mockito.eq(IMAGEID), any(File.class));
+        assertTrue(mojo.getPluginErrors().isEmpty());
+    }
+
+    @Test
+    public void testThatABrokenLayerCacheDoesNotFailTheBuild() throws Exception {
+        File cacheFile = File.createTempFile("layer-cache", ".tar");
+        ImageArchiveConfiguration cache = new ImageArchiveConfiguration();
+        cache.setFile(cacheFile);
+        Mockito.when(mockImage.getCache()).thenReturn(cache);
+        Mockito.doThrow(new DockerException("Unexpected EOF")).when(FakeDockerProvider.instance).loadImage(cacheFile);
+
+        executeMojo(FAKE_PROVIDER_KEY);
+
+        Mockito.verify(FakeDockerProvider.instance).buildImage(mockImage);
+        assertTrue(mojo.getPluginErrors().isEmpty());
+    }
+
+    @Test
+    public void testThatAnImageWithARootfsIsImportedInsteadOfBuilt() throws Exception {
+        Mockito.when(mockImage.getRootfs()).thenReturn(new File("rootfs"));
+        Mockito.when(FakeDockerProvider.instance.importImage(mockImage)).thenReturn(IMAGEID);
+
+        executeMojo(FAKE_PROVIDER_KEY);
+
+        Mockito.verify(FakeDockerProvider.instance).importImage(mockImage);
+        Mockito.verify(FakeDockerProvider.instance, Mockito.never()).buildImage(any(ImageBuildConfiguration.class));
+        assertEquals(IMAGEID, mojo.getBuiltImageForStartId(STARTID).get().getImageId());
+        assertTrue(mojo.getPluginErrors().isEmpty());
+    }
+
+    @Test
+    public void testThatAFailedBuildIsRetried() throws Exception {
+        Mockito.when(FakeDockerProvider.instance.buildImage(any(ImageBuildConfiguration.class)))
+                .thenThrow(new DockerException("Connection reset"))
+                .thenReturn(IMAGEID);
+        mojo.setBuildRetries(1);
+
+        executeMojo(FAKE_PROVIDER_KEY);
+
+        Mockito.verify(FakeDockerProvider.instance, Mockito.times(2)).buildImage(mockImage);
+        assertEquals(IMAGEID, mojo.getBuiltImageForStartId(STARTID).get().getImageId());
+        assertTrue(mojo.getPluginErrors().isEmpty());
+    }
+
+    @Test
+    public void testThatMissingBaseImagesArePulledBeforeTheBuild() throws Exception {
+        File directory = Files.createTempDirectory("context").toFile();
+        File dockerfile = new File(directory, "Dockerfile");
+        Files.write(dockerfile.toPath(), ("FROM java:8 AS build\nFROM busybox\nFROM build\nFROM " + NAMEANDTAG + "\n")
+                .getBytes("UTF-8"));
+        Mockito.when(mockImage.getFiles()).thenReturn(Collections.singletonList(dockerfile));
+        Mockito.when(FakeDockerProvider.instance.inspectImage("java:8"))
+                .thenThrow(new ImageNotFoundException("java:8"));
+        mojo.setPrePull(true);
+        mojo.setPullParallelism(2);
+
+        executeMojo(FAKE_PROVIDER_KEY);
+
+        InOrder inOrder = Mockito.inOrder(FakeDockerProvider.instance);
+        inOrder.verify(FakeDockerProvider.instance).pullImage("java:8");
+        inOrder.verify(FakeDockerProvider.instance).buildImage(mockImage);
+        Mockito.verify(FakeDockerProvider.instance, Mockito.never()).pullImage("busybox");
+        Mockito.verify(FakeDockerProvider.instance, Mockito.never()).inspectImage(NAMEANDTAG);
+        assertTrue(mojo.getPluginErrors().isEmpty());
+    }
+
+    @Test
+    public void testThatADockerfileThatCantBeReadIsBuiltWithoutPullingAhead() throws Exception {
+        File directory = Files.createTempDirectory("context").toFile();
+        File dockerfile = new File(directory, "Dockerfile");
+        Files.write(dockerfile.toPath(), "FROM [\"java:8\"\n".getBytes("UTF-8"));
+        Mockito.when(mockImage.getFiles()).thenReturn(Collections.singletonList(dockerfile));
+        mojo.setPrePull(true);
+
+        executeMojo(FAKE_PROVIDER_KEY);
+
+        Mockito.verify(FakeDockerProvider.instance, Mockito.never()).pullImage(anyString());
+        Mockito.verify(FakeDockerProvider.instance).buildImage(mockImage);
+        assertTrue(mojo.getPluginErrors().isEmpty());
+    }
+
+    @Test
+    public void testThatVariantsNameTheCachedImageAsCacheSource() throws Exception {
+        ImageArchiveConfiguration cache = new ImageArchiveConfiguration();
+        cache.setFile(new File("app-cache.tar"));
+        ImageBuildConfiguration image = new ImageBuildConfiguration();
+        image.setId("app");
+        image.setNameAndTag("registry:5000/app:1.0");
+        image.setCache(cache);
+        ImageVariantConfiguration jdk8 = new ImageVariantConfiguration();
+        jdk8.setId("jdk8");
+
+        ImageBuildConfiguration variant = image.toVariant(jdk8);
+
+        assertEquals(Collections.singletonList("registry:5000/app:1.0"), image.getCacheFrom());
+        assertEquals("registry:5000/app:jdk8", variant.getNameAndTag());
+        assertEquals(Collections.singletonList("registry:5000/app:1.0"), variant.getCacheFrom());
+    }
+
+    @Test
+    public void testThatVariantsAreBuiltFromOneSharedContextUnderDerivedIds() throws Exception {
+        File directory = Files.createTempDirectory("context").toFile();
+        File dockerfile = new File(directory, "Dockerfile");
+        Files.write(dockerfile.toPath(), "ARG JDK\nFROM java:${JDK}\n".getBytes("UTF-8"));
+        ImageBuildConfiguration image = new ImageBuildConfiguration();
+        image.setId("app");
+        image.setNameAndTag("registry:5000/app:1.0");
+        image.setFiles(Collections.singletonList(dockerfile));
+        image.setBuildArgs(Collections.singletonMap("JDK", "7"));
+        ImageVariantConfiguration jdk8 = new ImageVariantConfiguration();
+        jdk8.setId("jdk8");
+        jdk8.setBuildArgs(Collections.singletonMap("JDK", "8"));
+        ImageVariantConfiguration jdk7 = new ImageVariantConfiguration();
+        jdk7.setId("jdk7");
+        jdk7.setTag("1.0-legacy");
+        image.setVariants(Arrays.asList(jdk8, jdk7));
+        mojo.setImages(Collections.singletonList(image));
+        mojo.setBuildDirectory(Files.createTempDirectory("target").toFile());
+        Mockito.when(FakeDockerProvider.instance.buildImage(any(ImageBuildConfiguration.class)))
+                .thenReturn("jdk8-image", "jdk7-image");
+
+        executeMojo(FAKE_PROVIDER_KEY);
+
+        ArgumentCaptor<ImageBuildConfiguration> variants = ArgumentCaptor.forClass(ImageBuildConfiguration.class);
+        Mockito.verify(FakeDockerProvider.instance, Mockito.times(2)).buildImage(variants.capture());
+        Map<String, ImageBuildConfiguration> variantsById = new HashMap<>();
+        for (ImageBuildConfiguration variant : variants.getAllValues()) {
+            variantsById.put(variant.getId(), variant);
+        }
+        assertEquals("registry:5000/app:jdk8", variantsById.get("app-jdk8").getNameAndTag());
+        assertEquals(Collections.singletonMap("JDK", "8"), variantsById.get("app-jdk8").getBuildArgs());
+        assertEquals("registry:5000/app:1.0-legacy", variantsById.get("app-jdk7").getNameAndTag());
+        assertEquals(Collections.singletonMap("JDK", "7"), variantsById.get("app-jdk7").getBuildArgs());
+        assertTrue(variantsById.get("app-jdk8").getCacheFrom().isEmpty());
+        assertNotNull(variantsById.get("app-jdk8").getContextArchive());
+        assertEquals(variantsById.get("app-jdk8").getContextArchive(),
+                variantsById.get("app-jdk7").getContextArchive());
+        assertTrue(mojo.getBuiltImageForStartId("app-jdk8").isPresent());
+        assertTrue(mojo.getBuiltImageForStartId("app-jdk7").isPresent());
+        assertFalse(mojo.getBuiltImageForStartId("app").isPresent());
+        assertTrue(mojo.getPluginErrors().isEmpty());
+    }
+
+    @Test
+    public void testThatTheStepsOfTheBuildAreReported() throws Exception {
+        File buildDirectory = Files.createTempDirectory("target").toFile();
+        mojo.setBuildDirectory(buildDirectory);
+        Mockito.when(mockImage.getBuildSteps()).thenReturn(Arrays.asList(
+                new BuildStep(1, "FROM java:8", 1200, false),
+                new BuildStep(2, "COPY app.jar /app.jar", 30, false)));
+
+        executeMojo(FAKE_PROVIDER_KEY);
+
+        String report = new String(Files.readAllBytes(new File(buildDirectory, BuildReport.REPORT_FILE).toPath()),
+                "UTF-8");
+        assertTrue(report.contains("\"imageId\" : \"" + IMAGEID + "\""));
+        assertTrue(report.contains("\"instruction\" : \"COPY app.jar /app.jar\""));
+        assertTrue(report.contains("\"uncachedSteps\" : 1"));
+    }
+
+    @Test
+    public void testThatAnImageOverItsSizeBudgetRegistersAnError() throws Exception {
+        File buildDirectory = Files.createTempDirectory("target").toFile();
+        Files.write(new File(buildDirectory, BuildReport.REPORT_FILE).toPath(),
+                ("{\"images\":[{\"id\":\"" + STARTID + "\",\"size\":1048576}]}").getBytes("UTF-8"));
+        mojo.setBuildDirectory(buildDirectory);
+        Mockito.when(mockImage.getMaxSizeMb()).thenReturn(2L);
+        List<ImageHistoryEntry> layers = Arrays.asList(
+                layer("/bin/sh -c #(nop) COPY file:1a2b in /app.jar", 2 * 1048576),
+                layer("/bin/sh -c #(nop) ADD file:3c4d in /", 1048576));
+        Mockito.when(FakeDockerProvider.instance.getImageHistory(IMAGEID)).thenReturn(layers);
+
+        executeMojo(FAKE_PROVIDER_KEY);
+
+        String report = new String(Files.readAllBytes(new File(buildDirectory, BuildReport.REPORT_FILE).toPath()),
+                "UTF-8");
+        assertTrue(report.contains("\"instruction\" : \"COPY file:1a2b in /app.jar\""));
+        assertTrue(report.contains("\"size\" : 3145728"));
+        assertTrue(report.contains("\"sizeDelta\" : 2097152"));
+        assertEquals(1, mojo.getPluginErrors().size());
+    }
+
+    @Test
+    public void testThatDependenciesOfTheConfiguredScopeAreAddedToTheContext() throws Exception {
+        File directory = Files.createTempDirectory("context").toFile();
+        File dockerfile = new File(directory, "Dockerfile");
+        Files.write(dockerfile.toPath(), "FROM java:8\nCOPY libs /opt/libs\n".getBytes("UTF-8"));
+        ImageBuildConfiguration image = new ImageBuildConfiguration();
+        image.setId(STARTID);
+        image.setFiles(Collections.singletonList(dockerfile));
+        image.setDependencySets(Collections.singletonList(new DependencySetConfiguration()));
+        mojo.setImages(Collections.singletonList(image));
+
+        MavenProject project = new MavenProject();
+        Set<Artifact> artifacts = new LinkedHashSet<>();
+        artifacts.add(dependency("guava", Artifact.SCOPE_COMPILE, directory));
+        artifacts.add(dependency("junit", Artifact.SCOPE_TEST, directory));
+        project.setArtifacts(artifacts);
+        mojo.setProject(project);
+
+        executeMojo(FAKE_PROVIDER_KEY);
+
+        assertEquals(Collections.singleton("libs/guava.jar"), image.getContextEntries().keySet());
+        assertTrue(mojo.getPluginErrors().isEmpty());
+    }
+
     @Test
     public void testThatTheMojoLogsAnErrorWhenBuildingAnImageFails() throws Exception {
         executeMojo(DockerExceptionThrowingDockerProvider.PROVIDER_KEY);
@@ -109,6 +399,19 @@ public class BuildImageMojoTest {
         assertImageNotEnqueuedForPush();
     }
 
+    @Test
+    public void testThatKeptImagesAreReleasedFromTheSession() throws Exception {
+        Mockito.when(mockImage.isKeep()).thenReturn(true);
+        Mockito.when(mockImage.getLabels()).thenReturn(Collections.singletonMap("team", "platform"));
+
+        executeMojo(FAKE_PROVIDER_KEY);
+
+        Map<String, String> labels = new HashMap<>(BuildSession.getReleasedLabels());
+        labels.put("team", "platform");
+        Mockito.verify(mockImage).setLabels(labels);
+        assertTrue(mojo.getPluginErrors().isEmpty());
+    }
+
     @Test
     public void testThatTheMojoEnqueuesImageWithoutRegistryForPush() throws Exception {
         Mockito.when(mockImage.isPush()).thenReturn(true);
@@ -153,6 +456,22 @@ public class BuildImageMojoTest {
         assertImageEnqueuedForPush(IMAGEID, null);
     }
 
+    private static ImageHistoryEntry layer(String createdBy, long size) {
+        ImageHistoryEntry layer = Mockito.mock(ImageHistoryEntry.class);
+        Mockito.when(layer.getCreatedBy()).thenReturn(createdBy);
+        Mockito.when(layer.getSize()).thenReturn(size);
+        return layer;
+    }
+
+    private static Artifact dependency(String artifactId, String scope, File directory) throws Exception {
+        Artifact artifact = new DefaultArtifact("com.example", artifactId, "1.0", scope, "jar", null,
+                new DefaultArtifactHandler("jar"));
+        File file = new File(directory, artifactId + ".jar");
+        Files.write(file.toPath(), new byte[]{1});
+        artifact.setFile(file);
+        return artifact;
+    }
+
     private void executeMojo(String provider) throws MojoExecutionException, MojoFailureException {
         mojo.setProviderName(provider);
         mojo.execute();
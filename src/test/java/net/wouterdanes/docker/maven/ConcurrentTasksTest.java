@@ -0,0 +1,65 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.maven;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentTasksTest {
+
+    @Test
+    public void testThatTheTaskRunsForAllItemsAndFailuresAreCollected() throws Exception {
+        final ConcurrentLinkedQueue<Integer> handled = new ConcurrentLinkedQueue<>();
+        List<Integer> items = Arrays.asList(1, 2, 3, 4, 5);
+
+        Map<Integer, Throwable> failures = ConcurrentTasks.forEach(items, 2, new ConcurrentTasks.Task<Integer>() {
+            @Override
+            public void run(final Integer item) {
+                handled.add(item);
+                if (item % 2 == 0) {
+                    throw new IllegalStateException("even " + item);
+                }
+            }
+        });
+
+        assertEquals(5, handled.size());
+        assertTrue(handled.containsAll(items));
+        assertEquals(Arrays.asList(2, 4), Arrays.asList(failures.keySet().toArray()));
+        assertEquals("even 2", failures.get(2).getMessage());
+    }
+
+    @Test
+    public void testThatNoItemsMeansNoFailures() throws Exception {
+        Map<String, Throwable> failures = ConcurrentTasks.forEach(Collections.<String>emptyList(), 4,
+                new ConcurrentTasks.Task<String>() {
+                    @Override
+                    public void run(final String item) {
+                        throw new IllegalStateException();
+                    }
+                });
+
+        assertTrue(failures.isEmpty());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.maven;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import net.wouterdanes.docker.provider.model.ContainerStartConfiguration;
+import net.wouterdanes.docker.remoteapi.model.ContainerLink;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class CriticalPathSchedulerTest {
+
+    private final ContainerStartConfiguration web = new ContainerStartConfiguration().withId("web");
+    private final ContainerStartConfiguration cache = new ContainerStartConfiguration().withId("cache");
+    private final ContainerStartConfiguration database = new ContainerStartConfiguration().withId("database");
+    private final ContainerStartConfiguration app = new ContainerStartConfiguration().withId("app")
+            .withLink(new ContainerLink().toContainer("cache").withAlias("cache"));
+
+    @Test
+    public void testThatContainersWithoutTimingsKeepTheirOrder() throws Exception {
+        List<ContainerStartConfiguration> containers = Arrays.asList(web, cache, database, app);
+        CriticalPathScheduler scheduler = new CriticalPathScheduler(containers,
+                new HashMap<String, StartupTimings.Timing>());
+
+        assertEquals(containers, scheduler.getStartOrder());
+        assertFalse(scheduler.predictStartupMillis(containers).isPresent());
+    }
+
+    @Test
+    public void testThatTheLongestCriticalPathStartsFirst() throws Exception {
+        Map<String, StartupTimings.Timing> timings = new HashMap<>();
+        timings.put("web", new StartupTimings.Timing(1000, 2000));
+        timings.put("cache", new StartupTimings.Timing(1000, 1000));
+        timings.put("database", new StartupTimings.Timing(1000, 30000));
+        // the cache is fast, but the app that links to it is slow
+        timings.put("app", new StartupTimings.Timing(1000, 40000));
+        List<ContainerStartConfiguration> containers = Arrays.asList(web, cache, database, app);
+        CriticalPathScheduler scheduler = new CriticalPathScheduler(containers, timings);
+
+        List<ContainerStartConfiguration> order = scheduler.getStartOrder();
+
+        assertEquals(Arrays.asList(cache, app, database, web), order);
+        assertEquals(41000L, (long) scheduler.predictStartupMillis(order).get());
+        assertEquals(43000L, (long) scheduler.predictStartupMillis(containers).get());
+    }
+
+    @Test
+    public void testThatTimingsAreAveragedAndSaved() throws Exception {
+        File file = new File(Files.createTempDirectory("timings").toFile(), "timings.properties");
+        StartupTimings timings = new StartupTimings(file);
+        timings.record("app", new StartupTimings.Timing(1000, 3000));
+        timings.record("app", new StartupTimings.Timing(2000, 5000));
+        timings.save();
+
+        StartupTimings.Timing timing = new StartupTimings(file).get("app").get();
+
+        assertEquals(1500, timing.getStartMillis());
+        assertEquals(4000, timing.getReadyMillis());
+        assertFalse(new StartupTimings(file).get("web").isPresent());
+    }
+
+    @Test
+    public void testThatBuildsSavingTimingsAtTheSameTimeKeepEachOthersTimings() throws Exception {
+        File file = new File(Files.createTempDirectory("timings").toFile(), "timings.properties");
+        StartupTimings first = new StartupTimings(file);
+        StartupTimings second = new StartupTimings(file);
+        first.record("database", new StartupTimings.Timing(100, 1000));
+        second.record("app", new StartupTimings.Timing(200, 2000));
+
+        first.save();
+        second.save();
+
+        StartupTimings saved = new StartupTimings(file);
+        assertEquals(1000, saved.get("database").get().getReadyMillis());
+        assertEquals(2000, saved.get("app").get().getReadyMillis());
+    }
+}
@@ -0,0 +1,54 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.maven;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class DockerfileTest {
+
+    @Test
+    public void testThatSourcesFromOtherStagesAreIgnored() throws Exception {
+        Dockerfile dockerfile = Dockerfile.parse(Arrays.asList("FROM maven AS build",
+                "COPY --from=build /target/app.jar /app.jar", "copy app.jar conf?.y[am]l /"));
+
+        assertEquals(Arrays.asList("app.jar", "conf?.y[am]l"), dockerfile.getSources());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatAMalformedJsonFormIsNotValid() {
+        Dockerfile.parse(Arrays.asList("FROM java:8", "COPY [\"app.jar\", \"/app.jar\"")).getSources();
+    }
+
+    @Test
+    public void testThatBaseImagesSkipEarlierStagesScratchAndBuildArguments() throws Exception {
+        Dockerfile dockerfile = Dockerfile.parse(Arrays.asList(
+                "FROM --platform=linux/amd64 maven:3 AS build",
+                "RUN mvn package",
+                "FROM build AS test",
+                "FROM scratch",
+                "FROM ${BASE}",
+                "from java:8 \\",
+                "    as runtime",
+                "FROM maven:3"));
+
+        assertEquals(Arrays.asList("maven:3", "java:8"), dockerfile.getBaseImages());
+    }
+}
@@ -0,0 +1,136 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.maven;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.codehaus.jackson.map.ObjectMapper;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.wouterdanes.docker.remoteapi.model.ImageInspectionResult;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ImageAssemblerTest {
+
+    private static final String BASE_LAYER = "sha256:5f70bf18a086007016e948b04aed3b82103a36bea41755b6cddfaf10ace3c6ef";
+
+    private ImageInspectionResult baseImage;
+    private Map<String, File> files;
+
+    @Before
+    public void setUp() throws Exception {
+        baseImage = new ObjectMapper().readValue("{\"Id\":\"sha256:base\",\"Architecture\":\"amd64\",\"Os\":\"linux\","
+                + "\"Config\":{\"Env\":[\"JAVA_HOME=/jre\"],\"Cmd\":[\"sh\"]},"
+                + "\"RootFS\":{\"Type\":\"layers\",\"Layers\":[\"" + BASE_LAYER + "\"]}}",
+                ImageInspectionResult.class);
+
+        File sources = Files.createTempDirectory("sources").toFile();
+        files = new TreeMap<>();
+        files.put("/app/libs/guava.jar", writeFile(sources, "guava.jar", "guava"));
+        files.put("/app/libs/jersey.jar", writeFile(sources, "jersey.jar", "jersey"));
+    }
+
+    @Test
+    public void testThatTheSameFilesGiveBitIdenticalLayersAndImages() throws Exception {
+        File first = Files.createTempDirectory("first").toFile();
+        String firstId = assemble(first);
+
+        for (File file : files.values()) {
+            assertTrue(file.setLastModified(file.lastModified() - 60000));
+        }
+        File second = Files.createTempDirectory("second").toFile();
+        String secondId = assemble(second);
+
+        assertEquals(firstId, secondId);
+        assertArrayEquals(Files.readAllBytes(new File(first, "dependencies.tar").toPath()),
+                Files.readAllBytes(new File(second, "dependencies.tar").toPath()));
+        assertArrayEquals(Files.readAllBytes(new File(first, "image.tar").toPath()),
+                Files.readAllBytes(new File(second, "image.tar").toPath()));
+    }
+
+    @Test
+    public void testThatTheArchiveOnlyHoldsTheNewLayersAndReferencesTheBaseLayers() throws Exception {
+        File workDirectory = Files.createTempDirectory("assembly").toFile();
+        String imageId = assemble(workDirectory);
+
+        List<String> entries = new ArrayList<>();
+        String manifest = null;
+        try (TarArchiveInputStream tar = new TarArchiveInputStream(
+                Files.newInputStream(new File(workDirectory, "image.tar").toPath()))) {
+            for (TarArchiveEntry entry = tar.getNextTarEntry(); entry != null; entry = tar.getNextTarEntry()) {
+                entries.add(entry.getName());
+                if (entry.getName().equals("manifest.json")) {
+                    byte[] contents = new byte[(int) entry.getSize()];
+                    assertEquals(contents.length, tar.read(contents));
+                    manifest = new String(contents, StandardCharsets.UTF_8);
+                }
+            }
+        }
+
+        assertEquals(4, entries.size());
+        assertTrue(entries.contains(imageId.substring("sha256:".length()) + ".json"));
+        assertTrue(manifest.contains("\"RepoTags\":[\"my-app:latest\"]"));
+        assertTrue(manifest.contains(BASE_LAYER.substring("sha256:".length()) + "/layer.tar"));
+    }
+
+    @Test
+    public void testThatLayerEntriesAreSortedWithTheirParentDirectories() throws Exception {
+        File workDirectory = Files.createTempDirectory("assembly").toFile();
+        assemble(workDirectory);
+
+        List<String> entries = new ArrayList<>();
+        try (TarArchiveInputStream tar = new TarArchiveInputStream(
+                Files.newInputStream(new File(workDirectory, "dependencies.tar").toPath()))) {
+            for (TarArchiveEntry entry = tar.getNextTarEntry(); entry != null; entry = tar.getNextTarEntry()) {
+                entries.add(entry.getName());
+                assertEquals(0, entry.getModTime().getTime());
+                assertEquals(0, entry.getUserId());
+            }
+        }
+
+        List<String> expected = new ArrayList<>();
+        Collections.addAll(expected, "app/", "app/libs/", "app/libs/guava.jar", "app/libs/jersey.jar");
+        assertEquals(expected, entries);
+    }
+
+    private String assemble(File workDirectory) throws IOException {
+        ImageAssembler assembler = new ImageAssembler(workDirectory, baseImage);
+        assembler.addLayer("dependencies", files);
+        assembler.addLayer("classes", Collections.<String, File>emptyMap());
+        return assembler.writeArchive(new File(workDirectory, "image.tar"), "my-app",
+                Collections.<String, Object>singletonMap("Cmd", null));
+    }
+
+    private static File writeFile(File directory, String name, String contents) throws IOException {
+        File file = new File(directory, name);
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.maven;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Test;
+
+import net.wouterdanes.docker.remoteapi.model.ImageHistoryEntry;
+import net.wouterdanes.docker.remoteapi.model.ImageSummary;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ImageRetentionPolicyTest {
+
+    private static final Set<String> NONE_RETAINED = Collections.emptySet();
+
+    private final ImageSummary appV1 = mockImage("sha256:a1", 100, 40, "registry:5000/app:1");
+    private final ImageSummary appV2 = mockImage("sha256:a2", 200, 40, "registry:5000/app:2");
+    private final ImageSummary appV3 = mockImage("sha256:a3", 300, 40, "registry:5000/app:3",
+            "registry:5000/app:latest");
+    private final ImageSummary db = mockImage("sha256:d1", 150, 30, "db:1");
+
+    @Test
+    public void testThatTheMostRecentImagesPerNameAreKept() throws Exception {
+        ImageRetentionPolicy policy = new ImageRetentionPolicy(2, null);
+
+        List<ImageSummary> evictions = policy.selectEvictions(Arrays.asList(appV1, db, appV3, appV2), NONE_RETAINED);
+
+        assertEquals(Collections.singletonList(appV1), evictions);
+    }
+
+    @Test
+    public void testThatTheLeastRecentlyUsedImagesAreRemovedUntilTheRestFits() throws Exception {
+        ImageRetentionPolicy policy = new ImageRetentionPolicy(null, 90L);
+
+        List<ImageSummary> evictions = policy.selectEvictions(Arrays.asList(appV3, appV2, appV1, db), NONE_RETAINED);
+
+        assertEquals(Arrays.asList(appV1, db), evictions);
+    }
+
+    @Test
+    public void testThatSharedLayersAreCountedOnce() throws Exception {
+        ImageRetentionPolicy policy = new ImageRetentionPolicy(null, 100L);
+        ImageHistoryEntry base = mockLayer(10, "/bin/sh -c #(nop) ADD file:1a2b in /", 60);
+        Map<String, List<ImageHistoryEntry>> histories = new HashMap<>();
+        histories.put("sha256:a1", Arrays.asList(mockLayer(100, "/bin/sh -c #(nop) COPY file:a1 in /app.jar", 10),
+                base));
+        histories.put("sha256:a2", Arrays.asList(mockLayer(200, "/bin/sh -c #(nop) COPY file:a2 in /app.jar", 10),
+                base));
+        histories.put("sha256:d1", Arrays.asList(mockLayer(150, "/bin/sh -c #(nop) COPY file:d1 in /db", 30),
+                base));
+        ImageSummary first = mockImage("sha256:a1", 100, 70, "app:1");
+        ImageSummary second = mockImage("sha256:a2", 200, 70, "app:2");
+        ImageSummary third = mockImage("sha256:d1", 150, 90, "db:1");
+
+        assertEquals(Collections.<ImageSummary>emptyList(),
+                policy.selectEvictions(Arrays.asList(first, second), NONE_RETAINED, histories));
+        assertEquals(Collections.singletonList(first),
+                policy.selectEvictions(Arrays.asList(first, second, third), NONE_RETAINED, histories));
+    }
+
+    @Test
+    public void testThatRetainedImagesAreNeverRemoved() throws Exception {
+        ImageRetentionPolicy policy = new ImageRetentionPolicy(1, 50L);
+
+        List<ImageSummary> evictions = policy.selectEvictions(Arrays.asList(appV1, appV2, appV3, db),
+                Collections.singleton("a1"));
+
+        assertEquals(Arrays.asList(db, appV2, appV3), evictions);
+        assertTrue(ImageRetentionPolicy.isRetained(appV1, Collections.singleton("a1")));
+        assertFalse(new ImageRetentionPolicy(null, null).isEnabled());
+    }
+
+    private static ImageHistoryEntry mockLayer(long created, String createdBy, long size) {
+        ImageHistoryEntry layer = mock(ImageHistoryEntry.class);
+        when(layer.getCreated()).thenReturn(created);
+        when(layer.getCreatedBy()).thenReturn(createdBy);
+        when(layer.getSize()).thenReturn(size);
+        return layer;
+    }
+
+    private static ImageSummary mockImage(String id, long created, long size, String... repoTags) {
+        ImageSummary image = mock(ImageSummary.class);
+        when(image.getId()).thenReturn(id);
+        when(image.getCreated()).thenReturn(created);
+        when(image.getSize()).thenReturn(size);
+        when(image.getRepoTags()).thenReturn(Arrays.asList(repoTags));
+        return image;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.maven;
+
+import java.util.Arrays;
+import java.util.ArrayList;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class KeyedRegistryTest {
+
+    @Test
+    public void testThatValuesAreReplacedAndReturnedInRegistrationOrder() throws Exception {
+        KeyedRegistry<String> registry = new KeyedRegistry<>();
+
+        registry.register("second", "b");
+        registry.register("first", "a");
+        registry.register("second", "c");
+
+        assertEquals(Arrays.asList("c", "a"), new ArrayList<>(registry.values()));
+        assertEquals("a", registry.get("first").get());
+        assertFalse(registry.get("third").isPresent());
+    }
+}
@@ -0,0 +1,99 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.maven;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.UUID;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+
+import net.wouterdanes.docker.provider.AbstractFakeDockerProvider;
+import net.wouterdanes.docker.provider.DockerProviderSupplier;
+import net.wouterdanes.docker.provider.model.ImageArchiveConfiguration;
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class LoadImagesMojoTest {
+
+    private final String fakeProviderKey = UUID.randomUUID().toString();
+
+    private LoadImagesMojo mojo;
+
+    @Before
+    public void setUp() throws Exception {
+        FakeDockerProvider.instance = mock(FakeDockerProvider.class);
+        DockerProviderSupplier.registerProvider(fakeProviderKey, FakeDockerProvider.class);
+
+        mojo = new LoadImagesMojo();
+        mojo.setPluginContext(new HashMap());
+        mojo.setProviderName(fakeProviderKey);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        DockerProviderSupplier.removeProvider(fakeProviderKey);
+    }
+
+    @Test
+    public void testThatEveryArchiveIsLoadedEvenWhenOneFails() throws Exception {
+        doThrow(new DockerException("Unexpected EOF")).when(FakeDockerProvider.instance).loadImage(new File("a.tar"));
+        mojo.setArchives(Arrays.asList(archive("a.tar"), archive("b.tar")));
+
+        mojo.execute();
+
+        verify(FakeDockerProvider.instance).loadImage(new File("b.tar"));
+        assertEquals(1, mojo.getPluginErrors().size());
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void testThatAnArchiveWithoutFileOrCoordinatesIsRejected() throws Exception {
+        mojo.setArchives(Collections.singletonList(new ImageArchiveConfiguration()));
+
+        try {
+            mojo.execute();
+        } finally {
+            verify(FakeDockerProvider.instance, never()).loadImage(Matchers.any(File.class));
+        }
+    }
+
+    private static ImageArchiveConfiguration archive(String file) {
+        ImageArchiveConfiguration archive = new ImageArchiveConfiguration();
+        archive.setFile(new File(file));
+        return archive;
+    }
+
+    public static class FakeDockerProvider extends AbstractFakeDockerProvider {
+
+        private static FakeDockerProvider instance;
+
+        @Override
+        protected AbstractFakeDockerProvider getInstance() {
+            return instance;
+        }
+    }
+}
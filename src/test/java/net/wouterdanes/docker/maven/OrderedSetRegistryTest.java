@@ -0,0 +1,73 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.maven;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class OrderedSetRegistryTest {
+
+    @Test
+    public void testThatDuplicatesAreIgnoredAndOrderIsKept() throws Exception {
+        OrderedSetRegistry<String> registry = new OrderedSetRegistry<>();
+
+        assertTrue(registry.register("b"));
+        assertTrue(registry.register("a"));
+        assertFalse(registry.register("b"));
+        assertTrue(registry.register("c"));
+
+        assertEquals(Arrays.asList("b", "a", "c"), registry.values());
+    }
+
+    @Test
+    public void testThatConcurrentRegistrationsAreAllKeptOnce() throws Exception {
+        final OrderedSetRegistry<Integer> registry = new OrderedSetRegistry<>();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        for (int i = 0; i < 1000; i++) {
+                            registry.register(i);
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertEquals(1000, registry.values().size());
+    }
+}
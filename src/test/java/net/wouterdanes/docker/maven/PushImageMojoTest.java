@@ -17,7 +17,13 @@
 
 package net.wouterdanes.docker.maven;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.HashMap;
+import java.util.Properties;
 import java.util.UUID;
 
 import com.google.common.base.Optional;
@@ -31,8 +37,14 @@ import org.mockito.Matchers;
 import net.wouterdanes.docker.provider.AbstractFakeDockerProvider;
 import net.wouterdanes.docker.provider.DockerProviderSupplier;
 import net.wouterdanes.docker.provider.model.ImageBuildConfiguration;
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
+import net.wouterdanes.docker.remoteapi.exception.ImageNotFoundException;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 public class PushImageMojoTest {
@@ -77,6 +89,84 @@ public class PushImageMojoTest {
 
     }
 
+    @Test
+    public void testThatImagesArePushedAsSoonAsTheyAreEnqueuedWhenPushingAsync() throws Exception {
+        mojo.setAsyncPush(true);
+
+        mojo.enqueueForPushing("some-image-id", Optional.of("some-name:1.0"));
+        mojo.getPushQueue().await();
+
+        verify(FakeDockerProvider.instance).pushImage("some-name:1.0");
+
+        mojo.execute();
+
+        verify(FakeDockerProvider.instance, times(1)).pushImage("some-name:1.0");
+    }
+
+    @Test
+    public void testThatAFailedPushIsResumedInTheNextBuild() throws Exception {
+        File buildDirectory = Files.createTempDirectory("target").toFile();
+        mojo.setBuildDirectory(buildDirectory);
+        doThrow(new DockerException("Layer upload failed")).when(FakeDockerProvider.instance).pushImage("some-name:1.0");
+        mojo.enqueueForPushing("some-image-id", Optional.of("some-name:1.0"));
+        try {
+            mojo.execute();
+            fail("The push should have failed");
+        } catch (MojoFailureException expected) {
+            // the push is resumed below
+        }
+
+        FakeDockerProvider.instance = mock(FakeDockerProvider.class);
+        PushImageMojo nextBuild = new PushImageMojo();
+        nextBuild.setPluginContext(new HashMap());
+        nextBuild.setProviderName(fakeProviderKey);
+        nextBuild.setBuildDirectory(buildDirectory);
+        nextBuild.execute();
+
+        verify(FakeDockerProvider.instance).pushImage("some-name:1.0");
+    }
+
+    @Test
+    public void testThatAResumedPushThatFailsDoesNotFailTheBuild() throws Exception {
+        File buildDirectory = Files.createTempDirectory("target").toFile();
+        writeStateFile(buildDirectory, "some-name:1.0", "FAILED");
+        mojo.setBuildDirectory(buildDirectory);
+        doThrow(new DockerException("Layer upload failed")).when(FakeDockerProvider.instance).pushImage("some-name:1.0");
+
+        mojo.execute();
+
+        verify(FakeDockerProvider.instance).pushImage("some-name:1.0");
+    }
+
+    @Test
+    public void testThatAPushOfATagThatIsGoneIsNotResumed() throws Exception {
+        File buildDirectory = Files.createTempDirectory("target").toFile();
+        writeStateFile(buildDirectory, "some-name:1.0", "FAILED", "other-name:1.0", "PENDING");
+        mojo.setBuildDirectory(buildDirectory);
+        doThrow(new ImageNotFoundException("some-name:1.0")).when(FakeDockerProvider.instance)
+                .inspectImage("some-name:1.0");
+
+        mojo.execute();
+
+        verify(FakeDockerProvider.instance, never()).pushImage("some-name:1.0");
+        verify(FakeDockerProvider.instance).pushImage("other-name:1.0");
+        Properties state = new Properties();
+        try (InputStream in = Files.newInputStream(new File(buildDirectory, PushQueue.STATE_FILE_NAME).toPath())) {
+            state.load(in);
+        }
+        assertFalse(state.containsKey("some-name:1.0"));
+    }
+
+    private static void writeStateFile(File buildDirectory, String... tagsAndStates) throws IOException {
+        Properties properties = new Properties();
+        for (int i = 0; i < tagsAndStates.length; i += 2) {
+            properties.setProperty(tagsAndStates[i], tagsAndStates[i + 1]);
+        }
+        try (OutputStream out = Files.newOutputStream(new File(buildDirectory, PushQueue.STATE_FILE_NAME).toPath())) {
+            properties.store(out, null);
+        }
+    }
+
     public static class FakeDockerProvider extends AbstractFakeDockerProvider {
 
         private static FakeDockerProvider instance;
@@ -0,0 +1,174 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.maven;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import net.wouterdanes.docker.provider.AbstractFakeDockerProvider;
+import net.wouterdanes.docker.provider.DockerProviderSupplier;
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
+import net.wouterdanes.docker.remoteapi.model.ContainerSummary;
+import net.wouterdanes.docker.remoteapi.model.ImageSummary;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RemoveOrphansMojoTest {
+
+    private static final String FAKE_PROVIDER_KEY = UUID.randomUUID().toString();
+    private static final long TWO_HOURS_AGO =
+            TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) - TimeUnit.HOURS.toSeconds(2);
+    private static final long JUST_NOW = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis());
+
+    private final RemoveOrphansMojo mojo = new RemoveOrphansMojo();
+
+    @Before
+    public void setUp() throws Exception {
+        mojo.setPluginContext(new HashMap());
+        mojo.setProviderName(FAKE_PROVIDER_KEY);
+        mojo.setOlderThanMinutes(60);
+        mojo.setParallelism(2);
+
+        FakeDockerProvider.instance = mock(FakeDockerProvider.class);
+        DockerProviderSupplier.registerProvider(FAKE_PROVIDER_KEY, FakeDockerProvider.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        DockerProviderSupplier.removeProvider(FAKE_PROVIDER_KEY);
+    }
+
+    @Test
+    public void testThatOldContainersOfOtherSessionsAreRemoved() throws Exception {
+        ContainerSummary running = mockContainer("running", TWO_HOURS_AGO, "other-session", true);
+        ContainerSummary exited = mockContainer("exited", TWO_HOURS_AGO, "other-session", false);
+        ContainerSummary recent = mockContainer("recent", JUST_NOW, "other-session", true);
+        ContainerSummary current = mockContainer("current", TWO_HOURS_AGO, mojo.getBuildSession().getId(), true);
+        when(FakeDockerProvider.instance.listContainers(anyListOf(String.class)))
+                .thenReturn(Arrays.asList(running, exited, recent, current));
+        when(FakeDockerProvider.instance.listImages(anyListOf(String.class)))
+                .thenReturn(Collections.<ImageSummary>emptyList());
+
+        mojo.execute();
+
+        verify(FakeDockerProvider.instance).listContainers(Collections.singletonList(BuildSession.MANAGED_FILTER));
+        verify(FakeDockerProvider.instance).stopContainer("running");
+        verify(FakeDockerProvider.instance).deleteContainer("running");
+        verify(FakeDockerProvider.instance, never()).stopContainer("exited");
+        verify(FakeDockerProvider.instance).deleteContainer("exited");
+        verify(FakeDockerProvider.instance, never()).deleteContainer("recent");
+        verify(FakeDockerProvider.instance, never()).deleteContainer("current");
+    }
+
+    @Test
+    public void testThatImagesAreRemovedEvenIfAContainerCantBeRemoved() throws Exception {
+        ContainerSummary container = mockContainer("container", TWO_HOURS_AGO, "other-session", false);
+        ImageSummary image = mock(ImageSummary.class);
+        when(image.getId()).thenReturn("image");
+        when(image.getCreated()).thenReturn(TWO_HOURS_AGO);
+        when(image.getLabels()).thenReturn(sessionLabels("other-session"));
+        when(FakeDockerProvider.instance.listContainers(anyListOf(String.class)))
+                .thenReturn(Collections.singletonList(container));
+        when(FakeDockerProvider.instance.listImages(anyListOf(String.class)))
+                .thenReturn(Collections.singletonList(image));
+        doThrow(new DockerException("Conflict")).when(FakeDockerProvider.instance).deleteContainer(anyString());
+
+        mojo.execute();
+
+        verify(FakeDockerProvider.instance).removeImage("image");
+    }
+
+    @Test
+    public void testThatImagesWithMoreThanOneTagAreRemovedByTheirTags() throws Exception {
+        ImageSummary image = mock(ImageSummary.class);
+        when(image.getId()).thenReturn("image");
+        when(image.getCreated()).thenReturn(TWO_HOURS_AGO);
+        when(image.getLabels()).thenReturn(sessionLabels("other-session"));
+        when(image.getRepoTags()).thenReturn(Arrays.asList("app:1.0", "registry:5000/app:1.0"));
+        when(FakeDockerProvider.instance.listContainers(anyListOf(String.class)))
+                .thenReturn(Collections.<ContainerSummary>emptyList());
+        when(FakeDockerProvider.instance.listImages(anyListOf(String.class)))
+                .thenReturn(Collections.singletonList(image));
+
+        mojo.execute();
+
+        verify(FakeDockerProvider.instance).removeImage("app:1.0");
+        verify(FakeDockerProvider.instance).removeImage("registry:5000/app:1.0");
+        verify(FakeDockerProvider.instance, never()).removeImage("image");
+    }
+
+    @Test
+    public void testThatKeptImagesOfEarlierSessionsAreNotRemoved() throws Exception {
+        ImageSummary kept = mock(ImageSummary.class);
+        when(kept.getId()).thenReturn("kept");
+        when(kept.getCreated()).thenReturn(TWO_HOURS_AGO);
+        when(kept.getLabels()).thenReturn(BuildSession.getReleasedLabels());
+        ImageSummary orphan = mock(ImageSummary.class);
+        when(orphan.getId()).thenReturn("orphan");
+        when(orphan.getCreated()).thenReturn(TWO_HOURS_AGO);
+        when(orphan.getLabels()).thenReturn(sessionLabels("other-session"));
+        when(FakeDockerProvider.instance.listContainers(anyListOf(String.class)))
+                .thenReturn(Collections.<ContainerSummary>emptyList());
+        when(FakeDockerProvider.instance.listImages(anyListOf(String.class)))
+                .thenReturn(Arrays.asList(kept, orphan));
+
+        mojo.execute();
+
+        verify(FakeDockerProvider.instance).removeImage("orphan");
+        verify(FakeDockerProvider.instance, never()).removeImage("kept");
+    }
+
+    private static ContainerSummary mockContainer(String id, long created, String session, boolean running) {
+        ContainerSummary container = mock(ContainerSummary.class);
+        when(container.getId()).thenReturn(id);
+        when(container.getCreated()).thenReturn(created);
+        when(container.isRunning()).thenReturn(running);
+        when(container.getLabels()).thenReturn(sessionLabels(session));
+        return container;
+    }
+
+    private static Map<String, String> sessionLabels(String session) {
+        Map<String, String> labels = new HashMap<>();
+        labels.put(BuildSession.MANAGED_LABEL, "true");
+        labels.put(BuildSession.SESSION_LABEL, session);
+        return labels;
+    }
+
+    public static class FakeDockerProvider extends AbstractFakeDockerProvider {
+
+        private static FakeDockerProvider instance;
+
+        @Override
+        protected AbstractFakeDockerProvider getInstance() {
+            return instance;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.maven;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.UUID;
+
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.project.MavenProject;
+import org.apache.maven.project.MavenProjectHelper;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Matchers;
+
+import net.wouterdanes.docker.provider.AbstractFakeDockerProvider;
+import net.wouterdanes.docker.provider.DockerProviderSupplier;
+import net.wouterdanes.docker.provider.model.ImageBuildConfiguration;
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class SaveImagesMojoTest {
+
+    private final String fakeProviderKey = UUID.randomUUID().toString();
+    private final MavenProject project = new MavenProject();
+    private final MavenProjectHelper projectHelper = mock(MavenProjectHelper.class);
+
+    private SaveImagesMojo mojo;
+    private File archiveDirectory;
+
+    @Before
+    public void setUp() throws Exception {
+        FakeDockerProvider.instance = mock(FakeDockerProvider.class);
+        DockerProviderSupplier.registerProvider(fakeProviderKey, FakeDockerProvider.class);
+
+        File buildDirectory = Files.createTempDirectory("target").toFile();
+        archiveDirectory = new File(buildDirectory, SaveImagesMojo.ARCHIVE_DIRECTORY);
+
+        mojo = new SaveImagesMojo();
+        mojo.setPluginContext(new HashMap());
+        mojo.setProviderName(fakeProviderKey);
+        mojo.setBuildDirectory(buildDirectory);
+        mojo.setProject(project);
+        mojo.setProjectHelper(projectHelper);
+
+        ImageBuildConfiguration named = new ImageBuildConfiguration();
+        named.setId("named");
+        named.setNameAndTag("some-name:1.0");
+        mojo.registerBuiltImage("named-image-id", named);
+        ImageBuildConfiguration unnamed = new ImageBuildConfiguration();
+        unnamed.setId("unnamed");
+        mojo.registerBuiltImage("unnamed-image-id", unnamed);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        DockerProviderSupplier.removeProvider(fakeProviderKey);
+    }
+
+    @Test
+    public void testThatAllBuiltImagesAreSavedAndAttached() throws Exception {
+        mojo.execute();
+
+        File namedArchive = new File(archiveDirectory, "named.tar");
+        File unnamedArchive = new File(archiveDirectory, "unnamed.tar");
+        verify(FakeDockerProvider.instance).saveImage("some-name:1.0", namedArchive);
+        verify(FakeDockerProvider.instance).saveImage("unnamed-image-id", unnamedArchive);
+        verify(projectHelper).attachArtifact(project, "tar", "named", namedArchive);
+        verify(projectHelper).attachArtifact(project, "tar", "unnamed", unnamedArchive);
+        assertTrue(mojo.getPluginErrors().isEmpty());
+    }
+
+    @Test
+    public void testThatOnlyConfiguredImagesAreSaved() throws Exception {
+        mojo.setImages(Collections.singletonList("unnamed"));
+
+        mojo.execute();
+
+        verify(FakeDockerProvider.instance, never()).saveImage(Matchers.eq("some-name:1.0"), Matchers.any(File.class));
+        verify(FakeDockerProvider.instance).saveImage("unnamed-image-id", new File(archiveDirectory, "unnamed.tar"));
+    }
+
+    @Test(expected = MojoExecutionException.class)
+    public void testThatSavingAnImageThatWasNotBuiltFails() throws Exception {
+        mojo.setImages(Collections.singletonList("unknown"));
+
+        mojo.execute();
+    }
+
+    @Test
+    public void testThatAFailedSaveRegistersAnErrorAndAttachesNothing() throws Exception {
+        mojo.setImages(Collections.singletonList("named"));
+        doThrow(new DockerException("No space left on device")).when(FakeDockerProvider.instance)
+                .saveImage(Matchers.eq("some-name:1.0"), Matchers.any(File.class));
+
+        mojo.execute();
+
+        assertFalse(mojo.getPluginErrors().isEmpty());
+        verify(projectHelper, never()).attachArtifact(Matchers.any(MavenProject.class), Matchers.anyString(),
+                Matchers.anyString(), Matchers.any(File.class));
+    }
+
+    public static class FakeDockerProvider extends AbstractFakeDockerProvider {
+
+        private static FakeDockerProvider instance;
+
+        @Override
+        protected AbstractFakeDockerProvider getInstance() {
+            return instance;
+        }
+    }
+}
@@ -20,6 +20,7 @@ package net.wouterdanes.docker.maven;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.UUID;
 
@@ -39,9 +40,12 @@ import net.wouterdanes.docker.provider.DockerProviderSupplier;
 import net.wouterdanes.docker.provider.model.ContainerStartConfiguration;
 import net.wouterdanes.docker.provider.model.ExposedPort;
 import net.wouterdanes.docker.provider.model.ImageBuildConfiguration;
+import net.wouterdanes.docker.remoteapi.exception.ImageNotFoundException;
 import net.wouterdanes.docker.remoteapi.model.ContainerInspectionResult;
 import net.wouterdanes.docker.remoteapi.model.ContainerLink;
+import net.wouterdanes.docker.remoteapi.model.ImageInspectionResult;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.atLeastOnce;
 import static org.mockito.Mockito.mock;
@@ -55,6 +59,7 @@ public class StartContainerMojoTest {
 
     private final MavenProject mavenProject = mock(MavenProject.class);
     private final MojoExecution mojoExecution = new MojoExecution(null, "start-containers", "some-id");
+    private ContainerInspectionResult inspectionResult;
 
     @Before
     public void setUp() throws Exception {
@@ -63,8 +68,9 @@ public class StartContainerMojoTest {
 
         FakeDockerProvider.instance = mock(FakeDockerProvider.class);
 
-        ContainerInspectionResult inspectionResult = mock(ContainerInspectionResult.class);
+        inspectionResult = mock(ContainerInspectionResult.class);
         when(inspectionResult.getId()).thenReturn("someId");
+        when(inspectionResult.getImageId()).thenReturn("some-image-id");
 
         when(FakeDockerProvider.instance.startContainer(Matchers.any(ContainerStartConfiguration.class)))
                 .thenReturn(inspectionResult);
@@ -96,7 +102,7 @@ public class StartContainerMojoTest {
                 new ExposedPort("tcp/8080", 1337, "172.42.123.10"),
                 new ExposedPort("tcp/9000", 41329, "localhost")
         );
-        when(FakeDockerProvider.instance.getExposedPorts("someId")).thenReturn(exposedPorts);
+        when(FakeDockerProvider.instance.getExposedPorts(inspectionResult)).thenReturn(exposedPorts);
 
         ContainerStartConfiguration startConfiguration = new ContainerStartConfiguration()
                 .withId("ubuntu").fromImage("debian");
@@ -110,6 +116,7 @@ public class StartContainerMojoTest {
         assertEquals("1337", properties.getProperty("docker.containers.ubuntu.ports.tcp/8080.port"));
         assertEquals("localhost", properties.getProperty("docker.containers.ubuntu.ports.tcp/9000.host"));
         assertEquals("41329", properties.getProperty("docker.containers.ubuntu.ports.tcp/9000.port"));
+        verify(FakeDockerProvider.instance, never()).getExposedPorts(Matchers.anyString());
 
         assert mojo.getPluginErrors().isEmpty();
     }
@@ -204,6 +211,24 @@ public class StartContainerMojoTest {
 
     }
 
+    @Test
+    public void testThatLinkedContainersArePutInOnePlacementGroup() throws Exception {
+        when(inspectionResult.getName()).thenReturn("/started");
+        ContainerStartConfiguration cache = new ContainerStartConfiguration().withId("cache");
+        ContainerStartConfiguration database = new ContainerStartConfiguration().withId("database");
+        ContainerStartConfiguration application = new ContainerStartConfiguration()
+                .withId("application")
+                .withLink(new ContainerLink().toContainer("database").withAlias("db"));
+
+        StartContainerMojo mojo = createMojo(Arrays.asList(cache, database, application), FAKE_PROVIDER_KEY);
+
+        mojo.execute();
+
+        assertEquals(database.getPlacementGroup(), application.getPlacementGroup());
+        assertFalse(cache.getPlacementGroup().equals(application.getPlacementGroup()));
+        assert mojo.getPluginErrors().isEmpty();
+    }
+
     @Test
     public void testThatMojoAsksForLogsAndDoesNotLogAnErrorWhenLogsIndicateServerStarted() throws Exception {
 
@@ -259,7 +284,7 @@ public class StartContainerMojoTest {
             @Override
             public ContainerInspectionResult answer(final InvocationOnMock invocation) throws Throwable {
                 startTime.set(System.currentTimeMillis());
-                ContainerInspectionResult inspectionResult = mock(ContainerInspectionResult.class);
+                inspectionResult = mock(ContainerInspectionResult.class);
                 when(inspectionResult.getId()).thenReturn("someId");
                 return inspectionResult;
             }
@@ -282,6 +307,82 @@ public class StartContainerMojoTest {
 
     }
 
+    @Test
+    public void testThatMojoCommitsASnapshotAfterStartupWhenNoSnapshotExists() throws Exception {
+
+        ContainerStartConfiguration container = new ContainerStartConfiguration()
+                .fromImage("some-image")
+                .waitForStartup("hello world!")
+                .withId("some-container")
+                .withStartupTimeout(1)
+                .snapshotAfterStartup();
+
+        String snapshot = StartContainerMojo.getSnapshotNameAndTag(container, "some-image", "some-image-id");
+
+        ImageInspectionResult imageInfo = mock(ImageInspectionResult.class);
+        when(imageInfo.getId()).thenReturn("some-image-id");
+        when(FakeDockerProvider.instance.inspectImage("some-image")).thenReturn(imageInfo);
+        when(FakeDockerProvider.instance.inspectImage(snapshot)).thenThrow(new ImageNotFoundException(snapshot));
+        when(FakeDockerProvider.instance.getLogs("someId")).thenReturn("Oh hello world!");
+
+        StartContainerMojo mojo = createMojo(container);
+
+        mojo.execute();
+
+        assertEquals("some-image", container.getImage());
+        verify(FakeDockerProvider.instance).commitContainer("someId", snapshot, BuildSession.getReleasedLabels());
+        assert mojo.getPluginErrors().isEmpty();
+    }
+
+    @Test
+    public void testThatMojoStartsFromSnapshotWhenSnapshotExists() throws Exception {
+
+        ContainerStartConfiguration container = new ContainerStartConfiguration()
+                .fromImage("some-image")
+                .waitForStartup("hello world!")
+                .withId("some-container")
+                .withStartupTimeout(1)
+                .snapshotAfterStartup();
+
+        String snapshot = StartContainerMojo.getSnapshotNameAndTag(container, "some-image", "some-image-id");
+
+        ImageInspectionResult imageInfo = mock(ImageInspectionResult.class);
+        when(imageInfo.getId()).thenReturn("some-image-id");
+        when(FakeDockerProvider.instance.inspectImage(Matchers.anyString())).thenReturn(imageInfo);
+        when(FakeDockerProvider.instance.getLogs("someId")).thenReturn("Oh hello world!");
+
+        StartContainerMojo mojo = createMojo(container);
+
+        mojo.execute();
+
+        assertEquals(snapshot, container.getImage());
+        verify(FakeDockerProvider.instance, never()).commitContainer(Matchers.anyString(), Matchers.anyString(),
+                Matchers.<Map<String, String>>any());
+        assert mojo.getPluginErrors().isEmpty();
+    }
+
+    @Test
+    public void testThatAsyncStartExposesPortsWhenAwaited() throws Exception {
+        List<ExposedPort> exposedPorts = Arrays.asList(new ExposedPort("tcp/8080", 1337, "172.42.123.10"));
+        when(FakeDockerProvider.instance.getExposedPorts(inspectionResult)).thenReturn(exposedPorts);
+        ContainerStartConfiguration startConfiguration = new ContainerStartConfiguration()
+                .withId("ubuntu").fromImage("debian");
+        StartContainerMojo mojo = createMojo(startConfiguration);
+        mojo.setAsync(true);
+        AwaitContainersMojo awaitMojo = new AwaitContainersMojo();
+        awaitMojo.setProject(mavenProject);
+        awaitMojo.setProviderName(FAKE_PROVIDER_KEY);
+        awaitMojo.setPluginContext(mojo.getPluginContext());
+
+        mojo.execute();
+        awaitMojo.execute();
+
+        verify(FakeDockerProvider.instance).startContainer(startConfiguration);
+        assertEquals("1337", mavenProject.getProperties().getProperty("docker.containers.ubuntu.ports.tcp/8080.port"));
+        assertEquals(1, mojo.getStartedContainers().size());
+        assert awaitMojo.getPluginErrors().isEmpty();
+    }
+
     private StartContainerMojo createMojo(final ContainerStartConfiguration startConfiguration) {
         return createMojo(startConfiguration, FAKE_PROVIDER_KEY);
     }
@@ -0,0 +1,135 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.maven;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.wouterdanes.docker.provider.AbstractFakeDockerProvider;
+import net.wouterdanes.docker.provider.DockerProviderSupplier;
+import net.wouterdanes.docker.remoteapi.model.ImageSummary;
+import static org.mockito.Matchers.anyListOf;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class StopContainerMojoTest {
+
+    private static final String FAKE_PROVIDER_KEY = UUID.randomUUID().toString();
+
+    private final StopContainerMojo mojo = new StopContainerMojo();
+
+    @Before
+    public void setUp() throws Exception {
+        mojo.setPluginContext(new HashMap());
+        mojo.setProviderName(FAKE_PROVIDER_KEY);
+        mojo.setRetentionParallelism(2);
+
+        FakeDockerProvider.instance = mock(FakeDockerProvider.class);
+        DockerProviderSupplier.registerProvider(FAKE_PROVIDER_KEY, FakeDockerProvider.class);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        DockerProviderSupplier.removeProvider(FAKE_PROVIDER_KEY);
+    }
+
+    @Test
+    public void testThatEvictedImagesWithMoreThanOneTagAreRemovedByTheirTags() throws Exception {
+        ImageSummary old = mockImage("sha256:a1", 100, "app:1", "app:stable");
+        ImageSummary recent = mockImage("sha256:a2", 200, "app:2");
+        when(FakeDockerProvider.instance.listImages(anyListOf(String.class))).thenReturn(Arrays.asList(old, recent));
+        mojo.setRetainImagesPerName(1);
+
+        mojo.execute();
+
+        verify(FakeDockerProvider.instance).listImages(Collections.singletonList(BuildSession.MANAGED_FILTER));
+        verify(FakeDockerProvider.instance).removeImage("app:1");
+        verify(FakeDockerProvider.instance).removeImage("app:stable");
+        verify(FakeDockerProvider.instance, never()).removeImage("sha256:a1");
+        verify(FakeDockerProvider.instance, never()).removeImage("app:2");
+    }
+
+    @Test
+    public void testThatImagesOfBuildsThatRunAtTheSameTimeAreKept() throws Exception {
+        long sessionStart = mojo.getBuildSession().getCreated();
+        ImageSummary older = mockImage("sha256:a1", sessionStart - 60, "app:1");
+        ImageSummary concurrent = mockImage("sha256:a2", sessionStart + 10, "app:2");
+        when(concurrent.getLabels()).thenReturn(sessionLabels("other-session"));
+        ImageSummary current = mockImage("sha256:a3", sessionStart + 20, "app:3");
+        when(current.getLabels()).thenReturn(sessionLabels(mojo.getBuildSession().getId()));
+        when(FakeDockerProvider.instance.listImages(anyListOf(String.class)))
+                .thenReturn(Arrays.asList(older, concurrent, current));
+        mojo.setRetainImagesPerName(1);
+
+        mojo.execute();
+
+        verify(FakeDockerProvider.instance).removeImage("app:1");
+        verify(FakeDockerProvider.instance, never()).removeImage("app:2");
+    }
+
+    @Test
+    public void testThatKeptImagesOfEarlierBuildsAreNotEvicted() throws Exception {
+        ImageSummary kept = mockImage("sha256:a1", 100, "app:1");
+        when(kept.getLabels()).thenReturn(BuildSession.getReleasedLabels());
+        ImageSummary old = mockImage("sha256:a2", 200, "app:2");
+        ImageSummary recent = mockImage("sha256:a3", 300, "app:3");
+        when(FakeDockerProvider.instance.listImages(anyListOf(String.class)))
+                .thenReturn(Arrays.asList(kept, old, recent));
+        mojo.setRetainImagesPerName(1);
+
+        mojo.execute();
+
+        verify(FakeDockerProvider.instance).removeImage("app:2");
+        verify(FakeDockerProvider.instance, never()).removeImage("app:1");
+        verify(FakeDockerProvider.instance, never()).removeImage("app:3");
+    }
+
+    private static ImageSummary mockImage(String id, long created, String... repoTags) {
+        ImageSummary image = mock(ImageSummary.class);
+        when(image.getId()).thenReturn(id);
+        when(image.getCreated()).thenReturn(created);
+        when(image.getRepoTags()).thenReturn(Arrays.asList(repoTags));
+        when(image.getLabels()).thenReturn(sessionLabels("earlier-session"));
+        return image;
+    }
+
+    private static Map<String, String> sessionLabels(String session) {
+        Map<String, String> labels = new HashMap<>();
+        labels.put(BuildSession.MANAGED_LABEL, "true");
+        labels.put(BuildSession.SESSION_LABEL, session);
+        return labels;
+    }
+
+    public static class FakeDockerProvider extends AbstractFakeDockerProvider {
+
+        private static FakeDockerProvider instance;
+
+        @Override
+        protected AbstractFakeDockerProvider getInstance() {
+            return instance;
+        }
+    }
+}
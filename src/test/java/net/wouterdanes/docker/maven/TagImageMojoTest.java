@@ -36,8 +36,10 @@ import net.wouterdanes.docker.provider.DockerProviderSupplier;
 import net.wouterdanes.docker.provider.model.ImageBuildConfiguration;
 import net.wouterdanes.docker.provider.model.ImageTagConfiguration;
 import net.wouterdanes.docker.provider.model.PushableImage;
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.times;
 
@@ -229,6 +231,44 @@ public class TagImageMojoTest {
         executeMojo(DockerExceptionThrowingDockerProvider.PROVIDER_KEY);
     }
 
+    @Test
+    public void testThatFailedTagsAreReportedTogetherAndNotPushed() throws Exception {
+        Mockito.when(mockTag.isPush()).thenReturn(true);
+        Mockito.doThrow(new DockerException("Conflict")).when(FakeDockerProvider.instance).tagImage(STARTID, TAG1);
+        Mockito.doThrow(new DockerException("Conflict")).when(FakeDockerProvider.instance).tagImage(STARTID, TAG2);
+
+        try {
+            executeMojo(FAKE_PROVIDER_KEY);
+            fail("The failed tags should fail the mojo");
+        } catch (MojoFailureException e) {
+            assertTrue(e.getMessage().contains("Failed to add 2 tag(s)"));
+            assertTrue(e.getMessage().contains(TAG1));
+            assertTrue(e.getMessage().contains(TAG2));
+        }
+
+        assertNImagesTagged(3);
+        assertEquals(1, mojo.getImagesToPush().size());
+        assertImageEnqueuedForPush(0, STARTID, NAMEANDTAG);
+    }
+
+    @Test
+    public void testThatATagThatIsAssignedToTwoImagesFailsBeforeTagging() throws Exception {
+        ImageTagConfiguration otherTag = Mockito.mock(ImageTagConfiguration.class);
+        Mockito.when(otherTag.getId()).thenReturn("other-image");
+        Mockito.when(otherTag.getTags()).thenReturn(Collections.singletonList(TAG2));
+        mojo.setImages(Arrays.asList(mockTag, otherTag));
+
+        try {
+            executeMojo(FAKE_PROVIDER_KEY);
+            fail("A tag on two images should fail the mojo");
+        } catch (MojoFailureException e) {
+            assertTrue(e.getMessage().contains(TAG2));
+            assertTrue(e.getMessage().contains("other-image"));
+        }
+
+        assertNImagesTagged(0);
+    }
+
     private void executeMojo(String provider) throws MojoExecutionException, MojoFailureException {
         mojo.setProviderName(provider);
         mojo.execute();
@@ -17,7 +17,6 @@
 
 package net.wouterdanes.docker.maven;
 
-import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -46,7 +45,7 @@ public class VerifyMojoTest {
     public void testThatBuildFailsAndLogsAnErrorWhenErrorsHaveHappened() throws Exception {
 
         DockerPluginError error = new DockerPluginError("some-goal", "Something went wrong");
-        fakePluginContext.put("errors", Collections.singletonList(error));
+        mojo.registerPluginError(error);
         Log fakeLog = Mockito.mock(Log.class);
         mojo.setLog(fakeLog);
 
@@ -1,14 +1,22 @@
 package net.wouterdanes.docker.provider;
 
+import java.io.File;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.maven.plugin.logging.Log;
 
 import net.wouterdanes.docker.provider.model.ContainerStartConfiguration;
 import net.wouterdanes.docker.provider.model.ExposedPort;
 import net.wouterdanes.docker.provider.model.ImageBuildConfiguration;
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
 import net.wouterdanes.docker.remoteapi.model.ContainerInspectionResult;
+import net.wouterdanes.docker.remoteapi.model.ContainerSummary;
 import net.wouterdanes.docker.remoteapi.model.Credentials;
+import net.wouterdanes.docker.remoteapi.model.ImageHistoryEntry;
+import net.wouterdanes.docker.remoteapi.model.ImageInspectionResult;
+import net.wouterdanes.docker.remoteapi.model.ImageSummary;
 
 /**
  * Utility class to create mock docker providers, extend this and implement the getInstance() method, then create
@@ -44,6 +52,11 @@ public abstract class AbstractFakeDockerProvider implements DockerProvider {
         return proxy.getExposedPorts(containerId);
     }
 
+    @Override
+    public List<ExposedPort> getExposedPorts(final ContainerInspectionResult container) {
+        return proxy.getExposedPorts(container);
+    }
+
     @Override
     public String buildImage(final ImageBuildConfiguration image) {
         return proxy.buildImage(image);
@@ -64,11 +77,78 @@ public abstract class AbstractFakeDockerProvider implements DockerProvider {
         proxy.tagImage(imageId, nameAndTag);
     }
 
+    @Override
+    public Map<String, DockerException> tagImages(final Map<String, List<String>> tags, final int parallelism) {
+        // the tags are applied one by one, so tests can verify them like single tags
+        Map<String, DockerException> failures = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> image : tags.entrySet()) {
+            for (String nameAndTag : image.getValue()) {
+                try {
+                    tagImage(image.getKey(), nameAndTag);
+                } catch (DockerException e) {
+                    failures.put(nameAndTag, e);
+                }
+            }
+        }
+        return failures;
+    }
+
     @Override
     public void setCredentials(Credentials credentials) {
         proxy.setCredentials(credentials);
     }
 
+    @Override
+    public ImageInspectionResult inspectImage(final String image) {
+        return proxy.inspectImage(image);
+    }
+
+    @Override
+    public List<ImageHistoryEntry> getImageHistory(final String image) {
+        return proxy.getImageHistory(image);
+    }
+
+    @Override
+    public String commitContainer(final String containerId, final String nameAndTag,
+                                  final Map<String, String> labels) {
+        return proxy.commitContainer(containerId, nameAndTag, labels);
+    }
+
+    @Override
+    public String importImage(final ImageBuildConfiguration image) {
+        return proxy.importImage(image);
+    }
+
+    @Override
+    public void pullImage(final String image) {
+        proxy.pullImage(image);
+    }
+
+    @Override
+    public void saveImage(final String image, final File destination) {
+        proxy.saveImage(image, destination);
+    }
+
+    @Override
+    public void loadImage(final File archive) {
+        proxy.loadImage(archive);
+    }
+
+    @Override
+    public List<ContainerSummary> listContainers(final List<String> labelFilters) {
+        return proxy.listContainers(labelFilters);
+    }
+
+    @Override
+    public List<ImageSummary> listImages(final List<String> labelFilters) {
+        return proxy.listImages(labelFilters);
+    }
+
+    @Override
+    public List<ImageSummary> listDanglingImages(final List<String> labelFilters) {
+        return proxy.listDanglingImages(labelFilters);
+    }
+
     @Override
     public String getLogs(final String containerId) {
         return proxy.getLogs(containerId);
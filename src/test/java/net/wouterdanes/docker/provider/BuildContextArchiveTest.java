@@ -0,0 +1,109 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.provider;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.wouterdanes.docker.provider.model.ImageBuildConfiguration;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class BuildContextArchiveTest {
+
+    private File dockerfile;
+    private File script;
+
+    @Before
+    public void setUp() throws Exception {
+        File directory = Files.createTempDirectory("context").toFile();
+        dockerfile = writeFile(directory, "Dockerfile", "FROM busybox\nADD run.sh /\n");
+        script = writeFile(directory, "run.sh", "#!/bin/sh\necho hi\n");
+    }
+
+    @Test
+    public void testThatTheSameFilesGiveTheSameReproducibleArchive() throws Exception {
+        byte[] first = BuildContextArchive.create(reproducibleImage(dockerfile, script));
+
+        assertTrue(dockerfile.setLastModified(dockerfile.lastModified() - 60000));
+        byte[] second = BuildContextArchive.create(reproducibleImage(script, dockerfile));
+
+        assertArrayEquals(first, second);
+        assertEquals(BuildContextArchive.digest(first), BuildContextArchive.digest(second));
+    }
+
+    @Test
+    public void testThatAReproducibleArchiveHasSortedEntriesOwnedByRoot() throws Exception {
+        byte[] archive = BuildContextArchive.create(reproducibleImage(script, dockerfile));
+
+        List<String> names = new ArrayList<>();
+        try (TarArchiveInputStream tar = new TarArchiveInputStream(
+                new GzipCompressorInputStream(new ByteArrayInputStream(archive)))) {
+            for (TarArchiveEntry entry = tar.getNextTarEntry(); entry != null; entry = tar.getNextTarEntry()) {
+                names.add(entry.getName());
+                assertEquals(0, entry.getModTime().getTime());
+                assertEquals(0, entry.getUserId());
+                assertEquals(0, entry.getGroupId());
+            }
+        }
+        assertEquals(Arrays.asList("Dockerfile", "run.sh"), names);
+    }
+
+    @Test
+    public void testThatContextEntriesAreAddedUnderTheirPath() throws Exception {
+        ImageBuildConfiguration image = reproducibleImage(dockerfile);
+        image.setContextEntries(Collections.singletonMap("libs/run.sh", script));
+
+        List<String> names = new ArrayList<>();
+        try (TarArchiveInputStream tar = new TarArchiveInputStream(
+                new GzipCompressorInputStream(new ByteArrayInputStream(BuildContextArchive.create(image))))) {
+            for (TarArchiveEntry entry = tar.getNextTarEntry(); entry != null; entry = tar.getNextTarEntry()) {
+                names.add(entry.getName());
+                assertEquals(entry.getName().equals("Dockerfile") ? dockerfile.length() : script.length(),
+                        entry.getSize());
+            }
+        }
+        assertEquals(Arrays.asList("Dockerfile", "libs/run.sh"), names);
+    }
+
+    private static ImageBuildConfiguration reproducibleImage(File... files) {
+        ImageBuildConfiguration image = new ImageBuildConfiguration();
+        image.setFiles(Arrays.asList(files));
+        image.setReproducible(true);
+        return image;
+    }
+
+    private static File writeFile(File directory, String name, String contents) throws IOException {
+        File file = new File(directory, name);
+        Files.write(file.toPath(), contents.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
@@ -1,6 +1,8 @@
 package net.wouterdanes.docker.provider;
 
+import java.io.File;
 import java.util.List;
+import java.util.Map;
 
 import org.apache.maven.plugin.logging.Log;
 
@@ -9,7 +11,11 @@ import net.wouterdanes.docker.provider.model.ExposedPort;
 import net.wouterdanes.docker.provider.model.ImageBuildConfiguration;
 import net.wouterdanes.docker.remoteapi.exception.DockerException;
 import net.wouterdanes.docker.remoteapi.model.ContainerInspectionResult;
+import net.wouterdanes.docker.remoteapi.model.ContainerSummary;
 import net.wouterdanes.docker.remoteapi.model.Credentials;
+import net.wouterdanes.docker.remoteapi.model.ImageHistoryEntry;
+import net.wouterdanes.docker.remoteapi.model.ImageInspectionResult;
+import net.wouterdanes.docker.remoteapi.model.ImageSummary;
 
 /**
  * A Mock {@link net.wouterdanes.docker.provider.DockerProvider} that only throws
@@ -53,6 +59,12 @@ public class DockerExceptionThrowingDockerProvider implements DockerProvider {
         return null;
     }
 
+    @Override
+    public List<ExposedPort> getExposedPorts(final ContainerInspectionResult container) {
+        throwBadException();
+        return null;
+    }
+
     @Override
     public String buildImage(final ImageBuildConfiguration image) {
         throwBadException();
@@ -74,6 +86,70 @@ public class DockerExceptionThrowingDockerProvider implements DockerProvider {
         throwBadException();
     }
 
+    @Override
+    public Map<String, DockerException> tagImages(final Map<String, List<String>> tags, final int parallelism) {
+        throwBadException();
+        return null;
+    }
+
+    @Override
+    public ImageInspectionResult inspectImage(final String image) {
+        throwBadException();
+        return null;
+    }
+
+    @Override
+    public List<ImageHistoryEntry> getImageHistory(final String image) {
+        throwBadException();
+        return null;
+    }
+
+    @Override
+    public String commitContainer(final String containerId, final String nameAndTag,
+                                  final Map<String, String> labels) {
+        throwBadException();
+        return null;
+    }
+
+    @Override
+    public String importImage(final ImageBuildConfiguration image) {
+        throwBadException();
+        return null;
+    }
+
+    @Override
+    public void pullImage(final String image) {
+        throwBadException();
+    }
+
+    @Override
+    public void saveImage(final String image, final File destination) {
+        throwBadException();
+    }
+
+    @Override
+    public void loadImage(final File archive) {
+        throwBadException();
+    }
+
+    @Override
+    public List<ContainerSummary> listContainers(final List<String> labelFilters) {
+        throwBadException();
+        return null;
+    }
+
+    @Override
+    public List<ImageSummary> listImages(final List<String> labelFilters) {
+        throwBadException();
+        return null;
+    }
+
+    @Override
+    public List<ImageSummary> listDanglingImages(final List<String> labelFilters) {
+        throwBadException();
+        return null;
+    }
+
     @Override
     public String getLogs(final String containerId) {
         throwBadException();
@@ -0,0 +1,187 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+
+package net.wouterdanes.docker.provider;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import net.wouterdanes.docker.provider.model.ContainerStartConfiguration;
+import net.wouterdanes.docker.provider.model.ImageBuildConfiguration;
+import net.wouterdanes.docker.remoteapi.exception.ContainerNotFoundException;
+import net.wouterdanes.docker.remoteapi.model.ContainerInspectionResult;
+import net.wouterdanes.docker.remoteapi.model.ContainerLink;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class MultiDockerProviderTest {
+
+    private DockerProvider first;
+    private DockerProvider second;
+    private MultiDockerProvider provider;
+
+    @Before
+    public void setUp() throws Exception {
+        first = mock(DockerProvider.class);
+        second = mock(DockerProvider.class);
+        // the scheduling state is shared by all instances, unique host names keep the tests apart
+        Map<String, DockerProvider> delegates = new LinkedHashMap<>();
+        delegates.put(UUID.randomUUID() + ":4243", first);
+        delegates.put(UUID.randomUUID() + ":4243", second);
+        provider = new MultiDockerProvider(delegates);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        System.getProperties().remove(MultiDockerProvider.DOCKER_HOSTS_PROPERTY);
+    }
+
+    @Test
+    public void testThatContainersAreSpreadOverTheHosts() throws Exception {
+        ContainerStartConfiguration configuration = new ContainerStartConfiguration().fromImage("busybox");
+        startsContainer(first, configuration, "one");
+        startsContainer(second, configuration, "two");
+
+        assertEquals("one", provider.startContainer(configuration).getId());
+        assertEquals("two", provider.startContainer(configuration).getId());
+    }
+
+    @Test
+    public void testThatLinkedContainersAreStartedOnTheSameHost() throws Exception {
+        ContainerStartConfiguration database = new ContainerStartConfiguration().fromImage("postgres");
+        ContainerStartConfiguration other = new ContainerStartConfiguration().fromImage("busybox");
+        ContainerStartConfiguration application = new ContainerStartConfiguration().fromImage("tomcat")
+                .withLink(new ContainerLink().toContainer("/database-" + database.hashCode()).withAlias("db"));
+        startsContainer(first, database, "database");
+        startsContainer(second, other, "other");
+        startsContainer(first, application, "application");
+
+        provider.startContainer(database);
+        provider.startContainer(other);
+        ContainerInspectionResult result = provider.startContainer(application);
+        provider.getExposedPorts(result);
+
+        verify(second, never()).startContainer(application);
+        verify(first).getExposedPorts(result);
+    }
+
+    @Test
+    public void testThatContainersAreStartedOnTheHostThatBuiltTheirImage() throws Exception {
+        String imageId = UUID.randomUUID().toString();
+        when(second.buildImage(any(ImageBuildConfiguration.class))).thenReturn(imageId);
+        ContainerStartConfiguration busy = new ContainerStartConfiguration().fromImage("busybox");
+        ContainerStartConfiguration built = new ContainerStartConfiguration().fromImage(imageId);
+        startsContainer(first, busy, "busy");
+        startsContainer(second, built, "built");
+
+        provider.startContainer(busy);
+        // the first host is busier, so the image is built on the second one
+        assertEquals(imageId, provider.buildImage(new ImageBuildConfiguration()));
+        provider.startContainer(built);
+
+        verify(second).startContainer(built);
+    }
+
+    @Test
+    public void testThatABuiltImageIsCopiedToTheHostOfTheContainersItLinksTo() throws Exception {
+        String imageId = UUID.randomUUID().toString();
+        when(first.buildImage(any(ImageBuildConfiguration.class))).thenReturn(imageId);
+        ContainerStartConfiguration cache = new ContainerStartConfiguration().fromImage("redis");
+        ContainerStartConfiguration database = new ContainerStartConfiguration().fromImage("postgres");
+        ContainerStartConfiguration application = new ContainerStartConfiguration().fromImage(imageId)
+                .withLink(new ContainerLink().toContainer("/database-" + database.hashCode()).withAlias("db"));
+        startsContainer(first, cache, "cache");
+        startsContainer(second, database, "database");
+        startsContainer(second, application, "application");
+
+        assertEquals(imageId, provider.buildImage(new ImageBuildConfiguration()));
+        provider.startContainer(cache);
+        provider.startContainer(database);
+        provider.startContainer(application);
+
+        verify(first).saveImage(eq(imageId), any(File.class));
+        verify(second).loadImage(any(File.class));
+        verify(second).startContainer(application);
+        verify(first, never()).startContainer(application);
+    }
+
+    @Test
+    public void testThatContainersOfAPlacementGroupAreStartedOnTheSameHost() throws Exception {
+        String group = UUID.randomUUID().toString();
+        ContainerStartConfiguration cache = new ContainerStartConfiguration().fromImage("redis")
+                .inPlacementGroup(group);
+        ContainerStartConfiguration database = new ContainerStartConfiguration().fromImage("postgres")
+                .inPlacementGroup(group);
+        ContainerStartConfiguration application = new ContainerStartConfiguration().fromImage("tomcat")
+                .withLink(new ContainerLink().toContainer("/cache-" + cache.hashCode()).withAlias("cache"))
+                .withLink(new ContainerLink().toContainer("/database-" + database.hashCode()).withAlias("db"))
+                .inPlacementGroup(group);
+        startsContainer(first, cache, "cache");
+        startsContainer(first, database, "database");
+        startsContainer(first, application, "application");
+
+        provider.startContainer(cache);
+        provider.startContainer(database);
+        provider.startContainer(application);
+
+        verify(first).startContainer(application);
+        verify(second, never()).startContainer(any(ContainerStartConfiguration.class));
+    }
+
+    @Test
+    public void testThatUnknownContainersAreLookedUpOnAllHosts() throws Exception {
+        String containerId = UUID.randomUUID().toString();
+        doThrow(new ContainerNotFoundException(containerId)).when(first).stopContainer(containerId);
+
+        provider.stopContainer(containerId);
+        provider.deleteContainer(containerId);
+
+        verify(second).stopContainer(containerId);
+        verify(second).deleteContainer(containerId);
+        verify(first, never()).deleteContainer(containerId);
+    }
+
+    @Test
+    public void testThatHostsArePickedUpFromTheSystemProperty() throws Exception {
+        System.setProperty(MultiDockerProvider.DOCKER_HOSTS_PROPERTY, "tcp://build1:2375, build2");
+
+        MultiDockerProvider fromProperty = new MultiDockerProvider();
+
+        assertEquals(MultiDockerProvider.class.getName() + "{hosts=[build1:2375, build2:4243]}",
+                fromProperty.toString());
+    }
+
+    private static void startsContainer(DockerProvider delegate, ContainerStartConfiguration configuration,
+                                        String id) {
+        ContainerInspectionResult container = mock(ContainerInspectionResult.class);
+        when(container.getId()).thenReturn(id);
+        when(container.getName()).thenReturn("/" + id + "-" + configuration.hashCode());
+        when(delegate.startContainer(configuration)).thenReturn(container);
+    }
+}
@@ -18,11 +18,16 @@
 package net.wouterdanes.docker.provider;
 
 import java.net.URI;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import junit.framework.Assert;
+import net.wouterdanes.docker.provider.model.ImageBuildConfiguration;
 
 public class RemoteDockerProviderTest {
     @Before
@@ -67,4 +72,21 @@ public class RemoteDockerProviderTest {
         Assert.assertEquals(expectedValue, provider.toString());
 
     }
+
+    @Test
+    public void testThatLabelsAreAppliedToImportedImages() throws Exception {
+        ImageBuildConfiguration image = new ImageBuildConfiguration();
+        image.setEnv(Collections.singletonMap("JAVA_HOME", "/opt/java"));
+        image.setCmd(Arrays.asList("java", "-jar", "/app.jar"));
+        Map<String, String> labels = new LinkedHashMap<>();
+        labels.put("net.wouterdanes.docker.managed", "true");
+        labels.put("description", "the \"app\" image");
+        image.setLabels(labels);
+
+        Assert.assertEquals(Arrays.asList("ENV JAVA_HOME /opt/java", "CMD [\"java\",\"-jar\",\"/app.jar\"]",
+                "LABEL \"net.wouterdanes.docker.managed\"=\"true\"",
+                "LABEL \"description\"=\"the \\\"app\\\" image\""),
+                RemoteApiBasedDockerProvider.getImportChanges(image, true));
+        Assert.assertEquals(2, RemoteApiBasedDockerProvider.getImportChanges(image, false).size());
+    }
 }
\ No newline at end of file
@@ -0,0 +1,80 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.remoteapi;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import com.google.common.base.Ticker;
+
+import org.junit.Test;
+
+import net.wouterdanes.docker.remoteapi.exception.DockerException;
+import net.wouterdanes.docker.remoteapi.model.BuildResult;
+import net.wouterdanes.docker.remoteapi.model.BuildStep;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BuildOutputReaderTest {
+
+    // every read of the clock is a second later than the previous one
+    private final Ticker ticker = new Ticker() {
+        private long nanos;
+
+        @Override
+        public long read() {
+            nanos += TimeUnit.SECONDS.toNanos(1);
+            return nanos;
+        }
+    };
+
+    @Test
+    public void testThatStepsAreTimedAndCacheHitsAreNoted() throws Exception {
+        BuildResult result = new BuildOutputReader(ticker).read(stream(
+                "{\"stream\":\"Step 1/3 : FROM java:8\\n\"}\r\n"
+                + "{\"stream\":\" ---\\u003e 5a1b2c3d4e5f\\n\"}\r\n"
+                + "{\"stream\":\"Step 2/3 : COPY app.jar /app.jar\\n ---\\u003e Using cache\\n\"}"
+                + "{\"stream\":\"Step 3/3 : RUN java -version\\n\"}\n"
+                + "{\"stream\":\" ---\\u003e Running in 0123456789ab\\n\"}\n"
+                + "{\"stream\":\"Successfully built 7f8e9d0c1b2a\\n\"}\n"));
+
+        assertEquals("7f8e9d0c1b2a", result.getImageId());
+        List<BuildStep> steps = result.getSteps();
+        assertEquals(3, steps.size());
+        assertEquals("FROM java:8", steps.get(0).getInstruction());
+        assertFalse(steps.get(0).isCached());
+        assertEquals(2, steps.get(1).getNumber());
+        assertTrue(steps.get(1).isCached());
+        assertEquals("RUN java -version", steps.get(2).getInstruction());
+        assertFalse(steps.get(2).isCached());
+        assertEquals(1000, steps.get(2).getDurationMillis());
+    }
+
+    @Test(expected = DockerException.class)
+    public void testThatAnErrorInTheStreamFailsTheBuild() throws Exception {
+        new BuildOutputReader(ticker).read(stream(
+                "{\"stream\":\"Step 1 : RUN false\\n\"}\r\n"
+                + "{\"errorDetail\":{\"code\":1},\"error\":\"The command returned a non-zero code: 1\"}\r\n"));
+    }
+
+    private static InputStream stream(String messages) throws Exception {
+        return new ByteArrayInputStream(messages.getBytes("UTF-8"));
+    }
+}
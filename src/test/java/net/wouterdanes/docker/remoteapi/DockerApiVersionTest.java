@@ -0,0 +1,86 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.remoteapi;
+
+import com.google.common.base.Supplier;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class DockerApiVersionTest {
+
+    @Test
+    public void testThatVersionsAreParsedAndCompared() throws Exception {
+        assertEquals(new DockerApiVersion(1, 12), DockerApiVersion.parse("v1.12"));
+        assertEquals("v1.9", DockerApiVersion.parse("1.9").getPath());
+
+        assertTrue(DockerApiVersion.parse("1.10").isAtLeast(DockerApiVersion.parse("1.9")));
+        assertFalse(DockerApiVersion.parse("1.9").isAtLeast(DockerApiVersion.parse("1.10")));
+        assertTrue(DockerApiVersion.parse("2.0").isAtLeast(DockerApiVersion.parse("1.23")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testThatAnInvalidVersionIsRejected() throws Exception {
+        DockerApiVersion.parse("latest");
+    }
+
+    @Test
+    public void testThatTheNegotiatedVersionStaysWithinTheSupportedRange() throws Exception {
+        assertEquals(DockerApiVersion.MINIMUM, DockerApiVersion.negotiate(DockerApiVersion.parse("1.11")));
+        assertEquals(DockerApiVersion.parse("1.18"), DockerApiVersion.negotiate(DockerApiVersion.parse("1.18")));
+        assertEquals(DockerApiVersion.MAXIMUM, DockerApiVersion.negotiate(DockerApiVersion.parse("1.41")));
+    }
+
+    @Test
+    public void testThatCapabilitiesDependOnTheVersion() throws Exception {
+        assertFalse(DockerCapability.HOST_CONFIG_ON_CREATE.isSupportedBy(DockerApiVersion.MINIMUM));
+        assertTrue(DockerCapability.HOST_CONFIG_ON_CREATE.isSupportedBy(DockerApiVersion.parse("1.15")));
+    }
+
+    @Test
+    public void testThatAFailedNegotiationIsTriedAgain() throws Exception {
+        Supplier<DockerApiVersion> version = DockerApiVersionNegotiator.forApiRoot("http://127.0.0.1:1");
+        assertEquals(DockerApiVersion.MINIMUM, version.get());
+
+        System.setProperty(DockerApiVersionNegotiator.API_VERSION_PROPERTY, "1.18");
+        try {
+            assertEquals(DockerApiVersion.parse("1.18"), version.get());
+        } finally {
+            System.clearProperty(DockerApiVersionNegotiator.API_VERSION_PROPERTY);
+        }
+    }
+
+    @Test
+    public void testThatTheEndPointFollowsALaterNegotiation() throws Exception {
+        final DockerApiVersion[] negotiated = {DockerApiVersion.MINIMUM};
+        BaseService service = new BaseService("http://127.0.0.1:1", "/images", new Supplier<DockerApiVersion>() {
+            @Override
+            public DockerApiVersion get() {
+                return negotiated[0];
+            }
+        }) { };
+        assertEquals("/v1.12/images", service.getServiceEndPoint().getUri().getPath());
+
+        negotiated[0] = DockerApiVersion.parse("1.25");
+
+        assertEquals("/v1.25/images", service.getServiceEndPoint().getUri().getPath());
+        assertTrue(service.supports(DockerCapability.BUILD_CACHE_FROM));
+    }
+}
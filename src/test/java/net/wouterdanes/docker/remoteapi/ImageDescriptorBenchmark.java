@@ -0,0 +1,100 @@
+/*
+    Copyright 2014 Wouter Danes
+
+    Licensed under the Apache License, Version 2.0 (the "License");
+    you may not use this file except in compliance with the License.
+    You may obtain a copy of the License at
+
+    http://www.apache.org/licenses/LICENSE-2.0
+
+    Unless required by applicable law or agreed to in writing, software
+    distributed under the License is distributed on an "AS IS" BASIS,
+    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+    See the License for the specific language governing permissions and
+    limitations under the License.
+
+*/
+package net.wouterdanes.docker.remoteapi;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import net.wouterdanes.docker.remoteapi.model.ImageDescriptor;
+
+/**
+ * Compares parsing image qualifiers with the regular expression that {@link ImageDescriptor} used before to the
+ * single pass parser and its cache. This isn't a unit test, run it with
+ * <code>mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=net.wouterdanes.docker.remoteapi.ImageDescriptorBenchmark</code>.
+ */
+public final class ImageDescriptorBenchmark {
+
+    private static final Pattern IMAGE_QUALIFIER = Pattern.compile("^"
+            + "((?<registry>[\\w\\.\\-]+(:\\d+)?)/)??" // registry
+            + "((?<repository>[\\w]+)/)?(?<image>[\\w]+)" // repository/image
+            + "(:(?<tag>[\\w\\.\\-]+))?" // tag
+            + "$");
+
+    private static final String[] QUALIFIERS = {
+            "ubuntu",
+            "ubuntu:14.04",
+            "wouter/ubuntu:precise",
+            "tutum.co:5000/wouter/ubuntu:precise",
+            "index_01-reg.tutum.co:5000/wouter/ubuntu:precise",
+            "abde1231adc"
+    };
+
+    private static final int WARM_UP_ROUNDS = 200000;
+    private static final int ROUNDS = 1000000;
+
+    private static int sink;
+
+    private ImageDescriptorBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        for (int run = 0; run < 2; run++) {
+            boolean report = run == 1;
+            time("regex", report, new Runnable() {
+                @Override
+                public void run() {
+                    for (String qualifier : QUALIFIERS) {
+                        Matcher matcher = IMAGE_QUALIFIER.matcher(qualifier);
+                        if (matcher.matches()) {
+                            sink += matcher.group("image").length();
+                        }
+                    }
+                }
+            });
+            time("parser", report, new Runnable() {
+                @Override
+                public void run() {
+                    for (String qualifier : QUALIFIERS) {
+                        sink += new ImageDescriptor(qualifier).getImage().length();
+                    }
+                }
+            });
+            time("cached parser", report, new Runnable() {
+                @Override
+                public void run() {
+                    for (String qualifier : QUALIFIERS) {
+                        sink += ImageDescriptor.of(qualifier).getImage().length();
+                    }
+                }
+            });
+        }
+        System.out.println("(" + sink + ")");
+    }
+
+    private static void time(String name, boolean report, Runnable round) {
+        int rounds = report ? ROUNDS : WARM_UP_ROUNDS;
+        long start = System.nanoTime();
+        for (int i = 0; i < rounds; i++) {
+            round.run();
+        }
+        long nanos = System.nanoTime() - start;
+        if (report) {
+            System.out.println(String.format("%-14s %6d ns per qualifier", name, nanos / (rounds * QUALIFIERS.length)));
+        }
+    }
+}
@@ -21,6 +21,8 @@ import org.junit.Test;
 
 import net.wouterdanes.docker.remoteapi.model.ImageDescriptor;
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertSame;
 
 public class ImageDescriptorTest {
 
@@ -71,6 +73,46 @@ public class ImageDescriptorTest {
                 "ubuntu", "ubuntu", "ubuntu:mark-2");
     }
 
+    @Test
+    public void testThatTheFullReferenceGrammarIsSupported() throws Exception {
+        // dashes, dots and digits in names
+        assertDescriptor("my-org/my.app2:1.0", "my-org/my.app2:1.0", null, "my-org", "my.app2", "1.0",
+                "my-org/my.app2", "my-org/my.app2", "my-org/my.app2:1.0");
+        assertDescriptor("localhost/ubuntu", "localhost/ubuntu", "localhost", null, "ubuntu", null,
+                "localhost/ubuntu", "ubuntu", "ubuntu");
+        // namespaces with more than one component
+        assertDescriptor("tutum.co:5000/wouter/base/ubuntu:precise",
+                "tutum.co:5000/wouter/base/ubuntu:precise", "tutum.co:5000", "wouter/base", "ubuntu", "precise",
+                "tutum.co:5000/wouter/base/ubuntu", "wouter/base/ubuntu", "wouter/base/ubuntu:precise");
+
+        String digest = "sha256:45b23dee08af5e43a7fea6c4cf9c25ccf269ee113168c19722f87876677c5cb2";
+        ImageDescriptor descriptor = new ImageDescriptor("tutum.co:5000/wouter/ubuntu:precise@" + digest);
+        assertEquals("tutum.co:5000", descriptor.getRegistry().get());
+        assertEquals("wouter", descriptor.getRepository().get());
+        assertEquals("ubuntu", descriptor.getImage());
+        assertEquals("precise", descriptor.getTag().get());
+        assertEquals(digest, descriptor.getDigest().get());
+
+        descriptor = new ImageDescriptor("ubuntu@" + digest);
+        assertEquals("ubuntu", descriptor.getImage());
+        assertFalse(descriptor.getTag().isPresent());
+        assertEquals(digest, descriptor.getDigest().get());
+    }
+
+    @Test
+    public void testThatQualifiersWithEmptyComponentsAreKeptAsAWhole() throws Exception {
+        assertDescriptor("ubuntu:", "ubuntu:", null, null, "ubuntu:", null, "ubuntu:", "ubuntu:", "ubuntu:");
+        assertDescriptor("wouter/", "wouter/", null, null, "wouter/", null, "wouter/", "wouter/", "wouter/");
+        assertFalse(new ImageDescriptor("ubuntu@").getDigest().isPresent());
+    }
+
+    @Test
+    public void testThatDescriptorsAreShared() throws Exception {
+        ImageDescriptor descriptor = ImageDescriptor.of("wouter/ubuntu:precise");
+
+        assertSame(descriptor, ImageDescriptor.of("wouter/ubuntu:precise"));
+        assertEquals("wouter", descriptor.getRepository().get());
+    }
 
     private static void assertDescriptor(String qualifier,
             String id, String registry, String repository,